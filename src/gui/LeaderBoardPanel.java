@@ -5,6 +5,7 @@ import javax.swing.*;
 import javax.swing.border.MatteBorder;
 
 import scores.*;
+import tetris.Replay;
 
 /**
  * The LeaderBoardPanel class is responsible for displaying the leaderboard to the user.
@@ -20,6 +21,11 @@ public class LeaderBoardPanel extends JPanel {
      */
     private LeaderBoard lb;
 
+    /**
+     * The ReplayVerifier that checks new scores before they are added to the leaderboard.
+     */
+    private ReplayVerifier verifier;
+
     /**
      * Constructs a new LeaderBoardPanel with the given parent TetrisApp.
      * @param p the parent TetrisApp object
@@ -27,6 +33,8 @@ public class LeaderBoardPanel extends JPanel {
     public LeaderBoardPanel(TetrisApp p) {
         frame = p;
         lb = new LeaderBoard();
+        lb.reportSize();
+        verifier = new ReplayVerifier();
         setLayout(new BorderLayout());
         setBackground(frame.getBackground());
     }
@@ -42,6 +50,7 @@ public class LeaderBoardPanel extends JPanel {
 
     /**
      * Exports high scores to a JSON file.
+     * Scores that are still being verified are not included, call close() first to wait for them.
      * @param filename the name of the file to export to
      */
     public void exportScores(String filename){
@@ -49,13 +58,28 @@ public class LeaderBoardPanel extends JPanel {
     }
 
     /**
-     * Adds a new entry to the leaderboard, and refreshes the panel to display it.
+     * Stops verifying new scores, and waits for the scores that are still being verified, so they are not lost when the scores are exported.
+     * Scores submitted after this are rejected.
+     */
+    public void close(){
+        if (!verifier.shutdown(5000)) System.err.println("Some scores could not be verified in time");
+    }
+
+    /**
+     * Submits a new entry for verification using the replay of the game it was achieved in.
+     * If the replay proves the score, it is added to the leaderboard, and the panel is refreshed to display it.
      * @param name the name of the player
      * @param score the score of the player
+     * @param replay the replay of the game the score was achieved in
      */
-    public void addNewScore(String name, int score){
-        lb.add(new HighScore(name, score));
-        refresh();
+    public void addNewScore(String name, int score, Replay replay){
+        HighScore hs = new HighScore(name, score);
+        if (hs.getScore() == 0) return;
+        boolean accepted = verifier.offer(hs, replay, verified -> {
+            lb.add(verified);
+            SwingUtilities.invokeLater(this::refresh);
+        });
+        if (!accepted) System.err.println("Too many scores waiting for verification, score was not saved");
     }
 
     /**
@@ -67,6 +91,15 @@ public class LeaderBoardPanel extends JPanel {
         initPanel();
     }
 
+    /**
+     * Lays out the panel again for a new size of the window, fitting as many entries as the new height allows.
+     */
+    public void relayout(){
+        refresh();
+        revalidate();
+        repaint();
+    }
+
     /**
      * Returns the position that the given score would be at if added to the leaderboard.
      * Interface for the LeaderBoard object.
@@ -0,0 +1,197 @@
+package gui;
+
+import java.awt.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import metrics.LatencyHistogram;
+
+/**
+ * The PerformanceOverlay class measures the frame times, tick jitter, input latency and garbage collection pauses of the game,
+ * and draws them over the board when it is visible. The overlay is toggled with the F3 key.
+ * Measurements go into histograms that never allocate, so they are always recorded, even when the overlay is hidden.
+ * Every second the percentiles of the last second are turned into the text that is drawn, and the histograms start over.
+ */
+public class PerformanceOverlay {
+	/**
+	 * The length of the window the percentiles are calculated over, in nanoseconds.
+	 */
+	private static final long WINDOW_NANOS = 1_000_000_000L;
+
+	/**
+	 * The translucent color drawn behind the text, so it can be read over the board.
+	 */
+	private static final Color SHADE = new Color(0, 0, 0, 160);
+
+	/**
+	 * The time between consecutive frames of the board.
+	 */
+	private LatencyHistogram frames;
+
+	/**
+	 * The difference between the time between consecutive ticks and the period of the tick.
+	 */
+	private LatencyHistogram tickJitter;
+
+	/**
+	 * The time from an input to the end of drawing the first frame showing its result.
+	 */
+	private LatencyHistogram inputLatency;
+
+	/**
+	 * The time the last frame and the last tick were recorded at, in nanoseconds, or 0 if none were recorded yet.
+	 */
+	private long lastFrame, lastTick;
+
+	/**
+	 * The garbage collectors of the JVM, whose collection times are summed up for the overlay.
+	 */
+	private List<GarbageCollectorMXBean> collectors;
+
+	/**
+	 * The total number and time of garbage collections at the start of the window.
+	 */
+	private long gcCount, gcMillis;
+
+	/**
+	 * The time the current window started at, in nanoseconds.
+	 */
+	private long windowStart;
+
+	/**
+	 * The lines of text drawn by the overlay, made at the end of every window.
+	 */
+	private String[] lines;
+
+	/**
+	 * The font of the text, only made again when the cells are resized.
+	 */
+	private Font font;
+
+	/**
+	 * The size of a cell the font was made for.
+	 */
+	private int fontSquareSize;
+
+	/**
+	 * Whether the overlay is drawn.
+	 */
+	private volatile boolean visible;
+
+	/**
+	 * Constructs a new hidden PerformanceOverlay.
+	 */
+	public PerformanceOverlay() {
+		frames = new LatencyHistogram();
+		tickJitter = new LatencyHistogram();
+		inputLatency = new LatencyHistogram();
+		collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		windowStart = System.nanoTime();
+		lines = new String[] {"measuring..."};
+		rollWindow(windowStart);
+	}
+
+	/**
+	 * Shows the overlay if it is hidden, and hides it if it is shown.
+	 */
+	public void toggle() {
+		visible = !visible;
+	}
+
+	/**
+	 * Records that a frame was drawn at the given time.
+	 * @param now the time the frame was drawn, from System.nanoTime()
+	 */
+	public void recordFrame(long now) {
+		if (lastFrame != 0) frames.record(now - lastFrame);
+		lastFrame = now;
+	}
+
+	/**
+	 * Records that a tick started at the given time.
+	 * @param now the time the tick started, from System.nanoTime()
+	 * @param periodMillis the time between ticks the game loop aims for, in milliseconds
+	 * @return the time since the previous tick in nanoseconds, or the period if this is the first tick
+	 */
+	public long recordTick(long now, int periodMillis) {
+		long period = periodMillis * 1_000_000L;
+		long interval = lastTick != 0 ? now - lastTick : period;
+		tickJitter.record(Math.abs(interval - period));
+		lastTick = now;
+		return interval;
+	}
+
+	/**
+	 * Records the time from an input to the end of drawing the first frame showing its result.
+	 * @param latencyMillis the latency in milliseconds
+	 */
+	public void recordInputLatency(long latencyMillis) {
+		inputLatency.record(latencyMillis * 1_000_000L);
+	}
+
+	/**
+	 * Draws the overlay in the top left corner of the given Graphics object, if it is visible.
+	 * Must always be called from the same thread, which is the thread drawing the frames.
+	 * @param g the Graphics object to draw on, not flipped
+	 * @param squareSize the size of a cell of the board in pixels, used to size the text
+	 */
+	public void draw(Graphics g, int squareSize) {
+		long now = System.nanoTime();
+		if (now - windowStart >= WINDOW_NANOS) rollWindow(now);
+		if (!visible) return;
+
+		if (font == null || fontSquareSize != squareSize) {
+			font = g.getFont().deriveFont(Font.BOLD, Math.max(10, squareSize/3f));
+			fontSquareSize = squareSize;
+		}
+		g.setFont(font);
+		FontMetrics fm = g.getFontMetrics();
+		int width = 0;
+		for (String line : lines) {
+			width = Math.max(width, fm.stringWidth(line));
+		}
+		g.setColor(SHADE);
+		g.fillRect(0, 0, width + 8, lines.length * fm.getHeight() + 4);
+		g.setColor(TetrisApp.TEXT_COLOR);
+		for (int i = 0; i < lines.length; i++) {
+			g.drawString(lines[i], 4, 2 + i * fm.getHeight() + fm.getAscent());
+		}
+	}
+
+	/**
+	 * Turns the measurements of the window that ended into the text of the overlay, and starts a new window.
+	 * @param now the time the window ended, from System.nanoTime()
+	 */
+	private void rollWindow(long now) {
+		long count = 0, millis = 0;
+		for (GarbageCollectorMXBean collector : collectors) {
+			count += Math.max(0, collector.getCollectionCount());
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		if (frames.getCount() > 0 || tickJitter.getCount() > 0) {
+			lines = new String[] {
+				String.format("frame p50 %.1f ms, p99 %.1f ms (%d fps)", ms(frames, 50), ms(frames, 99), frames.getCount() * WINDOW_NANOS / (now - windowStart)),
+				String.format("tick jitter p50 %.1f ms, p99 %.1f ms", ms(tickJitter, 50), ms(tickJitter, 99)),
+				String.format("input p50 %.0f ms, p99 %.0f ms", ms(inputLatency, 50), ms(inputLatency, 99)),
+				String.format("GC %d pauses, %d ms", count - gcCount, millis - gcMillis)
+			};
+		}
+		gcCount = count;
+		gcMillis = millis;
+		frames.reset();
+		tickJitter.reset();
+		inputLatency.reset();
+		windowStart = now;
+	}
+
+	/**
+	 * Returns the value at the given percentile of the given histogram of nanoseconds, in milliseconds.
+	 * @param h the histogram
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the value at the percentile in milliseconds
+	 */
+	private static double ms(LatencyHistogram h, double percentile) {
+		return h.getValueAtPercentile(percentile) / 1e6;
+	}
+}
@@ -0,0 +1,263 @@
+package gui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sound.sampled.*;
+
+/**
+ * The SoundMixer class plays short sound effects, any number of which can overlap, even the same effect with itself.
+ * The effects are decoded into 16-bit stereo samples once, when the mixer is created.
+ * A dedicated thread mixes the playing effects into small blocks and writes them to a single line with a short buffer,
+ * so an effect starts playing within a few milliseconds of being triggered.
+ * Triggering an effect only reserves a place in a queue and writes its index into it, so it never blocks or allocates, and is safe from any thread.
+ */
+public class SoundMixer {
+	/**
+	 * The sample rate of the mixed output, effects with other sample rates are resampled to this when decoded.
+	 */
+	private static final float SAMPLE_RATE = 44100;
+
+	/**
+	 * The number of frames mixed at once, about 3ms of audio. The line buffers 2 blocks, so the latency is below 10ms.
+	 */
+	private static final int BLOCK_FRAMES = 128;
+
+	/**
+	 * The maximum number of effects playing at once, if more are triggered, the oldest one is cut off.
+	 */
+	private static final int VOICES = 16;
+
+	/**
+	 * The maximum number of triggers waiting to be picked up by the mixing thread, if more are triggered, they are ignored.
+	 */
+	private static final int QUEUE_SIZE = 64;
+
+	/**
+	 * The decoded samples of each effect, with the left and right channels interleaved.
+	 * An effect that could not be loaded has no samples.
+	 */
+	private short[][] effects;
+
+	/**
+	 * The triggered effects waiting to be picked up, stored as the index of the effect plus one, or 0 for an empty place.
+	 */
+	private AtomicIntegerArray queue;
+
+	/**
+	 * The number of triggers written into the queue, and the number of triggers read from it, the difference is the number waiting.
+	 */
+	private AtomicLong written, read;
+
+	/**
+	 * The index of the effect each voice is playing, or -1 if the voice is free. Only used by the mixing thread.
+	 */
+	private int[] voiceEffect;
+
+	/**
+	 * The position of each voice in the samples of its effect. Only used by the mixing thread.
+	 */
+	private int[] voicePosition;
+
+	/**
+	 * The block the voices are mixed into, wider than 16 bits so they can be added up before clipping.
+	 */
+	private int[] mix;
+
+	/**
+	 * The mixed block converted to bytes, in the format of the line.
+	 */
+	private byte[] output;
+
+	/**
+	 * The line the mixed blocks are written to.
+	 */
+	private SourceDataLine line;
+
+	/**
+	 * A flag telling the mixing thread to exit, set by close().
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new SoundMixer with the effects in the given files, and starts the mixing thread.
+	 * Effects whose file does not exist stay silent, so only the effects that are shipped are played, their index is still taken.
+	 * Files that exist but can not be loaded are reported, and stay silent too.
+	 * @param filenames the names of the sound files of the effects, in the order of their indices
+	 * @throws LineUnavailableException if no line can be opened for the mixed output
+	 */
+	public SoundMixer(String... filenames) throws LineUnavailableException {
+		effects = new short[filenames.length][];
+		for (int i = 0; i < filenames.length; i++) {
+			File file = new File(filenames[i]);
+			if (!file.isFile()) {
+				effects[i] = new short[0];
+				continue;
+			}
+			try {
+				effects[i] = decode(file);
+			} catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+				System.err.println("Error loading " + filenames[i]);
+				effects[i] = new short[0];
+			}
+		}
+
+		queue = new AtomicIntegerArray(QUEUE_SIZE);
+		written = new AtomicLong();
+		read = new AtomicLong();
+		voiceEffect = new int[VOICES];
+		voicePosition = new int[VOICES];
+		Arrays.fill(voiceEffect, -1);
+		mix = new int[BLOCK_FRAMES * 2];
+		output = new byte[BLOCK_FRAMES * 4];
+
+		AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+		line = AudioSystem.getSourceDataLine(format);
+		line.open(format, output.length * 2);
+		line.start();
+
+		Thread thread = new Thread(this::run, "sound-mixer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Triggers the effect with the given index, which starts playing with the next mixed block.
+	 * The place in the queue is reserved with a compare-and-set on the number of triggers written, so that threads triggering
+	 * at the same time can not both pass the check for a full queue and write over triggers that have not been picked up.
+	 * @param effect the index of the effect
+	 * @return true if the effect was triggered, false if too many effects are waiting to be picked up
+	 */
+	public boolean trigger(int effect) {
+		long slot;
+		do {
+			slot = written.get();
+			if (slot - read.get() >= QUEUE_SIZE) return false;
+		} while (!written.compareAndSet(slot, slot + 1));
+		queue.set((int) (slot % QUEUE_SIZE), effect + 1);
+		return true;
+	}
+
+	/**
+	 * Stops the mixing thread and closes the line.
+	 */
+	public void close() {
+		closed = true;
+	}
+
+	/**
+	 * The loop of the mixing thread, mixing and writing blocks until the mixer is closed.
+	 * Silence is written when nothing is playing, so the line keeps running and new effects start without delay.
+	 */
+	private void run() {
+		while (!closed) {
+			startTriggered();
+			mixBlock();
+			line.write(output, 0, output.length);
+		}
+		line.stop();
+		line.close();
+	}
+
+	/**
+	 * Picks up the triggered effects from the queue, and starts each of them on a free voice,
+	 * or on the voice that has played the longest if there are no free ones.
+	 */
+	private void startTriggered() {
+		long r = read.get();
+		while (r < written.get()) {
+			int place = (int) (r % QUEUE_SIZE);
+			int value = queue.get(place);
+			// the trigger took the place, but has not written the effect yet
+			if (value == 0) break;
+			queue.set(place, 0);
+			r++;
+			read.set(r);
+
+			int voice = 0;
+			for (int v = 0; v < VOICES; v++) {
+				if (voiceEffect[v] < 0) {
+					voice = v;
+					break;
+				}
+				if (voicePosition[v] > voicePosition[voice]) voice = v;
+			}
+			voiceEffect[voice] = value - 1;
+			voicePosition[voice] = 0;
+		}
+	}
+
+	/**
+	 * Mixes the next block of every playing voice into the output, clipping samples that are out of range.
+	 */
+	private void mixBlock() {
+		Arrays.fill(mix, 0);
+		for (int v = 0; v < VOICES; v++) {
+			if (voiceEffect[v] < 0) continue;
+			short[] samples = effects[voiceEffect[v]];
+			int count = Math.min(mix.length, samples.length - voicePosition[v]);
+			for (int i = 0; i < count; i++) {
+				mix[i] += samples[voicePosition[v] + i];
+			}
+			voicePosition[v] += count;
+			if (voicePosition[v] >= samples.length) voiceEffect[v] = -1;
+		}
+		for (int i = 0; i < mix.length; i++) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+			output[2*i] = (byte) sample;
+			output[2*i + 1] = (byte) (sample >> 8);
+		}
+	}
+
+	/**
+	 * Decodes the given sound file into 16-bit stereo samples at the sample rate of the mixer.
+	 * Mono files are copied to both channels, and other sample rates are resampled linearly.
+	 * @param file the sound file to decode
+	 * @return the interleaved samples of the left and right channels
+	 * @throws IOException if the file can not be read
+	 * @throws UnsupportedAudioFileException if the file is not a supported sound file
+	 */
+	private static short[] decode(File file) throws IOException, UnsupportedAudioFileException {
+		AudioInputStream source = AudioSystem.getAudioInputStream(file);
+		AudioFormat sourceFormat = source.getFormat();
+		int channels = sourceFormat.getChannels();
+		AudioFormat pcm = new AudioFormat(sourceFormat.getSampleRate(), 16, channels, true, false);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (AudioInputStream stream = AudioSystem.getAudioInputStream(pcm, source)) {
+			stream.transferTo(bytes);
+		}
+		byte[] data = bytes.toByteArray();
+
+		int frames = data.length / (2 * channels);
+		double step = sourceFormat.getSampleRate() / SAMPLE_RATE;
+		int outFrames = (int) (frames / step);
+		short[] out = new short[outFrames * 2];
+		for (int f = 0; f < outFrames; f++) {
+			double position = f * step;
+			int i = (int) position;
+			double t = position - i;
+			int next = Math.min(i + 1, frames - 1);
+			for (int c = 0; c < 2; c++) {
+				int sc = Math.min(c, channels - 1);
+				double a = sample(data, i * channels + sc);
+				double b = sample(data, next * channels + sc);
+				out[2*f + c] = (short) Math.round(a + (b - a) * t);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Reads a little-endian 16-bit sample from the given bytes.
+	 * @param data the bytes of the samples
+	 * @param index the index of the sample
+	 * @return the value of the sample
+	 */
+	private static short sample(byte[] data, int index) {
+		return (short) ((data[2*index] & 0xFF) | (data[2*index + 1] << 8));
+	}
+}
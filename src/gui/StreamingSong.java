@@ -0,0 +1,153 @@
+package gui;
+
+import java.io.File;
+import java.io.IOException;
+import javax.sound.sampled.*;
+
+/**
+ * The StreamingSong class plays a looping song from a sound file, without loading the whole file into memory.
+ * A dedicated thread reads the file a small chunk at a time, and writes it to a SourceDataLine with a short buffer.
+ * When the end of the file is reached, it is reopened and the writing continues on the same line, so the loop is seamless.
+ * The memory used is the same no matter how long the song is.
+ */
+public class StreamingSong {
+	/**
+	 * The length of the buffer of the line in milliseconds, which is the most audio that is decoded ahead of playback.
+	 */
+	private static final int BUFFER_MILLIS = 200;
+
+	/**
+	 * The sound file the song is read from.
+	 */
+	private File file;
+
+	/**
+	 * The line the song is played on.
+	 */
+	private SourceDataLine line;
+
+	/**
+	 * The chunk the file is read into before it is written to the line, a quarter of the line's buffer.
+	 */
+	private byte[] chunk;
+
+	/**
+	 * Flags set by play() and stop(), telling the audio thread whether the song should be playing,
+	 * whether it should start over from the beginning, and whether the song is closed and the thread should exit.
+	 * Guarded by the lock of the song.
+	 */
+	private boolean playing, restart, closed;
+
+	/**
+	 * Constructs a new StreamingSong for the given sound file, opening a line in the format of the file,
+	 * and starting the audio thread, which waits until the song is played.
+	 * @param filename the name of the sound file
+	 * @throws IOException if the file can not be read
+	 * @throws UnsupportedAudioFileException if the file is not a supported sound file
+	 * @throws LineUnavailableException if no line can be opened in the format of the file
+	 */
+	public StreamingSong(String filename) throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+		file = new File(filename);
+		AudioFormat format;
+		try (AudioInputStream stream = AudioSystem.getAudioInputStream(file)) {
+			format = stream.getFormat();
+		}
+		int frameSize = Math.max(1, format.getFrameSize());
+		int bufferSize = (int) (format.getFrameRate() * BUFFER_MILLIS / 1000) * frameSize;
+		line = AudioSystem.getSourceDataLine(format);
+		line.open(format, bufferSize);
+		chunk = new byte[Math.max(frameSize, bufferSize / 4 / frameSize * frameSize)];
+
+		Thread thread = new Thread(this::run, "audio-" + file.getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Starts playing the song from the beginning, looping it until it is stopped.
+	 */
+	public synchronized void play() {
+		playing = true;
+		restart = true;
+		notifyAll();
+	}
+
+	/**
+	 * Stops playing the song. The audio that is already buffered is thrown away, so it stops immediately.
+	 */
+	public synchronized void stop() {
+		playing = false;
+		notifyAll();
+	}
+
+	/**
+	 * Returns whether the song is playing.
+	 * @return true if the song is playing, false otherwise
+	 */
+	public synchronized boolean isPlaying() {
+		return playing;
+	}
+
+	/**
+	 * Stops the song, closes its line and stops the audio thread. The song can not be played after it is closed.
+	 */
+	public synchronized void close() {
+		playing = false;
+		closed = true;
+		notifyAll();
+	}
+
+	/**
+	 * The loop of the audio thread. Waits until the song is played, then streams the file to the line chunk by chunk,
+	 * reopening the file whenever it ends or the song is restarted, until the song is stopped.
+	 */
+	private void run() {
+		AudioInputStream stream = null;
+		try {
+			while (waitUntilPlaying()) {
+				synchronized (this) {
+					if (restart || stream == null) {
+						restart = false;
+						if (stream != null) stream.close();
+						stream = AudioSystem.getAudioInputStream(file);
+					}
+				}
+				int read = stream.read(chunk, 0, chunk.length);
+				if (read < 0) {
+					// reopen the file at its end without draining the line, so there is no gap in the loop
+					stream.close();
+					stream = AudioSystem.getAudioInputStream(file);
+					continue;
+				}
+				line.start();
+				line.write(chunk, 0, read);
+			}
+		} catch (IOException | UnsupportedAudioFileException e) {
+			System.err.println("Error streaming " + file.getName());
+		} finally {
+			try {
+				if (stream != null) stream.close();
+			} catch (IOException ignored) { /*ignored*/ }
+			line.close();
+		}
+	}
+
+	/**
+	 * Blocks the audio thread while the song is stopped, throwing away the buffered audio when it stops.
+	 * @return true if the song should be playing, false if it is closed
+	 */
+	private synchronized boolean waitUntilPlaying() {
+		if (!playing && line.isRunning()) {
+			line.stop();
+			line.flush();
+		}
+		while (!playing && !closed) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+		return !closed;
+	}
+}
@@ -3,15 +3,19 @@ package gui;
 import javax.swing.*;
 
 import java.awt.*;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
 
 import javax.imageio.ImageIO;
-import javax.sound.sampled.*;
 
 import com.formdev.flatlaf.FlatDarculaLaf;
 
+import metrics.MetricsExporter;
+
 /**
  * The TetrisApp class is the main class of the game.
  */
@@ -41,6 +45,13 @@ public class TetrisApp extends JFrame {
 	 */
 	public static final int QUIT_FROM_LEADERBOARD = 2;
 
+	/**
+	 * The indices of the sound effects in the SoundMixer: rotating a piece, hard-dropping a piece,
+	 * clearing lines, and the player topping out.
+	 * Only the game over effect is shipped in the asset folder, the others stay silent until their files are added there.
+	 */
+	public static final int SOUND_ROTATE = 0, SOUND_DROP = 1, SOUND_CLEAR = 2, SOUND_GAME_OVER = 3;
+
 	/**
 	 * The width of the window.
 	 */
@@ -51,6 +62,22 @@ public class TetrisApp extends JFrame {
 	 */
 	private static final int WINDOW_HEIGHT = 900;
 
+	/**
+	 * The time to wait after the last resize of the window before laying it out again, in milliseconds.
+	 * Resizing by dragging the border sends many resize events, and only the final size needs a layout.
+	 */
+	private static final int RESIZE_DEBOUNCE_MILLIS = 150;
+
+	/**
+	 * The time the app was started at, in nanoseconds, used to measure the time it takes to show the first frame.
+	 */
+	private static final long START_TIME = System.nanoTime();
+
+	/**
+	 * Whether the time to the first frame and the time to load the sound effects are printed, set with the tetris.startupTimes property.
+	 */
+	private static final boolean STARTUP_TIMES = Boolean.getBoolean("tetris.startupTimes");
+
 	/**
 	 * The TetrisPanel object that allows the player to play the game.
 	 */
@@ -58,13 +85,63 @@ public class TetrisApp extends JFrame {
 
 	/**
 	 * The LeaderBoardPanel object that displays the leaderboard.
+	 * It is only created, and the scores are only imported, when the leaderboard is first needed.
 	 */
 	private LeaderBoardPanel leaderBoard;
 
 	/**
-	 * The Clip objects that play the menu music, game music, and game over sound.
+	 * The exporter of the metrics of the app, configured by the tetris.metrics system properties.
+	 */
+	private MetricsExporter metrics;
+
+	/**
+	 * The StreamingSong objects that play the menu music and the game music, opened in the background.
+	 * The songs are streamed from their files while playing, so they take little memory no matter their length.
+	 * The menu music starts opening with the app, the game music only when the first game is started.
+	 * An opened song is null if it could not be opened.
+	 */
+	private CompletableFuture<StreamingSong> menuSong, gameSong;
+
+	/**
+	 * The SoundMixer that plays the sound effects, which are short enough to be loaded into memory whole.
+	 * It only starts loading when the first game is started, and is null if no sound can be played.
+	 */
+	private CompletableFuture<SoundMixer> effects;
+
+	/**
+	 * The song that should be playing, which is started when it finishes opening, if it is still the one that should be playing.
+	 */
+	private CompletableFuture<StreamingSong> currentSong;
+
+	/**
+	 * The label of the title image on the menu, which the image is set on once it is loaded.
+	 */
+	private JLabel title;
+
+	/**
+	 * The title image at its original size, scaled once for every size of the menu, or null until it is loaded.
 	 */
-	private Clip menuSong, gameSong, failSound;
+	private BufferedImage titleImage;
+
+	/**
+	 * The components of the menu whose size depends on the size of the window: the title and the buttons.
+	 */
+	private List<JComponent> menuItems;
+
+	/**
+	 * The timer that lays out the window again once it has not been resized for a while.
+	 */
+	private Timer resizeTimer;
+
+	/**
+	 * The bounds of the window before it was made fullscreen, restored when it leaves fullscreen.
+	 */
+	private Rectangle windowedBounds;
+
+	/**
+	 * The threads that load the assets in the background, so the window can be shown before they are loaded.
+	 */
+	private ExecutorService assetLoader;
 
 	/**
 	 * main method that initializes some UI settings and creates a new TetrisApp object.
@@ -94,27 +171,35 @@ public class TetrisApp extends JFrame {
 	
 	/**
 	 * Constructs a new TetrisApp object with the default window settings.
-	 * Initializes the sounds used in the app.
-	 * Creates the 3 main screens: the menu, the game, and the leaderboard,
-	 * which are managed by a CardLayout, to allow easy switching based on their names.
+	 * Creates the menu and the game screens, which are managed by a CardLayout, to allow easy switching based on their names.
+	 * The leaderboard screen is created when it is first needed.
+	 * The window is shown right away, while the icon, the title image and the menu music are loaded in parallel in the background.
 	 * The default closing operation does nothing, so the app can handle it manually,
 	 * which is done by using a WindowAdapter to call the close() method.
+	 * The window can be resized, and F11 toggles fullscreen, which the app starts in if the tetris.fullscreen system property is set.
+	 * Every screen is laid out again once the window stops being resized.
 	 */
 	public TetrisApp () {
 		setTitle("Tetris HBM");
 		setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
-		setResizable(false);
+		setMinimumSize(new Dimension(WINDOW_WIDTH/2, WINDOW_HEIGHT/2));
 		setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
 		setLocationRelativeTo(null);
 		setLayout(new CardLayout());
 		setBackground(BACKGROUND_COLOR);
-		try {setIconImage(ImageIO.read(new File("asset/icon.png")));} catch (Exception e) {System.err.println("Error loading app icon");}
 
-		initSounds();
+		metrics = new MetricsExporter().startFromProperties();
+
+		assetLoader = Executors.newFixedThreadPool(3, r -> {
+			Thread t = new Thread(r, "asset-loader");
+			t.setDaemon(true);
+			return t;
+		});
+		loadImages();
+		menuSong = loadSong("asset/menu.wav");
 		
 		makeMenuButtons();
 		makeTetris();
-		makeLeaderBoard();
 
 		changeToPage("menu");
 
@@ -124,9 +209,26 @@ public class TetrisApp extends JFrame {
 				close();
 			}
 		});
-		
-		setVisible(true);
-		menuSong.loop(Clip.LOOP_CONTINUOUSLY);
+
+		resizeTimer = new Timer(RESIZE_DEBOUNCE_MILLIS, e -> relayout());
+		resizeTimer.setRepeats(false);
+		getContentPane().addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				resizeTimer.restart();
+			}
+		});
+		getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F11, 0), "fullscreen");
+		getRootPane().getActionMap().put("fullscreen", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				setFullScreen(getGraphicsConfiguration().getDevice().getFullScreenWindow() != TetrisApp.this);
+			}
+		});
+
+		if (Boolean.getBoolean("tetris.fullscreen")) setFullScreen(true);
+		else setVisible(true);
+		playSong(menuSong);
 	}
 
 	/**
@@ -138,20 +240,92 @@ public class TetrisApp extends JFrame {
 	 */
 	public void returnToMainMenu(int reason){
 		if (reason == TOPOUT || reason == QUIT_FROM_GAME){
-			if (gameSong.isRunning()) gameSong.stop();
+			stopSong();
 			if (reason == TOPOUT) {
-				failSound.setMicrosecondPosition(0);
-				failSound.start();
+				playSound(SOUND_GAME_OVER);
 				processResults();
 			}
 			remove(tetris);
 			makeTetris();
-			menuSong.setMicrosecondPosition(0);
-			menuSong.loop(Clip.LOOP_CONTINUOUSLY);
+			playSong(menuSong);
 		}
 		changeToPage("menu");
 	}
 
+	/**
+	 * Makes the window fullscreen on its screen, without decorations, or returns it to its bounds before it was made fullscreen.
+	 * The window has to be hidden to change its decorations, so it is shown again afterwards.
+	 * @param fullScreen true to make the window fullscreen, false to return it to a normal window
+	 */
+	private void setFullScreen(boolean fullScreen) {
+		GraphicsDevice device = getGraphicsConfiguration().getDevice();
+		if (fullScreen) windowedBounds = getBounds();
+		dispose();
+		setUndecorated(fullScreen);
+		if (fullScreen) {
+			device.setFullScreenWindow(this);
+		}
+		else {
+			device.setFullScreenWindow(null);
+			if (windowedBounds != null) setBounds(windowedBounds);
+			setVisible(true);
+		}
+	}
+
+	/**
+	 * Lays out every screen again for the current size of the window: the menu buttons and title, the game, and the leaderboard.
+	 * The fonts of the buttons are scaled with the buttons, relative to their size in the default window.
+	 * The title image is scaled once here, so nothing is scaled while drawing.
+	 */
+	private void relayout() {
+		int buttonUnit = getButtonUnit();
+		float fontSize = UIManager.getFont("Button.font").getSize2D() * buttonUnit / (WINDOW_HEIGHT/20f);
+		for (JComponent item : menuItems) {
+			item.setPreferredSize(new Dimension(5*buttonUnit, buttonUnit));
+			if (item instanceof JButton) item.setFont(item.getFont().deriveFont(fontSize));
+		}
+		scaleTitle();
+		tetris.relayout();
+		if (leaderBoard != null) leaderBoard.relayout();
+		getContentPane().revalidate();
+		repaint();
+	}
+
+	/**
+	 * Returns the height of the buttons of the menu, which is a twentieth of the height of the window,
+	 * but small enough for the buttons to fit the width of the window.
+	 * @return the height of the buttons in pixels
+	 */
+	private int getButtonUnit() {
+		return Math.max(1, Math.min(getHeight()/20, getWidth()/6));
+	}
+
+	/**
+	 * Sets the title image on the menu, scaled to the size of the title, if the image is loaded.
+	 */
+	private void scaleTitle() {
+		if (titleImage == null) return;
+		int buttonUnit = getButtonUnit();
+		title.setIcon(new ImageIcon(scaleImage(titleImage, 5*buttonUnit, buttonUnit)));
+	}
+
+	/**
+	 * Returns a copy of the given image scaled to the given size, with bicubic interpolation.
+	 * @param image the image to scale
+	 * @param width the width of the scaled image
+	 * @param height the height of the scaled image
+	 * @return the scaled image
+	 */
+	private static BufferedImage scaleImage(BufferedImage image, int width, int height) {
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = scaled.createGraphics();
+		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+		g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g2d.drawImage(image, 0, 0, width, height, null);
+		g2d.dispose();
+		return scaled;
+	}
+
 	/**
 	 * Changes the current screen to the one with the given name.
 	 * @param name the name of the screen to change to
@@ -163,14 +337,15 @@ public class TetrisApp extends JFrame {
 
 	/**
 	 * If the result is valid, displays a dialog with the option to save the score to the leaderboard.
+	 * The score is submitted together with the replay of the game, so it can be verified before it is saved.
 	 */
 	private void processResults(){
 		int score = tetris.getResults();
 		if (score != 0) {
-			String text = "Your score is " + score + ", that puts you at #" + leaderBoard.positionIfAdded(score) + " on the leaderboard!\nIf you want to save your score, enter your name.";
+			String text = "Your score is " + score + ", that puts you at #" + getLeaderBoard().positionIfAdded(score) + " on the leaderboard!\nIf you want to save your score, enter your name.";
 			String name = JOptionPane.showInputDialog(this, text, "Game Over!", JOptionPane.PLAIN_MESSAGE);
 			if (name == null) name = "";
-			leaderBoard.addNewScore(name.trim(), score);
+			getLeaderBoard().addNewScore(name.trim(), score, tetris.getReplay());
 		}
 	}
 	
@@ -179,12 +354,24 @@ public class TetrisApp extends JFrame {
 	 * Also adds the title icon to the menu.
 	 */
 	private void makeMenuButtons() {
-		JPanel menuButtons = new JPanel();
+		// the menu is the first screen shown, so its first paint is the first frame of the app
+		JPanel menuButtons = new JPanel() {
+			private boolean painted;
+
+			@Override
+			public void paintComponent(Graphics g) {
+				super.paintComponent(g);
+				if (!painted) {
+					painted = true;
+					if (STARTUP_TIMES) System.out.printf("First frame after %d ms%n", (System.nanoTime() - START_TIME) / 1_000_000);
+				}
+			}
+		};
 		menuButtons.setLayout(new GridBagLayout());
 		menuButtons.setBackground(getBackground());
 		
 		// makes it easier to get consistent button sizes
-		int buttonUnit = WINDOW_HEIGHT/20;
+		int buttonUnit = getButtonUnit();
 		
 		// gridbagconstraints for the buttons, center and appear in a single column
 		GridBagConstraints gbc = new GridBagConstraints();
@@ -199,8 +386,8 @@ public class TetrisApp extends JFrame {
 		// add the title icon with the correct size
 		// weight is set to 0.5 to make the title appear further from the buttons
 		gbc.weighty = 0.5;
-		ImageIcon titleImage = new ImageIcon("asset/title.png");
-		JLabel title = new JLabel( new ImageIcon(titleImage.getImage().getScaledInstance(5* buttonUnit, buttonUnit, Image.SCALE_SMOOTH)));
+		// the image itself is set once it is loaded
+		title = new JLabel();
 		title.setPreferredSize(new Dimension(5*buttonUnit, buttonUnit));
 		menuButtons.add(title, gbc);
 
@@ -210,9 +397,11 @@ public class TetrisApp extends JFrame {
 		startButton.addActionListener(e -> {
 			changeToPage("game");
 			tetris.startGame();
-			if (menuSong.isRunning()) menuSong.stop();
-			gameSong.setMicrosecondPosition(0);
-			gameSong.loop(Clip.LOOP_CONTINUOUSLY);
+			if (gameSong == null) {
+				gameSong = loadSong("asset/ingame.wav");
+				effects = loadEffects();
+			}
+			playSong(gameSong);
 		}
 		);
 		startButton.setPreferredSize(new Dimension(5*buttonUnit, buttonUnit));
@@ -220,7 +409,10 @@ public class TetrisApp extends JFrame {
 		
 		// add the leaderboard button, which shows the leaderboard
 		JButton rankingButton = new JButton("<html><h1>Leaderboards</h1></html>");
-		rankingButton.addActionListener(e -> changeToPage("leaderboard"));
+		rankingButton.addActionListener(e -> {
+			getLeaderBoard();
+			changeToPage("leaderboard");
+		});
 		rankingButton.setPreferredSize(new Dimension(5*buttonUnit, buttonUnit));
 		menuButtons.add(rankingButton, gbc);
 		
@@ -234,6 +426,8 @@ public class TetrisApp extends JFrame {
 		// weight is larger than the top spacer, so the menu is above the exact middle
 		gbc.weighty = 1;
 		menuButtons.add(Box.createRigidArea(new Dimension()), gbc);
+
+		menuItems = List.of(title, startButton, rankingButton, exitButton);
 		
 		add(menuButtons, "menu");
 	}
@@ -249,42 +443,132 @@ public class TetrisApp extends JFrame {
 	}
 
 	/**
-	 * Creates the leaderboard screen with the LeaderBoardPanel that displays the leaderboard,
-	 * and adds it to the layout manager.
+	 * Returns the LeaderBoardPanel, creating the leaderboard screen and importing the scores if this is the first time it is needed.
+	 * @return the LeaderBoardPanel that displays the leaderboard
+	 */
+	private LeaderBoardPanel getLeaderBoard() {
+		if (leaderBoard == null) {
+			leaderBoard = new LeaderBoardPanel(this);
+			leaderBoard.setPreferredSize(getSize());
+			leaderBoard.importScores("localScores.json");
+			add(leaderBoard, "leaderboard");
+		}
+		return leaderBoard;
+	}
+
+	/**
+	 * Starts loading the app icon and the title image in the background, and sets them once they are loaded.
 	 */
-	private void makeLeaderBoard() {
-		leaderBoard = new LeaderBoardPanel(this);
-		leaderBoard.setPreferredSize(getSize());
-		leaderBoard.importScores("localScores.json");
-		add(leaderBoard, "leaderboard");
+	private void loadImages() {
+		CompletableFuture.supplyAsync(() -> {
+			try {
+				return ImageIO.read(new File("asset/icon.png"));
+			} catch (Exception e) {
+				System.err.println("Error loading app icon");
+				return null;
+			}
+		}, assetLoader).thenAcceptAsync(icon -> {
+			if (icon != null) setIconImage(icon);
+		}, SwingUtilities::invokeLater);
+
+		CompletableFuture.supplyAsync(() -> {
+			try {
+				return ImageIO.read(new File("asset/title.png"));
+			} catch (Exception e) {
+				System.err.println("Error loading title image");
+				return null;
+			}
+		}, assetLoader).thenAcceptAsync(image -> {
+			titleImage = image;
+			scaleTitle();
+		}, SwingUtilities::invokeLater);
 	}
 
 	/**
-	 * Initializes the sounds used in the app.
+	 * Plays the sound effect with the given index, if the effects are loaded.
+	 * Safe to call from any thread, as it never blocks.
+	 * @param sound the index of the sound effect, one of the SOUND constants
 	 */
-	private void initSounds() {
-		try {
-			menuSong = AudioSystem.getClip();
-			menuSong.open(AudioSystem.getAudioInputStream(new File("asset/menu.wav")));
+	public void playSound(int sound) {
+		SoundMixer mixer = effects == null ? null : effects.getNow(null);
+		if (mixer != null) mixer.trigger(sound);
+	}
 
-			gameSong = AudioSystem.getClip();
-			gameSong.open(AudioSystem.getAudioInputStream(new File("asset/ingame.wav")));
+	/**
+	 * Starts loading the sound effects into a SoundMixer in the background, and reports how long it took if STARTUP_TIMES is set.
+	 * The files are in the order of the SOUND constants, and the ones that do not exist are skipped by the mixer.
+	 * @return the SoundMixer once it is loaded, or null if no sound can be played
+	 */
+	private CompletableFuture<SoundMixer> loadEffects() {
+		return CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+			try {
+				SoundMixer mixer = new SoundMixer("asset/rotate.wav", "asset/drop.wav", "asset/clear.wav", "asset/gameover.wav");
+				if (STARTUP_TIMES) System.out.printf("Loaded sound effects in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+				return mixer;
+			} catch (Exception e) {
+				System.err.println("Error initializing sound effects");
+				return null;
+			}
+		}, assetLoader);
+	}
 
-			failSound = AudioSystem.getClip();
-			failSound.open(AudioSystem.getAudioInputStream(new File("asset/gameover.wav")));
-		} catch (Exception e) {
-			System.err.println("Error initializing music");
-		}
+	/**
+	 * Starts opening the song in the given file in the background.
+	 * @param filename the name of the sound file
+	 * @return the StreamingSong once it is opened, or null if it could not be opened
+	 */
+	private CompletableFuture<StreamingSong> loadSong(String filename) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return new StreamingSong(filename);
+			} catch (Exception e) {
+				System.err.println("Error loading " + filename);
+				return null;
+			}
+		}, assetLoader);
+	}
+
+	/**
+	 * Stops the current song, and starts looping the given song from the beginning once it is opened.
+	 * If another song is started before this one is opened, this one is not played.
+	 * @param song the song to play
+	 */
+	private void playSong(CompletableFuture<StreamingSong> song) {
+		stopSong();
+		currentSong = song;
+		song.thenAcceptAsync(s -> {
+			if (s != null && currentSong == song) s.play();
+		}, SwingUtilities::invokeLater);
 	}
 
 	/**
-	 * Stops (and frees resources for) the music clips, saves the leaderboard to a file, and exits the app.
+	 * Stops the current song if it is opened and playing.
+	 */
+	private void stopSong() {
+		if (currentSong == null) return;
+		StreamingSong s = currentSong.getNow(null);
+		if (s != null && s.isPlaying()) s.stop();
+		currentSong = null;
+	}
+
+	/**
+	 * Stops (and frees resources for) the songs and the sound effects that were loaded, waits for the scores being verified
+	 * and saves the leaderboard to a file if it was loaded,
+	 * stops exporting the metrics, and exits the app.
 	 */
 	private void close() {
-		menuSong.close();
-		gameSong.close();
-		failSound.close();
-		leaderBoard.exportScores("localScores.json");
+		for (CompletableFuture<StreamingSong> song : Arrays.asList(menuSong, gameSong)) {
+			StreamingSong s = song == null ? null : song.getNow(null);
+			if (s != null) s.close();
+		}
+		SoundMixer mixer = effects == null ? null : effects.getNow(null);
+		if (mixer != null) mixer.close();
+		if (leaderBoard != null) {
+			leaderBoard.close();
+			leaderBoard.exportScores("localScores.json");
+		}
+		metrics.close();
 		System.exit(0);
 	}
 }
@@ -1,19 +1,87 @@
 package gui;
 
+import tetris.Board;
+import tetris.GameEventBus;
+import tetris.InputController;
+import tetris.InputQueue;
+import tetris.Randomizer;
+import tetris.Replay;
 import tetris.Tetris;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 import javax.swing.border.*;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import metrics.GameEvents;
+import metrics.Metrics;
 
 /**
  * The TetrisPanel class is responsible for interfacing between the game and the user.
  * It runs the game itself through a Tetris object and collects inputs from the player.
  */
 public class TetrisPanel extends JPanel implements ActionListener {
+	/**
+	 * The length of a tick of the game loop in milliseconds, the length of a tick of the clock of the game, about 60 ticks per second.
+	 * Inputs, auto-repeat, gravity and lock delay are all processed once per tick.
+	 */
+	private static final int TICK_MILLIS = Tetris.TICK_MILLIS;
+
+	/**
+	 * The most ticks of the game run at once to catch up with the clock, when the timer fires late.
+	 * If the game falls further behind, the rest of the ticks are skipped instead of rushing the game forward.
+	 */
+	private static final int MAX_CATCH_UP_TICKS = 4;
+
+	/**
+	 * The delayed auto-shift and the auto-repeat rate of holding left or right, in ticks.
+	 * Can be configured with the tetris.das and tetris.arr system properties.
+	 */
+	private static final int DAS = Integer.getInteger("tetris.das", 10), ARR = Integer.getInteger("tetris.arr", 2);
+
+	/**
+	 * The width and the visible height of the board, which can be changed with the tetris.boardWidth and tetris.boardHeight properties,
+	 * from 4 up to Board.MAX_WIDTH and Board.MAX_HEIGHT.
+	 */
+	private static final int BOARD_WIDTH = Integer.getInteger("tetris.boardWidth", Board.DEFAULT_WIDTH),
+			BOARD_HEIGHT = Integer.getInteger("tetris.boardHeight", Board.DEFAULT_HEIGHT);
+
+	/**
+	 * The kind of randomizer that deals the pieces, which can be changed with the tetris.randomizer property,
+	 * to BAG_7, BAG_14, HISTORY or RANDOM.
+	 */
+	private static final Randomizer.Type RANDOMIZER = Randomizer.Type.valueOf(System.getProperty("tetris.randomizer", "BAG_7"));
+
+	/**
+	 * The number of upcoming pieces shown next to the board, which can be changed with the tetris.preview property, from 1 to Tetris.PREVIEW_SIZE.
+	 */
+	private static final int PREVIEW_COUNT = Math.max(1, Math.min(Tetris.PREVIEW_SIZE, Integer.getInteger("tetris.preview", 1)));
+
+	/**
+	 * Whether the board is drawn by a dedicated render thread onto a Canvas with a BufferStrategy,
+	 * instead of being repainted by Swing. Enabled with the tetris.activeRendering system property.
+	 */
+	private static final boolean ACTIVE_RENDERING = Boolean.getBoolean("tetris.activeRendering");
+
+	/**
+	 * The size of each cell in the default window size, which the sizes of the fonts are designed for.
+	 * The fonts are scaled by the ratio of the actual size of a cell to this.
+	 */
+	private static final float DEFAULT_SQUARE_SIZE = 36;
+
+	/**
+	 * The number of cells of width the info panel takes up next to the board.
+	 */
+	private static final int INFO_WIDTH = 6;
+
 	/**
 	 * The TetrisApp parent object that this panel is a part of.
 	 */
@@ -24,21 +92,86 @@ public class TetrisPanel extends JPanel implements ActionListener {
 	 */
 	private Tetris tetris;
 
+	/**
+	 * The lock held while the game is changed or drawn, so the render thread of active rendering never draws a half-made move.
+	 */
+	private Object gameLock;
+
 	/**
 	 * The size of each cell in the game board, also used to size other labels and panels.
-	 * Calculated based on the size of the frame and the size of the game board.
+	 * Calculated based on the size of the frame and the size of the game board, whenever the game is laid out.
+	 * Read by the render thread of active rendering.
 	 */
-	private int squareSize;
+	private volatile int squareSize;
 
 	/**
-	 * The timer that controls the speed of the game.
+	 * The timer that runs the ticks of the game loop.
 	 */
 	private Timer timer;
 
+	/**
+	 * The queue the key listener puts the inputs into, to be applied by the game loop.
+	 */
+	private InputQueue inputs;
+
+	/**
+	 * The controller that applies the inputs to the game each tick, handling auto-repeat.
+	 */
+	private InputController controller;
+
+	/**
+	 * The time of the System.nanoTime() clock the next tick of the game is due at.
+	 * The Swing timer only wakes the game loop up, the ticks that are due are counted on this clock,
+	 * so the game runs at the same speed even if the timer fires late or coalesces its events.
+	 */
+	private long nextTick;
+
+	/**
+	 * The background of the board panel, with the empty grid of the board and the area hiding the lines above it,
+	 * drawn once and copied onto every frame. Drawn again if the size of the panel or of the cells changes.
+	 */
+	private volatile BufferedImage boardBackground;
+
+	/**
+	 * The size of each cell the board background was drawn with.
+	 */
+	private volatile int backgroundSquareSize;
+
+	/**
+	 * The overlay measuring and showing the frame times, tick jitter, input latency and garbage collection pauses.
+	 */
+	private PerformanceOverlay overlay;
+
+	/**
+	 * The time of the earliest input applied since the last frame was drawn, in milliseconds, or 0 if there was none.
+	 * Set by the game loop and cleared by whichever thread draws the next frame.
+	 */
+	private AtomicLong unpaintedInput;
+
 	/**
 	 * Labels that display the current score, total lines cleared, lines until next level, and current level.
 	 */
 	private JLabel score, linesTotal, linesRemaining, level;
+
+	/**
+	 * The bus the game publishes its events to, which the labels, sounds and statistics of this panel subscribe to.
+	 */
+	private GameEventBus events;
+
+	/**
+	 * The component drawing the board, the panel drawing the next pieces, and the panel drawing the held piece.
+	 */
+	private Component boardPanel, nextPanel, holdPanel;
+
+	/**
+	 * The sprites of the 7 shapes shown by the preview panels, indexed by the ordinal of the shape, or null if the shape was not drawn yet.
+	 */
+	private BufferedImage[] pieceSprites = new BufferedImage[7];
+
+	/**
+	 * The size of each cell the piece sprites were drawn with.
+	 */
+	private int spriteSquareSize;
 	
 	/**
 	 * Constructs a new TetrisPanel with the given parent TetrisApp.
@@ -46,7 +179,15 @@ public class TetrisPanel extends JPanel implements ActionListener {
 	 */
 	public TetrisPanel(TetrisApp p) {
 		frame = p;
-		tetris = new Tetris();
+		tetris = new Tetris(new Random().nextLong(), BOARD_WIDTH, BOARD_HEIGHT, RANDOMIZER);
+		gameLock = new Object();
+		inputs = new InputQueue(64);
+		controller = new InputController(inputs, DAS, ARR);
+		overlay = new PerformanceOverlay();
+		unpaintedInput = new AtomicLong();
+		events = new GameEventBus(64);
+		events.subscribe(this::onGameEvent);
+		tetris.setEventBus(events);
 		setFocusable(true);
 		setLayout(new BorderLayout());
 		setBackground(frame.getBackground());
@@ -55,42 +196,82 @@ public class TetrisPanel extends JPanel implements ActionListener {
 	}
 	
 	/**
-	 * Calculates squareSize and initializes the game board and info panels using it.
-	 * Starts the game timer and sets the focus to the panel to be able to receive key inputs.
-	 * The ActionListener for the timer is this panel itself.
+	 * Lays out the game board and info panels for the current size of the window.
+	 * Starts the game timer with a fixed tick, and sets the focus to the panel to be able to receive key inputs.
+	 * The ActionListener for the timer is this panel itself. Counts the started game in the Metrics.
 	 */
 	public void startGame() {
-		squareSize = Math.min((frame.getHeight() - frame.getInsets().top) / tetris.getBoardHeight(), frame.getWidth() / tetris.getBoardWidth());
+		layoutGame();
 
-		initBoardPanel();
-		initInfoPanel();
-
-		timer = new Timer(0, this);
+		nextTick = System.nanoTime();
+		timer = new Timer(TICK_MILLIS, this);
 		timer.start();
+		Metrics.GAMES_STARTED.increment();
 
 		requestFocusInWindow();
 	}
 	
 	/**
-	 * The main game loop that runs the game logic and updates the display.
-	 * Tries moving the current piece down, if moveDown() returns false, we know the game is over,
-	 * so it stops the timer and returns to the main menu with the TOPOUT flag.
-	 * Updates the timer delay and all the info labels with the current game state each tick.
-	 * Calls the repaint() method to make sure the board and next piece is updated.
+	 * Lays out the game again for a new size of the window, if the game has started.
+	 * Called once the window has stopped being resized, so the layout is not recalculated on every step of the resize.
+	 */
+	public void relayout() {
+		if (timer == null) return;
+		layoutGame();
+		revalidate();
+		repaint();
+		requestFocusInWindow();
+	}
+
+	/**
+	 * Calculates squareSize from the size of the window, so the board and the info panel next to it fit,
+	 * then initializes the game board and info panels using it, replacing the old ones.
+	 */
+	private void layoutGame() {
+		Container content = frame.getContentPane();
+		squareSize = Math.max(1, Math.min(content.getHeight() / tetris.getBoardHeight(), content.getWidth() / (tetris.getBoardWidth() + INFO_WIDTH)));
+
+		removeAll();
+		initBoardPanel();
+		initInfoPanel();
+	}
+
+	/**
+	 * The main game loop that runs the game logic and updates the display, whenever the timer fires.
+	 * Runs every tick of the game that is due by the high-resolution clock, up to MAX_CATCH_UP_TICKS at once.
+	 * Each tick applies the inputs received since the last tick, playing the sounds of rotations and drops,
+	 * then advances the clock of the game, which moves the piece down and locks it.
+	 * Then dispatches the events the game published during the tick, which update the labels, play the sounds and end the game.
+	 * Calls the repaint() method of the board to make sure it is updated,
+	 * with active rendering the board is drawn by its own thread instead.
+	 * The time the tick takes is recorded in the Metrics.
 	 */
 	@Override
 	public void actionPerformed(ActionEvent e) {
-		// false value means the game is over
-		if (!tetris.moveDown()) {
-			timer.stop();
-			frame.returnToMainMenu(TetrisApp.TOPOUT);
+		long start = System.nanoTime();
+		GameEvents.TickEvent event = new GameEvents.TickEvent();
+		event.begin();
+		event.interval = overlay.recordTick(start, TICK_MILLIS);
+		event.expectedInterval = TICK_MILLIS;
+
+		int applied = 0;
+		synchronized (gameLock) {
+			for (int due = 0; due < MAX_CATCH_UP_TICKS && start - nextTick >= 0; due++) {
+				applied |= controller.tick(tetris);
+				if (controller.getFirstInputTime() >= 0) unpaintedInput.compareAndSet(0, controller.getFirstInputTime());
+				tetris.tick();
+				nextTick += TICK_MILLIS * 1_000_000L;
+			}
+			if (start - nextTick >= 0) nextTick = start + TICK_MILLIS * 1_000_000L;
 		}
-		timer.setDelay(tetris.getDelayInMillis());
-		score.setText("<html><b>Score: " + tetris.getScore() + "</b></html>");
-		linesTotal.setText("<html><b>Lines cleared: " + tetris.getTotalLines() + "</b></html>");
-		linesRemaining.setText("<html><b>Lines until next level: " + tetris.getLinesToNextLevel() + "</b></html>");
-		level.setText("<html><b>Current level: " + tetris.getGameSpeed() + "</b></html>");
-		repaint();
+		if ((applied & (1 << Tetris.Action.ROTATE_LEFT.ordinal() | 1 << Tetris.Action.ROTATE_RIGHT.ordinal())) != 0) frame.playSound(TetrisApp.SOUND_ROTATE);
+		if ((applied & 1 << Tetris.Action.DROP.ordinal()) != 0) frame.playSound(TetrisApp.SOUND_DROP);
+		events.dispatch();
+		if (!ACTIVE_RENDERING) boardPanel.repaint();
+
+		event.level = tetris.getGameSpeed();
+		event.commit();
+		Metrics.TICK_TIME.record(System.nanoTime() - start);
 	}
 
 	/**
@@ -101,11 +282,131 @@ public class TetrisPanel extends JPanel implements ActionListener {
 		return tetris.getScore();
 	}
 
+	/**
+	 * Returns the replay of the game, which proves the end results.
+	 * @return the replay of the game
+	 */
+	public Replay getReplay() {
+		return tetris.getReplay();
+	}
+
+	/**
+	 * Reacts to an event of the game, dispatched on the game loop after the tick that caused it.
+	 * Spawning a piece repaints the next and held pieces, clearing lines plays its sound, records a flight recorder event and updates the line counts,
+	 * a change of score or level updates its label, and topping out stops the timer and returns to the main menu with the TOPOUT flag.
+	 * @param event the type of the event
+	 * @param value the value of the event
+	 */
+	private void onGameEvent(Tetris.Event event, int value) {
+		switch (event) {
+		case PIECE_SPAWNED -> {
+			nextPanel.repaint();
+			holdPanel.repaint();
+		}
+		case LINES_CLEARED -> {
+			GameEvents.LineClearEvent jfrEvent = new GameEvents.LineClearEvent();
+			jfrEvent.lines = value;
+			jfrEvent.totalLines = tetris.getTotalLines();
+			jfrEvent.level = tetris.getGameSpeed();
+			jfrEvent.commit();
+			frame.playSound(TetrisApp.SOUND_CLEAR);
+			updateLineLabels();
+		}
+		case SCORE_CHANGED -> score.setText("<html><b>Score: " + value + "</b></html>");
+		case LEVEL_UP -> {
+			level.setText("<html><b>Current level: " + value + "</b></html>");
+			updateLineLabels();
+		}
+		case TOP_OUT -> {
+			timer.stop();
+			frame.returnToMainMenu(TetrisApp.TOPOUT);
+		}
+		default -> { }
+		}
+	}
+
+	/**
+	 * Updates the labels of the total lines cleared and the lines until the next level.
+	 */
+	private void updateLineLabels() {
+		linesTotal.setText("<html><b>Lines cleared: " + tetris.getTotalLines() + "</b></html>");
+		linesRemaining.setText("<html><b>Lines until next level: " + tetris.getLinesToNextLevel() + "</b></html>");
+	}
+
+	/**
+	 * Draws the game board and falling piece onto the given component, with the y-axis flipped, so the bottom row of the board is at the bottom.
+	 * Copies the cached background first, then draws only the filled cells and the pieces over it,
+	 * clipped to the visible lines to hide pieces falling in from the hidden lines above the board.
+	 * Draws the performance overlay on top, and records the frame for it, for the Metrics and for the flight recorder,
+	 * along with the latency of the earliest input shown for the first time in this frame.
+	 * @param g the Graphics object to draw on
+	 * @param c the component the board is drawn on
+	 */
+	private void paintBoard(Graphics g, Component c) {
+		long start = System.nanoTime();
+		GameEvents.PaintEvent event = new GameEvents.PaintEvent();
+		event.begin();
+		g.drawImage(getBoardBackground(c), 0, 0, null);
+
+		Graphics2D g2d = (Graphics2D) g.create();
+		// flip the y-axis to draw the board correctly
+		g2d.translate(0, c.getHeight());
+		g2d.scale(1, -1);
+		g2d.clipRect(0, 0, tetris.getBoardWidth() * squareSize, tetris.getBoardHeight() * squareSize);
+		synchronized (gameLock) {
+			tetris.drawTetris(g2d, squareSize);
+		}
+		g2d.dispose();
+		overlay.draw(g, squareSize);
+
+		long end = System.nanoTime();
+		Metrics.PAINT_TIME.record(end - start);
+		overlay.recordFrame(end);
+		long input = unpaintedInput.getAndSet(0);
+		if (input != 0) {
+			long latency = System.currentTimeMillis() - input;
+			overlay.recordInputLatency(latency);
+			GameEvents.InputEvent inputEvent = new GameEvents.InputEvent();
+			inputEvent.latency = latency;
+			inputEvent.commit();
+		}
+		event.active = c instanceof Canvas;
+		event.commit();
+	}
+
+	/**
+	 * Returns the background of the board for the given component, drawing it first if it was not drawn yet,
+	 * or if the component or the cells were resized.
+	 * The image is compatible with the screen of the component, so copying it is as fast as possible.
+	 * @param c the component the board is drawn on
+	 * @return the background of the board
+	 */
+	private BufferedImage getBoardBackground(Component c) {
+		int width = Math.max(1, c.getWidth()), height = Math.max(1, c.getHeight());
+		BufferedImage cached = boardBackground;
+		if (cached != null && cached.getWidth() == width && cached.getHeight() == height && backgroundSquareSize == squareSize) return cached;
+
+		GraphicsConfiguration gc = c.getGraphicsConfiguration();
+		BufferedImage image = gc != null ? gc.createCompatibleImage(width, height) : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = image.createGraphics();
+		g2d.setColor(c.getBackground());
+		g2d.fillRect(0, 0, width, height);
+		g2d.translate(0, height);
+		g2d.scale(1, -1);
+		int size = squareSize;
+		tetris.drawBackground(g2d, size);
+		g2d.dispose();
+		backgroundSquareSize = size;
+		boardBackground = image;
+		return image;
+	}
+
 	/**
 	 * Initializes the game board panel and positions it on the left side of the panel.
+	 * With active rendering, the board is a BoardCanvas drawn by its own thread, otherwise it is a BoardPanel painted by Swing.
 	 */
 	private void initBoardPanel() {
-		BoardPanel boardPanel = new BoardPanel();
+		boardPanel = ACTIVE_RENDERING ? new BoardCanvas() : new BoardPanel();
 		boardPanel.setPreferredSize(new Dimension(tetris.getBoardWidth() * squareSize, tetris.getBoardHeight() * squareSize));
 		boardPanel.setBackground(getBackground());
 		add(boardPanel, BorderLayout.WEST);
@@ -135,26 +436,31 @@ public class TetrisPanel extends JPanel implements ActionListener {
 		linesRemaining = new JLabel("", SwingConstants.CENTER);
 		level = new JLabel("", SwingConstants.CENTER);
 
-		// create border for labels
+		// create border for labels, and scale the font with the size of the cells
 		int bw = Math.floorDiv(squareSize, 10);
 		MatteBorder mb = BorderFactory.createMatteBorder(bw, bw, 3*bw, bw, TetrisApp.TEXT_COLOR);
+		Font font = score.getFont().deriveFont(score.getFont().getSize2D() * squareSize / DEFAULT_SQUARE_SIZE);
 
-		// set preferred size and border for each label
+		// set preferred size, border and font for each label
 		for (JLabel label : List.of(score, linesTotal, linesRemaining, level)){
 			label.setPreferredSize(new Dimension(4*squareSize, 3*squareSize/2));
 			label.setBorder(mb);
+			label.setFont(font);
 			infoPanel.add(label, gbc);
 		}
 
-		// add a panel for the next piece, with a titled border and larger weightY to take up more vertical space
+		// set the starting text of the labels, from now on they are only updated when the game publishes a change
+		score.setText("<html><b>Score: " + tetris.getScore() + "</b></html>");
+		level.setText("<html><b>Current level: " + tetris.getGameSpeed() + "</b></html>");
+		updateLineLabels();
+
+		// add panels for the next pieces and the held piece, with titled borders and larger weightY to take up more vertical space
 		gbc.weighty = 10;
-		NextPiecePanel next = new NextPiecePanel();
-		next.setBackground(new Color(0,0,0,0));
-		TitledBorder tb = BorderFactory.createTitledBorder(mb, "<html><b>Next Piece:</b></html>");
-		tb.setTitleColor(TetrisApp.TEXT_COLOR);
-		next.setBorder(tb);
-		next.setPreferredSize(new Dimension(5*squareSize, 5*squareSize));
-		infoPanel.add(next, gbc);
+		nextPanel = createPreviewPanel(new PiecePreviewPanel(false), PREVIEW_COUNT == 1 ? "Next Piece:" : "Next Pieces:", mb, font);
+		infoPanel.add(nextPanel, gbc);
+		gbc.weighty = 5;
+		holdPanel = createPreviewPanel(new PiecePreviewPanel(true), "Hold:", mb, font);
+		infoPanel.add(holdPanel, gbc);
 
 		// add rigid area to push the back button to the bottom
 		infoPanel.add(Box.createRigidArea(new Dimension()), gbc);
@@ -168,66 +474,260 @@ public class TetrisPanel extends JPanel implements ActionListener {
 			frame.returnToMainMenu(TetrisApp.QUIT_FROM_GAME);
 		});
 		backButton.setPreferredSize(new Dimension(4*squareSize, 3*squareSize/2));
+		backButton.setFont(font);
 		infoPanel.add(backButton, gbc);
 
 		add(infoPanel, BorderLayout.EAST);
 	}
 	
+	/**
+	 * Sets up the given preview panel with a transparent background and a titled border, and sizes it for its pieces.
+	 * @param panel the panel to set up
+	 * @param title the title of the border
+	 * @param border the border around the title
+	 * @param font the font of the title
+	 * @return the panel
+	 */
+	private PiecePreviewPanel createPreviewPanel(PiecePreviewPanel panel, String title, Border border, Font font) {
+		panel.setBackground(new Color(0,0,0,0));
+		TitledBorder tb = BorderFactory.createTitledBorder(border, "<html><b>" + title + "</b></html>");
+		tb.setTitleColor(TetrisApp.TEXT_COLOR);
+		tb.setTitleFont(font);
+		panel.setBorder(tb);
+		panel.setPreferredSize(new Dimension(5*squareSize, (3*panel.getSlots() + 2)*squareSize));
+		return panel;
+	}
+
+	/**
+	 * Returns the sprite of the given shape for the given component, drawing it first if it was not drawn yet with the current size of the cells.
+	 * The sprite is 5 squares wide and 3 squares tall, with the piece centered in it and a transparent background.
+	 * @param c the component the sprite is drawn on
+	 * @param shape the ordinal of the shape
+	 * @return the sprite of the shape
+	 */
+	private BufferedImage getPieceSprite(Component c, int shape) {
+		if (spriteSquareSize != squareSize) {
+			Arrays.fill(pieceSprites, null);
+			spriteSquareSize = squareSize;
+		}
+		if (pieceSprites[shape] != null) return pieceSprites[shape];
+		GraphicsConfiguration gc = c.getGraphicsConfiguration();
+		int width = 5*squareSize, height = 3*squareSize;
+		BufferedImage image = gc != null ? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+				: new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = image.createGraphics();
+		// flip the y-axis to draw the piece correctly
+		g2d.translate(0, height);
+		g2d.scale(1, -1);
+		Tetris.drawPreviewShape(g2d, shape, squareSize);
+		g2d.dispose();
+		pieceSprites[shape] = image;
+		return image;
+	}
+
 	/**
 	 * The TetrisListener class is responsible for listening to key inputs from the player.
-	 * It listens for the arrow keys to move the piece left and right, the A and D keys to rotate the piece,
-	 * and the space key to drop the piece to the bottom of the board.
-	 * Each key press calls the corresponding method in the Tetris object and repaints the panel,
-	 * so the movements feel responsive and not delayed.
+	 * It listens for the arrow keys to move the piece left, right and down, the A and D keys to rotate the piece,
+	 * the space key to drop the piece to the bottom of the board, and the C or shift key to hold the piece.
+	 * Key presses and releases are not applied to the game directly, they are timestamped and put into the input queue,
+	 * which the game loop reads on its next tick, so holding a key repeats at the configured rate instead of the system's.
+	 * The F3 key toggles the performance overlay.
 	 */
 	private class TetrisListener extends KeyAdapter {
 		@Override
 		public void keyPressed(KeyEvent e) {
-			switch(e.getKeyCode()) {
-			case KeyEvent.VK_LEFT -> tetris.moveLeft();
-			case KeyEvent.VK_RIGHT -> tetris.moveRight();
-			case KeyEvent.VK_A -> tetris.rotateLeft();
-			case KeyEvent.VK_D -> tetris.rotateRight();
-			case KeyEvent.VK_SPACE -> tetris.drop();
-			}
-			repaint();
+			if (e.getKeyCode() == KeyEvent.VK_F3) overlay.toggle();
+			Tetris.Action button = toButton(e.getKeyCode());
+			if (button != null) inputs.offer(button, true, e.getWhen());
+		}
+
+		@Override
+		public void keyReleased(KeyEvent e) {
+			Tetris.Action button = toButton(e.getKeyCode());
+			if (button != null) inputs.offer(button, false, e.getWhen());
+		}
+
+		/**
+		 * Returns the button of the game the given key is bound to.
+		 * @param keyCode the code of the key
+		 * @return the action of the button, or null if the key is not bound
+		 */
+		private Tetris.Action toButton(int keyCode) {
+			return switch(keyCode) {
+			case KeyEvent.VK_LEFT -> Tetris.Action.LEFT;
+			case KeyEvent.VK_RIGHT -> Tetris.Action.RIGHT;
+			case KeyEvent.VK_DOWN -> Tetris.Action.SOFT_DROP;
+			case KeyEvent.VK_A -> Tetris.Action.ROTATE_LEFT;
+			case KeyEvent.VK_D -> Tetris.Action.ROTATE_RIGHT;
+			case KeyEvent.VK_SPACE -> Tetris.Action.DROP;
+			case KeyEvent.VK_C, KeyEvent.VK_SHIFT -> Tetris.Action.HOLD;
+			default -> null;
+			};
 		}
 	}
 
 	/**
-	 * The NextPiecePanel class is responsible for displaying the next piece to be played.
-	 * It draws the next piece in the center of the panel, scaled to fit the panel size.
-	 * Ideal size for the panel is 5x5 squares, so the piece is drawn in the center of the panel.
+	 * The PiecePreviewPanel class is responsible for displaying either the next pieces to be played, from the preview queue of the game,
+	 * or the piece in the hold slot. Each piece is drawn in a slot 5 squares wide and 3 squares tall, and the slots are stacked in the center of the panel.
+	 * Ideal size for the panel is 5 squares wide and 3 squares tall for each piece, plus a square above and below.
+	 * The pieces are copied from sprites drawn once for every shape, and drawn again only if the size of the cells changes.
 	 */
-	private class NextPiecePanel extends JPanel {
+	private class PiecePreviewPanel extends JPanel {
+		/**
+		 * Whether the panel shows the hold slot instead of the preview queue.
+		 */
+		private boolean hold;
+
+		/**
+		 * Constructs a new PiecePreviewPanel showing the hold slot or the preview queue.
+		 * @param hold true to show the hold slot, false to show the preview queue
+		 */
+		public PiecePreviewPanel(boolean hold) {
+			this.hold = hold;
+		}
+
+		/**
+		 * Returns the number of pieces the panel shows.
+		 * @return 1 for the hold slot, PREVIEW_COUNT for the preview queue
+		 */
+		public int getSlots() {
+			return hold ? 1 : PREVIEW_COUNT;
+		}
+
 		@Override
 		public void paintComponent(Graphics g){
 			super.paintComponent(g);
-			Graphics2D g2d = (Graphics2D) g.create();
-			// flip the y-axis to draw the piece correctly
-			g2d.translate(0, this.getHeight());
-			g2d.scale(1, -1);
-			tetris.drawNextPiece(g2d, squareSize);
+			int slots = getSlots();
+			int top = (getHeight() - 3*slots*squareSize) / 2;
+			synchronized (gameLock) {
+				for (int i = 0; i < slots; i++) {
+					int shape = hold ? tetris.getHeldShape() : tetris.getPreviewShape(i);
+					if (shape >= 0) g.drawImage(getPieceSprite(this, shape), 0, top + 3*i*squareSize, null);
+				}
+			}
 		}
 	}
 
 	/**
-	 * The BoardPanel class is responsible for displaying the game board and falling piece.
-	 * It also draws a background-colored rectangle to hide pieces falling in from the hidden lines above the board.
+	 * The BoardPanel class is responsible for displaying the game board and falling piece, when it is repainted by Swing.
 	 */
 	private class BoardPanel extends JPanel {
 		@Override
 		public void paintComponent(Graphics g) {
-			super.paintComponent(g);
-			Graphics2D g2d = (Graphics2D) g.create();
-			// flip the y-axis to draw the board correctly
-			g2d.translate(0, this.getHeight());
-			g2d.scale(1, -1);
-			tetris.drawTetris(g2d, squareSize);
-			
-			// draw a background-colored rectangle to hide pieces falling in from the hidden lines above the board
-			g2d.setColor(getBackground());
-			g2d.fillRect(0, tetris.getBoardHeight()*squareSize, tetris.getBoardWidth() * squareSize, getHeight() - tetris.getBoardHeight()*squareSize);
+			// the background of the board covers the whole panel, so the panel's own background is not painted
+			paintBoard(g, this);
+		}
+	}
+
+	/**
+	 * The BoardCanvas class displays the game board and falling piece with active rendering.
+	 * A render thread draws every frame into the back buffer of a BufferStrategy, using page flipping when the system supports it,
+	 * and shows it at the refresh rate of the display, or at the rate set by the tetris.fps system property.
+	 * Frames are paced by the render thread instead of by the coalescing of Swing's repaints.
+	 */
+	private class BoardCanvas extends Canvas {
+		/**
+		 * Whether the render thread should keep running, cleared when the canvas is removed.
+		 */
+		private volatile boolean rendering;
+
+		/**
+		 * The thread drawing the frames.
+		 */
+		private Thread renderThread;
+
+		/**
+		 * Constructs a new BoardCanvas, which does not take the focus away from the keys of the game.
+		 */
+		public BoardCanvas() {
+			setFocusable(false);
+			setIgnoreRepaint(true);
+		}
+
+		/**
+		 * Creates the buffer strategy once the canvas is displayable, and starts the render thread.
+		 * Page flipping is requested first, falling back to whatever double buffering the system provides.
+		 */
+		@Override
+		public void addNotify() {
+			super.addNotify();
+			try {
+				createBufferStrategy(2, new BufferCapabilities(new ImageCapabilities(true), new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED));
+			} catch (AWTException e) {
+				createBufferStrategy(2);
+			}
+			rendering = true;
+			renderThread = new Thread(this::renderLoop, "render");
+			renderThread.setDaemon(true);
+			renderThread.start();
+		}
+
+		/**
+		 * Stops the render thread before the canvas and its buffers are disposed.
+		 */
+		@Override
+		public void removeNotify() {
+			rendering = false;
+			try {
+				renderThread.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.removeNotify();
+		}
+
+		@Override
+		public void paint(Graphics g) {
+			// the frames are drawn by the render thread
+		}
+
+		@Override
+		public void update(Graphics g) {
+			// the frames are drawn by the render thread
+		}
+
+		/**
+		 * The loop of the render thread. Draws a frame, then waits until the next one is due, without trying to catch up on missed frames.
+		 */
+		private void renderLoop() {
+			long period = 1_000_000_000L / getFramesPerSecond();
+			long next = System.nanoTime();
+			while (rendering) {
+				render();
+				next += period;
+				long sleep = next - System.nanoTime();
+				if (sleep > 0) LockSupport.parkNanos(sleep);
+				else next = System.nanoTime();
+			}
+		}
+
+		/**
+		 * Draws a frame into the back buffer and shows it, drawing it again if the contents of the buffers were lost.
+		 */
+		private void render() {
+			BufferStrategy strategy = getBufferStrategy();
+			do {
+				do {
+					Graphics g = strategy.getDrawGraphics();
+					paintBoard(g, this);
+					g.dispose();
+				} while (strategy.contentsRestored());
+				strategy.show();
+			} while (strategy.contentsLost());
+			// flush the drawing to the display now, instead of whenever the system decides to
+			Toolkit.getDefaultToolkit().sync();
+		}
+
+		/**
+		 * Returns the number of frames to draw per second, which is the tetris.fps system property if it is set,
+		 * or the refresh rate of the display the canvas is on, or 60 if that is unknown.
+		 * @return the number of frames per second
+		 */
+		private int getFramesPerSecond() {
+			int fps = Integer.getInteger("tetris.fps", 0);
+			if (fps > 0) return fps;
+			int refreshRate = getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+			return refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN ? refreshRate : 60;
 		}
 	}
 }
@@ -0,0 +1,128 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The GameEvents class holds the custom JDK Flight Recorder events of the game.
+ * They are recorded when the game runs with a flight recording, for example with -XX:StartFlightRecording,
+ * and cost next to nothing otherwise. Every event is in the Tetris category, so they can be found together in a recording.
+ */
+public final class GameEvents {
+	/**
+	 * Private constructor, the class only holds the event classes.
+	 */
+	private GameEvents() {}
+
+	/**
+	 * The TickEvent class covers one tick of the game loop, from applying the inputs to updating the labels.
+	 */
+	@Name("tetris.Tick")
+	@Label("Game Tick")
+	@Category("Tetris")
+	@StackTrace(false)
+	public static class TickEvent extends Event {
+		/**
+		 * The time since the previous tick started.
+		 */
+		@Label("Interval")
+		@Timespan(Timespan.NANOSECONDS)
+		public long interval;
+
+		/**
+		 * The time the tick was expected to start after the previous tick.
+		 */
+		@Label("Expected Interval")
+		@Timespan(Timespan.MILLISECONDS)
+		public long expectedInterval;
+
+		/**
+		 * The level of the game during the tick.
+		 */
+		@Label("Level")
+		public int level;
+	}
+
+	/**
+	 * The PaintEvent class covers drawing one frame of the board.
+	 */
+	@Name("tetris.Paint")
+	@Label("Board Paint")
+	@Category("Tetris")
+	@StackTrace(false)
+	public static class PaintEvent extends Event {
+		/**
+		 * Whether the frame was drawn by the render thread of active rendering, instead of by Swing.
+		 */
+		@Label("Active Rendering")
+		public boolean active;
+	}
+
+	/**
+	 * The InputEvent class is recorded when the first frame showing the result of an input is drawn.
+	 */
+	@Name("tetris.Input")
+	@Label("Input Latency")
+	@Category("Tetris")
+	@StackTrace(false)
+	public static class InputEvent extends Event {
+		/**
+		 * The time from the key event to the end of drawing the frame.
+		 */
+		@Label("Key to Pixel")
+		@Timespan(Timespan.MILLISECONDS)
+		public long latency;
+	}
+
+	/**
+	 * The LineClearEvent class is recorded when lines are cleared.
+	 */
+	@Name("tetris.LineClear")
+	@Label("Line Clear")
+	@Category("Tetris")
+	@StackTrace(false)
+	public static class LineClearEvent extends Event {
+		/**
+		 * The number of lines cleared at once.
+		 */
+		@Label("Lines")
+		public int lines;
+
+		/**
+		 * The total number of lines cleared in the game so far.
+		 */
+		@Label("Total Lines")
+		public int totalLines;
+
+		/**
+		 * The level of the game after the lines were cleared.
+		 */
+		@Label("Level")
+		public int level;
+	}
+
+	/**
+	 * The LeaderBoardEvent class covers reading or writing the leaderboard file.
+	 */
+	@Name("tetris.LeaderBoardIO")
+	@Label("Leaderboard I/O")
+	@Category("Tetris")
+	public static class LeaderBoardEvent extends Event {
+		/**
+		 * The name of the file.
+		 */
+		@Label("File")
+		public String file;
+
+		/**
+		 * Whether the file was written, or read.
+		 */
+		@Label("Write")
+		public boolean write;
+
+		/**
+		 * The number of high scores read or written.
+		 */
+		@Label("Entries")
+		public int entries;
+	}
+}
@@ -0,0 +1,165 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class records durations into buckets with a fixed relative precision, like an HDR histogram.
+ * Values below 64 are counted exactly, above that every power of two is split into 32 buckets, so a recorded value
+ * is off by at most about 3% when read back. Values up to 2^40 are tracked, which is about 18 minutes in nanoseconds,
+ * larger values are counted in the last bucket.
+ * All the buckets are allocated up front, so recording never allocates, and it is safe to record from any thread.
+ */
+public class LatencyHistogram {
+	/**
+	 * The number of bits of precision below the highest bit of a value, every power of two has 2^SUB_BITS buckets.
+	 */
+	private static final int SUB_BITS = 5;
+
+	/**
+	 * The number of buckets every power of two is split into.
+	 */
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	/**
+	 * The number of bits of the largest value that is tracked exactly.
+	 */
+	private static final int MAX_BITS = 40;
+
+	/**
+	 * The number of values recorded in each bucket.
+	 */
+	private AtomicLongArray counts;
+
+	/**
+	 * The total number of values recorded.
+	 */
+	private AtomicLong total;
+
+	/**
+	 * The largest value recorded.
+	 */
+	private AtomicLong max;
+
+	/**
+	 * The sum of the values recorded.
+	 */
+	private AtomicLong sum;
+
+	/**
+	 * Constructs a new empty LatencyHistogram.
+	 */
+	public LatencyHistogram() {
+		counts = new AtomicLongArray(SUB_COUNT * (MAX_BITS - SUB_BITS + 1));
+		total = new AtomicLong();
+		max = new AtomicLong();
+		sum = new AtomicLong();
+	}
+
+	/**
+	 * Records a value, negative values are recorded as 0.
+	 * @param value the value to record
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts.incrementAndGet(indexOf(value));
+		total.incrementAndGet();
+		max.accumulateAndGet(value, Math::max);
+		sum.addAndGet(value);
+	}
+
+	/**
+	 * Returns the number of values recorded since the histogram was created or last reset.
+	 * @return the number of values
+	 */
+	public long getCount() {
+		return total.get();
+	}
+
+	/**
+	 * Returns the largest value recorded since the histogram was created or last reset.
+	 * @return the largest value, 0 if nothing was recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the sum of the values recorded since the histogram was created or last reset.
+	 * @return the sum of the values
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * Returns the number of recorded values that are at most the given value.
+	 * Values in the same bucket as the given value are all counted, so the count may include values slightly above it.
+	 * @param value the value to compare with
+	 * @return the number of values at most the given value
+	 */
+	public long getCountAtOrBelow(long value) {
+		if (value < 0) return 0;
+		int last = indexOf(value);
+		long count = 0;
+		for (int i = 0; i <= last; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the value at the given percentile, which is the highest value of the bucket that the percentile falls in,
+	 * but never more than the largest value recorded.
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the value at the percentile, 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long count = total.get();
+		if (count == 0) return 0;
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= target) return Math.min(highestEquivalentValue(i), max.get());
+		}
+		return max.get();
+	}
+
+	/**
+	 * Removes all recorded values. Values recorded by other threads while resetting may or may not be removed.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		total.set(0);
+		max.set(0);
+		sum.set(0);
+	}
+
+	/**
+	 * Returns the index of the bucket the given value is counted in.
+	 * @param value the value, not negative
+	 * @return the index of the bucket
+	 */
+	private int indexOf(long value) {
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		if (highestBit < SUB_BITS) return (int) value;
+		if (highestBit >= MAX_BITS) return counts.length() - 1;
+		return SUB_COUNT * (highestBit - SUB_BITS + 1) + (int) ((value >>> (highestBit - SUB_BITS)) & (SUB_COUNT - 1));
+	}
+
+	/**
+	 * Returns the highest value that is counted in the bucket with the given index.
+	 * @param index the index of the bucket
+	 * @return the highest value of the bucket
+	 */
+	private static long highestEquivalentValue(int index) {
+		if (index < SUB_COUNT) return index;
+		int highestBit = index / SUB_COUNT - 1 + SUB_BITS;
+		int shift = highestBit - SUB_BITS;
+		long lowest = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,110 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Metrics class holds the counters and histograms of the running game, which are exported for monitoring by MetricsExporter.
+ * Counters are LongAdders, which are striped across threads, so incrementing them from the game is about as cheap as incrementing a field.
+ * Histograms record durations in nanoseconds, and are exported in seconds.
+ * All values count up from the start of the app, which is what a monitoring system scraping them expects.
+ */
+public final class Metrics {
+	/**
+	 * The number of games started by a player.
+	 */
+	public static final LongAdder GAMES_STARTED = new LongAdder();
+
+	/**
+	 * The number of pieces placed in games played by a player.
+	 */
+	public static final LongAdder PIECES_PLACED = new LongAdder();
+
+	/**
+	 * The number of lines cleared in games played by a player.
+	 */
+	public static final LongAdder LINES_CLEARED = new LongAdder();
+
+	/**
+	 * The time it takes to run a tick of the game loop.
+	 */
+	public static final LatencyHistogram TICK_TIME = new LatencyHistogram();
+
+	/**
+	 * The time it takes to draw a frame of the board.
+	 */
+	public static final LatencyHistogram PAINT_TIME = new LatencyHistogram();
+
+	/**
+	 * The time it takes to save the leaderboard to its file.
+	 */
+	public static final LatencyHistogram LEADERBOARD_SAVE_TIME = new LatencyHistogram();
+
+	/**
+	 * The number of entries in the leaderboard.
+	 */
+	public static final AtomicLong LEADERBOARD_SIZE = new AtomicLong();
+
+	/**
+	 * The upper bounds of the buckets the histograms are exported with, in seconds, written the way they appear in the labels.
+	 */
+	private static final String[] BUCKETS = {"0.0005", "0.001", "0.0025", "0.005", "0.01", "0.016", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5"};
+
+	/**
+	 * Private constructor, the class only holds the metrics.
+	 */
+	private Metrics() {}
+
+	/**
+	 * Returns the current value of every metric in the Prometheus text exposition format.
+	 * @return the text of the metrics
+	 */
+	public static String scrape() {
+		StringBuilder out = new StringBuilder();
+		counter(out, "tetris_games_started_total", "Games started by a player.", GAMES_STARTED.sum());
+		counter(out, "tetris_pieces_placed_total", "Pieces placed in games played by a player.", PIECES_PLACED.sum());
+		counter(out, "tetris_lines_cleared_total", "Lines cleared in games played by a player.", LINES_CLEARED.sum());
+		histogram(out, "tetris_tick_seconds", "Time taken by a tick of the game loop.", TICK_TIME);
+		histogram(out, "tetris_paint_seconds", "Time taken to draw a frame of the board.", PAINT_TIME);
+		histogram(out, "tetris_leaderboard_save_seconds", "Time taken to save the leaderboard.", LEADERBOARD_SAVE_TIME);
+		out.append("# HELP tetris_leaderboard_entries Entries in the leaderboard.\n");
+		out.append("# TYPE tetris_leaderboard_entries gauge\n");
+		out.append("tetris_leaderboard_entries ").append(LEADERBOARD_SIZE.get()).append('\n');
+		return out.toString();
+	}
+
+	/**
+	 * Appends a counter to the given text.
+	 * @param out the text to append to
+	 * @param name the name of the counter
+	 * @param help the description of the counter
+	 * @param value the value of the counter
+	 */
+	private static void counter(StringBuilder out, String name, String help, long value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" counter\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * Appends a histogram to the given text, with a cumulative count for every bucket, converting the nanoseconds to seconds.
+	 * The count and the buckets are read separately, so the total count is never less than the count of the last bucket.
+	 * @param out the text to append to
+	 * @param name the name of the histogram
+	 * @param help the description of the histogram
+	 * @param h the histogram
+	 */
+	private static void histogram(StringBuilder out, String name, String help, LatencyHistogram h) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" histogram\n");
+		long cumulative = 0;
+		for (String bucket : BUCKETS) {
+			cumulative = Math.max(cumulative, h.getCountAtOrBelow((long) (Double.parseDouble(bucket) * 1e9)));
+			out.append(name).append("_bucket{le=\"").append(bucket).append("\"} ").append(cumulative).append('\n');
+		}
+		long count = Math.max(cumulative, h.getCount());
+		out.append(name).append("_bucket{le=\"+Inf\"} ").append(count).append('\n');
+		out.append(name).append("_sum ").append(h.getSum() / 1e9).append('\n');
+		out.append(name).append("_count ").append(count).append('\n');
+	}
+}
@@ -0,0 +1,126 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The MetricsExporter class makes the Metrics available to a monitoring system, in the Prometheus text format.
+ * It can serve them over HTTP at /metrics on a local port, and write them to a file periodically, or both.
+ * The file is written to a temporary file first and then moved over the old one, so it is never read half-written.
+ */
+public class MetricsExporter implements AutoCloseable {
+	/**
+	 * The HTTP server serving the metrics, or null if they are not served.
+	 */
+	private HttpServer server;
+
+	/**
+	 * The thread writing the metrics to the file, or null if they are not written to a file.
+	 */
+	private ScheduledExecutorService writer;
+
+	/**
+	 * The file the metrics are written to, or null if they are not written to a file.
+	 */
+	private Path file;
+
+	/**
+	 * Constructs a new MetricsExporter, which does not export anything until it is started.
+	 */
+	public MetricsExporter() {}
+
+	/**
+	 * Starts exporting the metrics the way the system properties tell it to:
+	 * tetris.metrics.port is the local port to serve them on, tetris.metrics.file is the file to write them to,
+	 * and tetris.metrics.interval is the time between writes of the file in seconds, 15 by default.
+	 * Nothing is exported if neither the port nor the file are set.
+	 * @return this exporter
+	 */
+	public MetricsExporter startFromProperties() {
+		Integer port = Integer.getInteger("tetris.metrics.port");
+		if (port != null) {
+			try {
+				serve(port);
+			} catch (IOException e) {
+				System.err.println("Error serving metrics on port " + port);
+			}
+		}
+		String filename = System.getProperty("tetris.metrics.file");
+		if (filename != null) writeTo(Paths.get(filename), Integer.getInteger("tetris.metrics.interval", 15));
+		return this;
+	}
+
+	/**
+	 * Starts serving the metrics at /metrics on the given port of the loopback address.
+	 * @param port the port to serve on, 0 for any free port
+	 * @return the port the metrics are served on
+	 * @throws IOException if the server can not be started on the port
+	 */
+	public int serve(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", exchange -> {
+			byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Starts writing the metrics to the given file, now and then every given number of seconds.
+	 * @param file the file to write to
+	 * @param intervalSeconds the time between writes in seconds
+	 */
+	public void writeTo(Path file, int intervalSeconds) {
+		this.file = file;
+		writer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "metrics-writer");
+			t.setDaemon(true);
+			return t;
+		});
+		writer.scheduleAtFixedRate(this::writeFile, 0, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops serving the metrics, and writes the file one last time, so it has the final values.
+	 */
+	@Override
+	public void close() {
+		if (server != null) server.stop(0);
+		if (writer != null) {
+			writer.shutdownNow();
+			try {
+				writer.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			writeFile();
+		}
+	}
+
+	/**
+	 * Writes the metrics to the file, through a temporary file that is moved over it.
+	 */
+	private void writeFile() {
+		try {
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			Files.writeString(tmp, Metrics.scrape());
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Error writing metrics to " + file);
+		}
+	}
+}
@@ -0,0 +1,362 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import tetris.Tetris;
+import tetris.Versus;
+
+/**
+ * The GameServer class hosts the games of many players in one process, with the server as the authority on every game.
+ * A single selector thread accepts the connections and reads the inputs of every player with non-blocking NIO,
+ * starting a Session for every connection, and a shared TickScheduler advances all the sessions on a small pool of threads.
+ *
+ * The protocol is binary and tiny. The player sends one byte for every press or release of a button,
+ * which is the ordinal of its Tetris.Action shifted left by one, plus one if it was pressed.
+ * The server sends every event of the game in five bytes, the ordinal of its Tetris.Event followed by its value as a big-endian int.
+ * The first piece spawns before the player connects, so the first event is the PIECE_LOCKED of that piece.
+ * When the game is over, the server sends the TOP_OUT event and closes the connection.
+ *
+ * With a room size above one, the players are put into Versus battles in the order they connect,
+ * and the games of a room only start ticking once the room is full.
+ *
+ * Spectators connect to a separate port and send the number of the session they want to watch as a big-endian int.
+ * Sessions are numbered from 0 in the order the players connect. The server then streams the frames of that game
+ * to the spectator, as written by a FrameEncoder, until the game is over.
+ *
+ * Usage: GameServer [port] [threads] [room size] [spectator port]
+ */
+public class GameServer implements AutoCloseable {
+	/**
+	 * The number of bytes of an event sent to the players.
+	 */
+	public static final int EVENT_SIZE = 5;
+
+	/**
+	 * The length of a tick of the games in milliseconds, the same as the game loop of the app.
+	 */
+	public static final int TICK_MILLIS = Tetris.TICK_MILLIS;
+
+	/**
+	 * The selector the connections are accepted and read with.
+	 */
+	private Selector selector;
+
+	/**
+	 * The channel the connections are accepted on.
+	 */
+	private ServerSocketChannel serverChannel;
+
+	/**
+	 * The channel the connections of spectators are accepted on, or null if spectators are not allowed.
+	 */
+	private ServerSocketChannel spectatorChannel;
+
+	/**
+	 * The open sessions by their numbers, only used by the selector thread.
+	 * Closed sessions are removed when there are twice as many sessions as after the last removal.
+	 */
+	private Map<Integer, Session> sessions;
+
+	/**
+	 * The number of the next session, and the number of sessions at which the closed sessions are next removed.
+	 */
+	private int nextId, sweepAt;
+
+	/**
+	 * The scheduler ticking the sessions.
+	 */
+	private TickScheduler scheduler;
+
+	/**
+	 * The buffer the inputs of every player are read into, only used by the selector thread.
+	 */
+	private ByteBuffer readBuffer;
+
+	/**
+	 * The source of the seeds of the games.
+	 */
+	private Random seeds;
+
+	/**
+	 * The number of players in a Versus battle, 1 if every player plays alone.
+	 */
+	private int roomSize;
+
+	/**
+	 * The sessions waiting for their room to fill up, only used by the selector thread.
+	 */
+	private List<Session> waiting;
+
+	/**
+	 * The selector thread.
+	 */
+	private Thread selectorThread;
+
+	/**
+	 * A flag telling the selector thread to exit, set by close().
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new GameServer listening on the given port, with the given number of threads ticking the games,
+	 * and starts accepting players.
+	 * @param port the port to listen on, 0 for any free port
+	 * @param threads the number of threads ticking the games
+	 * @throws IOException if the server can not listen on the port
+	 */
+	public GameServer(int port, int threads) throws IOException {
+		this(port, threads, 1);
+	}
+
+	/**
+	 * Constructs a new GameServer listening on the given port, with the given number of threads ticking the games,
+	 * which puts the players into Versus battles of the given size, and starts accepting players.
+	 * @param port the port to listen on, 0 for any free port
+	 * @param threads the number of threads ticking the games
+	 * @param roomSize the number of players in a battle, 1 if every player plays alone
+	 * @throws IOException if the server can not listen on the port
+	 */
+	public GameServer(int port, int threads, int roomSize) throws IOException {
+		this(port, threads, roomSize, -1);
+	}
+
+	/**
+	 * Constructs a new GameServer listening on the given port, with the given number of threads ticking the games,
+	 * which puts the players into Versus battles of the given size, and accepts spectators on the given port.
+	 * @param port the port to listen on, 0 for any free port
+	 * @param threads the number of threads ticking the games
+	 * @param roomSize the number of players in a battle, 1 if every player plays alone
+	 * @param spectatorPort the port to listen on for spectators, 0 for any free port, or -1 to not allow spectators
+	 * @throws IOException if the server can not listen on the ports
+	 */
+	public GameServer(int port, int threads, int roomSize, int spectatorPort) throws IOException {
+		this.roomSize = Math.max(1, roomSize);
+		waiting = new ArrayList<>();
+		sessions = new HashMap<>();
+		sweepAt = 64;
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port), 1024);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		if (spectatorPort >= 0) {
+			spectatorChannel = ServerSocketChannel.open();
+			spectatorChannel.bind(new InetSocketAddress(spectatorPort), 1024);
+			spectatorChannel.configureBlocking(false);
+			spectatorChannel.register(selector, SelectionKey.OP_ACCEPT);
+		}
+		readBuffer = ByteBuffer.allocateDirect(4096);
+		seeds = new Random();
+		scheduler = new TickScheduler(TICK_MILLIS, threads);
+
+		selectorThread = new Thread(this::run, "game-server-selector");
+		selectorThread.start();
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 * @return the port
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the port the server is listening on for spectators.
+	 * @return the port, or -1 if spectators are not allowed
+	 */
+	public int getSpectatorPort() {
+		return spectatorChannel == null ? -1 : spectatorChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the scheduler ticking the games, which counts the sessions and the ticks.
+	 * @return the scheduler
+	 */
+	public TickScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Stops accepting players, closes every connection, and stops ticking the games.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		selector.wakeup();
+		try {
+			selectorThread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		scheduler.close();
+	}
+
+	/**
+	 * Runs the server from the command line until the process is stopped, printing the number of sessions and ticks every second.
+	 * @param args the port to listen on, 7777 by default, the number of threads, the number of processors by default,
+	 * the number of players in a battle, 1 by default, and the port for spectators, none by default
+	 * @throws IOException if the server can not listen on the port
+	 * @throws InterruptedException if the main thread is interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int roomSize = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		int spectatorPort = args.length > 3 ? Integer.parseInt(args[3]) : -1;
+		try (GameServer server = new GameServer(port, threads, roomSize, spectatorPort)) {
+			System.out.println("Listening on port " + server.getPort());
+			while (true) {
+				Thread.sleep(1000);
+				TickScheduler s = server.getScheduler();
+				System.out.printf("sessions: %d, ticks: %d, skipped: %d%n", s.getSessionCount(), s.getTicks(), s.getSkippedTicks());
+			}
+		}
+	}
+
+	/**
+	 * The loop of the selector thread, accepting connections, reading inputs and the requests of spectators until the server is closed.
+	 */
+	private void run() {
+		try {
+			while (!closed) {
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) continue;
+					if (key.isAcceptable() && key.channel() == serverChannel) accept();
+					else if (key.isAcceptable()) acceptSpectators();
+					else if (key.isReadable() && key.attachment() instanceof Session) read(key);
+					else if (key.isReadable()) readSpectator(key);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Error in game server: " + e.getMessage());
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() instanceof Session session) session.close();
+			}
+			try {
+				serverChannel.close();
+				if (spectatorChannel != null) spectatorChannel.close();
+				for (SelectionKey key : selector.keys()) {
+					if (key.attachment() instanceof ByteBuffer) key.channel().close();
+				}
+				selector.close();
+			} catch (IOException ignored) { /*ignored*/ }
+		}
+	}
+
+	/**
+	 * Accepts every waiting connection, starting a session for each of them, or adding it to the room that is filling up.
+	 * @throws IOException if the server channel fails
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			Session session = new Session(channel, nextId++, seeds.nextLong());
+			channel.register(selector, SelectionKey.OP_READ, session);
+			sessions.put(session.getId(), session);
+			if (sessions.size() >= sweepAt) {
+				sessions.values().removeIf(Session::isClosed);
+				sweepAt = Math.max(64, 2 * sessions.size());
+			}
+			if (roomSize == 1) scheduler.add(session);
+			else join(session);
+		}
+	}
+
+	/**
+	 * Accepts every waiting spectator, who is read from until they sent the number of the session they want to watch.
+	 * @throws IOException if the spectator channel fails
+	 */
+	private void acceptSpectators() throws IOException {
+		SocketChannel channel;
+		while ((channel = spectatorChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(4));
+		}
+	}
+
+	/**
+	 * Reads the number of the session a spectator wants to watch. Once it is read, the spectator is added to the feed of the session,
+	 * and is no longer read from. A spectator asking for a session that does not exist or is over is disconnected.
+	 * @param key the key of the connection of the spectator
+	 * @throws IOException if the connection can not be closed
+	 */
+	private void readSpectator(SelectionKey key) throws IOException {
+		SocketChannel channel = (SocketChannel) key.channel();
+		ByteBuffer request = (ByteBuffer) key.attachment();
+		int read;
+		try {
+			read = channel.read(request);
+		} catch (IOException e) {
+			read = -1;
+		}
+		if (read < 0) {
+			channel.close();
+			return;
+		}
+		if (request.hasRemaining()) return;
+		key.cancel();
+		Session session = sessions.get(request.getInt(0));
+		if (session == null || session.isClosed()) channel.close();
+		else session.getFeed().add(channel);
+	}
+
+	/**
+	 * Adds the given session to the room that is filling up. Players who left while waiting are taken out of the room first.
+	 * When the room is full, its games are linked into a Versus battle and start ticking together.
+	 * @param session the session of the player joining
+	 */
+	private void join(Session session) {
+		waiting.removeIf(Session::isClosed);
+		waiting.add(session);
+		if (waiting.size() < roomSize) return;
+		Tetris[] games = new Tetris[roomSize];
+		for (int i = 0; i < roomSize; i++) {
+			games[i] = waiting.get(i).getGame();
+		}
+		new Versus(seeds.nextLong(), games);
+		waiting.forEach(scheduler::add);
+		waiting.clear();
+	}
+
+	/**
+	 * Reads the inputs waiting on the connection of the given key into its session, closing the session if the player disconnected.
+	 * @param key the key of the connection
+	 */
+	private void read(SelectionKey key) {
+		Session session = (Session) key.attachment();
+		readBuffer.clear();
+		int read;
+		try {
+			read = ((SocketChannel) key.channel()).read(readBuffer);
+		} catch (IOException e) {
+			read = -1;
+		}
+		if (read < 0) {
+			key.cancel();
+			session.close();
+			return;
+		}
+		readBuffer.flip();
+		session.receive(readBuffer);
+		if (session.isClosed()) key.cancel();
+	}
+}
@@ -0,0 +1,158 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tetris.Tetris;
+
+/**
+ * The LoopbackClient class is a minimal player of a GameServer on the same machine, used to test and load the server.
+ * It sends presses and releases of buttons, and reads the events of its game one at a time, blocking until they arrive.
+ */
+public class LoopbackClient implements AutoCloseable {
+	/**
+	 * The events in the order of their indices, cached because Event.values() creates a new array every call.
+	 */
+	private static final Tetris.Event[] EVENTS = Tetris.Event.values();
+
+	/**
+	 * The connection to the server, in blocking mode.
+	 */
+	private SocketChannel channel;
+
+	/**
+	 * The buffer inputs are sent from.
+	 */
+	private ByteBuffer outBuffer;
+
+	/**
+	 * The buffer an event is read into.
+	 */
+	private ByteBuffer inBuffer;
+
+	/**
+	 * The type of the last event received.
+	 */
+	private Tetris.Event event;
+
+	/**
+	 * The value of the last event received.
+	 */
+	private int value;
+
+	/**
+	 * Constructs a new LoopbackClient connected to the server on the given port of this machine.
+	 * @param port the port of the server
+	 * @throws IOException if the client can not connect
+	 */
+	public LoopbackClient(int port) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		outBuffer = ByteBuffer.allocate(2);
+		inBuffer = ByteBuffer.allocate(GameServer.EVENT_SIZE);
+	}
+
+	/**
+	 * Sends a press of the given button, followed by its release.
+	 * @param button the button to tap
+	 * @throws IOException if the input can not be sent
+	 */
+	public void tap(Tetris.Action button) throws IOException {
+		outBuffer.clear();
+		outBuffer.put((byte) (button.ordinal() << 1 | 1));
+		outBuffer.put((byte) (button.ordinal() << 1));
+		outBuffer.flip();
+		while (outBuffer.hasRemaining()) {
+			channel.write(outBuffer);
+		}
+	}
+
+	/**
+	 * Blocks until the next event of the game is received, which is then available from getEvent() and getValue().
+	 * @return true if an event was received, false if the server closed the connection
+	 * @throws IOException if the event can not be read
+	 */
+	public boolean receive() throws IOException {
+		inBuffer.clear();
+		while (inBuffer.hasRemaining()) {
+			if (channel.read(inBuffer) < 0) return false;
+		}
+		inBuffer.flip();
+		event = EVENTS[inBuffer.get()];
+		value = inBuffer.getInt();
+		return true;
+	}
+
+	/**
+	 * Returns the type of the last event received.
+	 * @return the type of the event
+	 */
+	public Tetris.Event getEvent() {
+		return event;
+	}
+
+	/**
+	 * Returns the value of the last event received.
+	 * @return the value of the event
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	/**
+	 * Closes the connection to the server.
+	 */
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException ignored) { /*ignored*/ }
+	}
+
+	/**
+	 * Plays a whole game by dropping every piece as soon as it spawns, until the server ends the game.
+	 * @return the number of pieces placed in the game
+	 * @throws IOException if the connection fails
+	 */
+	public int playDrops() throws IOException {
+		int placed = 0;
+		tap(Tetris.Action.DROP);
+		while (receive()) {
+			if (event == Tetris.Event.PIECE_LOCKED) placed++;
+			if (event == Tetris.Event.PIECE_SPAWNED) tap(Tetris.Action.DROP);
+		}
+		return placed;
+	}
+
+	/**
+	 * Connects the given number of clients to a server on this machine, each on its own virtual thread,
+	 * has every client play a game of drops, and prints how long it took.
+	 * Usage: LoopbackClient [port] [clients]
+	 * @param args the port of the server, 7777 by default, and the number of clients, 1000 by default
+	 * @throws InterruptedException if the main thread is interrupted
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		CountDownLatch done = new CountDownLatch(clients);
+		AtomicLong pieces = new AtomicLong(), failed = new AtomicLong();
+		long start = System.nanoTime();
+		for (int i = 0; i < clients; i++) {
+			Thread.ofVirtual().start(() -> {
+				try (LoopbackClient client = new LoopbackClient(port)) {
+					pieces.addAndGet(client.playDrops());
+				} catch (IOException e) {
+					failed.incrementAndGet();
+				}
+				done.countDown();
+			});
+		}
+		done.await();
+		System.out.printf("%d clients placed %d pieces in %d ms, %d failed%n",
+				clients, pieces.get(), (System.nanoTime() - start) / 1_000_000, failed.get());
+	}
+}
@@ -0,0 +1,210 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import metrics.Metrics;
+import tetris.GameEventBus;
+import tetris.InputController;
+import tetris.InputQueue;
+import tetris.Tetris;
+
+/**
+ * The Session class is the game of one player connected to a GameServer.
+ * The selector thread of the server puts the inputs the player sends into the input queue of the session,
+ * and a thread of the TickScheduler advances the game once every tick, the same way the game loop of the app does.
+ * The events the game publishes are written to a small buffer, which is sent to the player at the end of the tick.
+ * A player that does not read the events fast enough to keep the buffer from filling up is disconnected.
+ * After every tick, the state of the game is streamed to the spectators of its SpectatorFeed.
+ * Everything a session holds is allocated when it is created, so ticking it does not allocate.
+ */
+public class Session {
+	/**
+	 * The actions in the order of their indices, cached because Action.values() creates a new array every call.
+	 */
+	private static final Tetris.Action[] ACTIONS = Tetris.Action.values();
+
+	/**
+	 * The delayed auto-shift and the auto-repeat rate of the players, in ticks.
+	 */
+	private static final int DAS = 10, ARR = 2;
+
+	/**
+	 * The number of bytes of events that can wait to be sent to the player.
+	 */
+	private static final int OUT_BUFFER_SIZE = 512;
+
+	/**
+	 * The number of the session in the server, which spectators ask for to watch it.
+	 */
+	private int id;
+
+	/**
+	 * The connection to the player.
+	 */
+	private SocketChannel channel;
+
+	/**
+	 * The game of the player, which the server is the authority on.
+	 */
+	private Tetris tetris;
+
+	/**
+	 * The queue the inputs of the player are put into by the selector thread.
+	 */
+	private InputQueue inputs;
+
+	/**
+	 * The controller that applies the inputs to the game each tick.
+	 */
+	private InputController controller;
+
+	/**
+	 * The bus the game publishes its events to, dispatched into the out buffer at the end of every tick.
+	 */
+	private GameEventBus events;
+
+	/**
+	 * The events waiting to be sent to the player, in write mode.
+	 */
+	private ByteBuffer out;
+
+	/**
+	 * The feed streaming the game to its spectators.
+	 */
+	private SpectatorFeed feed;
+
+	/**
+	 * Whether the session is closed, either because the player disconnected, or because the server ended it.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new Session for the player on the given connection, starting a new game with the given seed.
+	 * @param channel the connection to the player
+	 * @param id the number of the session in the server
+	 * @param seed the seed of the game
+	 */
+	public Session(SocketChannel channel, int id, long seed) {
+		this.channel = channel;
+		this.id = id;
+		tetris = new Tetris(seed);
+		inputs = new InputQueue(16);
+		controller = new InputController(inputs, DAS, ARR);
+		events = new GameEventBus(32);
+		events.subscribe(this::write);
+		tetris.setEventBus(events);
+		out = ByteBuffer.allocate(OUT_BUFFER_SIZE);
+		feed = new SpectatorFeed();
+		Metrics.GAMES_STARTED.increment();
+	}
+
+	/**
+	 * Returns the game of the session.
+	 * @return the game
+	 */
+	public Tetris getGame() {
+		return tetris;
+	}
+
+	/**
+	 * Returns the number of the session in the server.
+	 * @return the number of the session
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the feed streaming the game to its spectators.
+	 * @return the spectator feed
+	 */
+	public SpectatorFeed getFeed() {
+		return feed;
+	}
+
+	/**
+	 * Returns whether the session is closed.
+	 * @return true if the session is closed, false otherwise
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Closes the session, its connection, and the connections of its spectators.
+	 */
+	public void close() {
+		closed = true;
+		feed.close();
+		try {
+			channel.close();
+		} catch (IOException ignored) { /*ignored*/ }
+	}
+
+	/**
+	 * Reads the inputs in the given bytes, which the player sent, into the input queue.
+	 * Each byte is the index of a button shifted left by one, plus one if it was pressed.
+	 * The session is closed if a byte is not a valid input, which includes the ticks of the clock that only the server advances,
+	 * or if the player sends inputs faster than the game applies them.
+	 * Only called by the selector thread of the server.
+	 * @param in the bytes received, in read mode
+	 */
+	protected void receive(ByteBuffer in) {
+		long now = System.currentTimeMillis();
+		while (in.hasRemaining()) {
+			int code = in.get() & 0xFF;
+			if (code >> 1 >= ACTIONS.length || ACTIONS[code >> 1] == Tetris.Action.TICK || !inputs.offer(ACTIONS[code >> 1], (code & 1) != 0, now)) {
+				close();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Advances the game by one tick: applies the inputs, then advances the clock of the game, which moves the piece down and locks it,
+	 * then sends the events of the tick to the player and the new state to the spectators. When the game is over and its last events are sent, the session is closed.
+	 * Only called by one thread of the TickScheduler at a time.
+	 * @return true if the session is still open, false if it is closed
+	 */
+	protected boolean tick() {
+		if (closed) return false;
+		controller.tick(tetris);
+		tetris.tick();
+		events.dispatch();
+		flush();
+		feed.publish(tetris);
+		if (tetris.isGameOver() && out.position() == 0) close();
+		return !closed;
+	}
+
+	/**
+	 * Writes an event into the out buffer, as the index of its type in one byte and its value in four bytes.
+	 * If the buffer is full, the player is not reading, so the session is closed.
+	 * @param event the type of the event
+	 * @param value the value of the event
+	 */
+	private void write(Tetris.Event event, int value) {
+		if (out.remaining() < GameServer.EVENT_SIZE) {
+			close();
+			return;
+		}
+		out.put((byte) event.ordinal());
+		out.putInt(value);
+	}
+
+	/**
+	 * Sends as much of the out buffer as the connection takes without blocking, keeping the rest for the next tick.
+	 */
+	private void flush() {
+		if (closed || out.position() == 0) return;
+		out.flip();
+		try {
+			channel.write(out);
+		} catch (IOException e) {
+			close();
+		}
+		out.compact();
+	}
+}
@@ -0,0 +1,87 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import tetris.FrameDecoder;
+
+/**
+ * The SpectatorClient class watches a game of a GameServer on the same machine, rebuilding its state from the frames it is sent.
+ */
+public class SpectatorClient implements AutoCloseable {
+	/**
+	 * The connection to the server, in blocking mode.
+	 */
+	private SocketChannel channel;
+
+	/**
+	 * The buffer a frame is read into, large enough for the largest frame.
+	 */
+	private ByteBuffer frame;
+
+	/**
+	 * The decoder holding the state of the game.
+	 */
+	private FrameDecoder view;
+
+	/**
+	 * Constructs a new SpectatorClient connected to the spectator port of the server on this machine, watching the given session.
+	 * @param port the spectator port of the server
+	 * @param session the number of the session to watch
+	 * @throws IOException if the client can not connect
+	 */
+	public SpectatorClient(int port, int session) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		channel.write(ByteBuffer.allocate(4).putInt(0, session));
+		frame = ByteBuffer.allocate(2 + 0xFFFF);
+		view = new FrameDecoder();
+	}
+
+	/**
+	 * Blocks until the next frame is received, and applies it to the state of the game.
+	 * @return true if a frame was received, false if the server closed the connection
+	 * @throws IOException if the frame can not be read
+	 */
+	public boolean receive() throws IOException {
+		frame.clear().limit(2);
+		if (!readFully()) return false;
+		frame.limit(2 + (frame.getShort(0) & 0xFFFF));
+		if (!readFully()) return false;
+		frame.flip();
+		view.decode(frame);
+		return true;
+	}
+
+	/**
+	 * Returns the state of the game, as of the last frame received.
+	 * @return the decoder holding the state of the game
+	 */
+	public FrameDecoder getView() {
+		return view;
+	}
+
+	/**
+	 * Closes the connection to the server.
+	 */
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException ignored) { /*ignored*/ }
+	}
+
+	/**
+	 * Reads into the frame buffer until it is full up to its limit.
+	 * @return true if the buffer was filled, false if the server closed the connection
+	 * @throws IOException if the connection fails
+	 */
+	private boolean readFully() throws IOException {
+		while (frame.hasRemaining()) {
+			if (channel.read(frame) < 0) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,221 @@
+package net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import tetris.FrameEncoder;
+import tetris.Tetris;
+
+/**
+ * The SpectatorFeed class streams the game of a Session to any number of spectators.
+ * Every tick the game is encoded once by a FrameEncoder, into an arena buffer that is reused in a ring,
+ * and every spectator is sent a duplicate of the same bytes, so the frame is neither encoded nor copied per spectator.
+ *
+ * A spectator starts with a keyframe, which is encoded on the next tick after they join, then gets the delta frames after it.
+ * A spectator whose connection can not take a whole frame without blocking keeps the rest of it for the next tick,
+ * and skips the frames until it is sent, then waits for a new keyframe. If the rest is still not sent
+ * by the time the arena comes around to it again, the spectator is disconnected.
+ * A keyframe is also sent every KEYFRAME_TICKS ticks, so a spectator never depends on too long a chain of deltas.
+ * When there are no spectators, nothing is encoded.
+ */
+public class SpectatorFeed {
+	/**
+	 * The number of ticks between the regular keyframes, about two seconds.
+	 */
+	public static final int KEYFRAME_TICKS = 120;
+
+	/**
+	 * The number of bytes of the arena the frames are encoded into.
+	 */
+	private static final int ARENA_SIZE = 1 << 16;
+
+	/**
+	 * The Viewer class holds a spectator, and the frame that is being sent to them.
+	 */
+	private static class Viewer {
+		/**
+		 * The connection to the spectator.
+		 */
+		private SocketChannel channel;
+
+		/**
+		 * The rest of the frame that is being sent, a view of the arena, or null if no frame is being sent.
+		 */
+		private ByteBuffer pending;
+
+		/**
+		 * The position in the stream of the feed the pending frame starts at.
+		 */
+		private long pendingStart;
+
+		/**
+		 * Whether the spectator was sent a keyframe and every frame after it, so they can be sent delta frames.
+		 */
+		private boolean synced;
+
+		/**
+		 * Constructs a new Viewer for the spectator on the given connection, who has not been sent a keyframe yet.
+		 * @param channel the connection to the spectator
+		 */
+		private Viewer(SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	/**
+	 * The encoder of the frames of the game.
+	 */
+	private FrameEncoder encoder;
+
+	/**
+	 * The buffer the frames are encoded into, one after another, starting over from the beginning when it is full.
+	 */
+	private ByteBuffer arena;
+
+	/**
+	 * The number of bytes the arena has moved on so far, counting the unused bytes at its end when it starts over,
+	 * so a frame starting at a position of the stream is overwritten once the stream is more than the size of the arena past it.
+	 */
+	private long streamPosition;
+
+	/**
+	 * The spectators of the game, added by the selector thread of the server and otherwise only used by the thread ticking the session.
+	 */
+	private ConcurrentLinkedQueue<Viewer> viewers;
+
+	/**
+	 * The number of ticks since the last keyframe.
+	 */
+	private int sinceKeyframe;
+
+	/**
+	 * Whether a spectator is waiting for a keyframe.
+	 */
+	private boolean keyframeWanted;
+
+	/**
+	 * Whether the feed is closed, after which spectators are disconnected as soon as they join.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new SpectatorFeed with no spectators.
+	 * The arena is only allocated when the first spectator joins.
+	 */
+	public SpectatorFeed() {
+		encoder = new FrameEncoder();
+		viewers = new ConcurrentLinkedQueue<>();
+	}
+
+	/**
+	 * Adds a spectator on the given non-blocking connection, who is sent frames from the next tick on.
+	 * Safe to call from any thread.
+	 * @param channel the connection to the spectator
+	 */
+	public void add(SocketChannel channel) {
+		viewers.add(new Viewer(channel));
+		if (closed) close();
+	}
+
+	/**
+	 * Returns the number of spectators of the game.
+	 * @return the number of spectators
+	 */
+	public int getViewerCount() {
+		return viewers.size();
+	}
+
+	/**
+	 * Disconnects every spectator. Safe to call from any thread.
+	 */
+	public void close() {
+		closed = true;
+		for (Viewer viewer : viewers) {
+			closeViewer(viewer);
+		}
+		viewers.clear();
+	}
+
+	/**
+	 * Encodes the current state of the given game and sends it to the spectators.
+	 * Only called by the thread ticking the session, after the game advanced.
+	 * @param tetris the game of the session
+	 */
+	protected void publish(Tetris tetris) {
+		if (viewers.isEmpty()) return;
+		if (arena == null) arena = ByteBuffer.allocateDirect(ARENA_SIZE);
+		int maxSize = FrameEncoder.maxFrameSize(tetris.getBoardWidth(), tetris.getBoardHeight());
+		if (arena.remaining() < maxSize) {
+			streamPosition += arena.remaining();
+			arena.clear();
+		}
+
+		int start = arena.position();
+		ByteBuffer frame = null;
+		if (encoder.encode(tetris, arena, keyframeWanted || sinceKeyframe + 1 >= KEYFRAME_TICKS)) {
+			frame = arena.slice(start, arena.position() - start);
+			streamPosition += frame.limit();
+		}
+		boolean keyframe = frame != null && (frame.get(2) & FrameEncoder.KEYFRAME) != 0;
+		sinceKeyframe = keyframe ? 0 : sinceKeyframe + 1;
+		keyframeWanted = false;
+
+		Iterator<Viewer> it = viewers.iterator();
+		while (it.hasNext()) {
+			Viewer viewer = it.next();
+			if (!send(viewer, frame, keyframe)) {
+				closeViewer(viewer);
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Sends the rest of the pending frame of the given spectator, then the given frame, if the spectator can be sent it.
+	 * @param viewer the spectator
+	 * @param frame the frame of this tick, or null if nothing changed
+	 * @param keyframe whether the frame is a keyframe
+	 * @return false if the spectator should be disconnected, true otherwise
+	 */
+	private boolean send(Viewer viewer, ByteBuffer frame, boolean keyframe) {
+		try {
+			if (viewer.pending != null) {
+				if (streamPosition - viewer.pendingStart > ARENA_SIZE) return false;
+				viewer.channel.write(viewer.pending);
+				if (viewer.pending.hasRemaining()) {
+					if (frame != null) viewer.synced = false;
+					return true;
+				}
+				viewer.pending = null;
+			}
+			if (!viewer.synced && !keyframe) {
+				keyframeWanted = true;
+				return true;
+			}
+			if (frame == null) return true;
+			viewer.synced = true;
+			ByteBuffer view = frame.duplicate();
+			viewer.channel.write(view);
+			if (view.hasRemaining()) {
+				viewer.pending = view;
+				viewer.pendingStart = streamPosition - frame.limit();
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the connection to the given spectator.
+	 * @param viewer the spectator
+	 */
+	private static void closeViewer(Viewer viewer) {
+		try {
+			viewer.channel.close();
+		} catch (IOException ignored) { /*ignored*/ }
+	}
+}
@@ -0,0 +1,241 @@
+package net;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The TickScheduler class advances every Session of a server once per tick, on a small fixed pool of threads,
+ * instead of running a timer for every game.
+ * Every tick, the threads take chunks of sessions from a shared counter until all of them are ticked,
+ * so a thread that gets slow sessions does not hold up the others. The chunks start from a different session every tick,
+ * so no session is always the last to be ticked.
+ * If the sessions take longer than a tick to advance, the ticks that were missed are skipped rather than run late,
+ * so under overload every session is still ticked exactly once per tick, just with fewer ticks per second.
+ * A session that throws while it is ticked is reported and closed, so the thread ticking it still arrives at the Phaser
+ * and the other sessions keep ticking.
+ */
+public class TickScheduler implements AutoCloseable {
+	/**
+	 * The number of sessions a thread takes at once.
+	 */
+	private static final int CHUNK = 64;
+
+	/**
+	 * The length of a tick in milliseconds.
+	 */
+	private int tickMillis;
+
+	/**
+	 * The sessions added since the last tick, moved into the sessions array by the tick thread at the start of the next tick.
+	 */
+	private ConcurrentLinkedQueue<Session> added;
+
+	/**
+	 * The sessions ticked every tick, only changed by the tick thread between ticks.
+	 */
+	private Session[] sessions;
+
+	/**
+	 * The number of sessions in the sessions array.
+	 */
+	private int count;
+
+	/**
+	 * The index of the first session of the current tick, which moves by a chunk every tick.
+	 */
+	private int offset;
+
+	/**
+	 * The index of the next chunk to be taken in the current tick.
+	 */
+	private AtomicInteger nextChunk;
+
+	/**
+	 * The Phaser used to release the workers at the start of a tick, and to wait for them at the end.
+	 */
+	private Phaser phaser;
+
+	/**
+	 * The thread keeping the time and ticking along with the workers, and the worker threads.
+	 */
+	private Thread ticker;
+
+	/**
+	 * The worker threads ticking sessions along with the tick thread.
+	 */
+	private Thread[] workers;
+
+	/**
+	 * The number of ticks run, and the number of ticks skipped because the ticks before them ran late.
+	 */
+	private AtomicLong ticks, skipped;
+
+	/**
+	 * The number of sessions ticked in the last tick.
+	 */
+	private volatile int sessionCount;
+
+	/**
+	 * A flag telling the threads to exit, set by close().
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructs a new TickScheduler with the given tick length and number of threads, and starts ticking.
+	 * @param tickMillis the length of a tick in milliseconds
+	 * @param threads the number of threads ticking sessions, including the tick thread
+	 */
+	public TickScheduler(int tickMillis, int threads) {
+		this.tickMillis = tickMillis;
+		added = new ConcurrentLinkedQueue<>();
+		sessions = new Session[CHUNK];
+		nextChunk = new AtomicInteger();
+		ticks = new AtomicLong();
+		skipped = new AtomicLong();
+
+		int n = Math.max(1, threads);
+		phaser = new Phaser(n);
+		workers = new Thread[n-1];
+		for (int w = 0; w < workers.length; w++) {
+			workers[w] = new Thread(this::runWorker, "tick-worker-" + (w+1));
+			workers[w].setDaemon(true);
+			workers[w].start();
+		}
+		ticker = new Thread(this::runTicker, "tick-scheduler");
+		ticker.setDaemon(true);
+		ticker.start();
+	}
+
+	/**
+	 * Adds a session, which is ticked from the next tick on, until it is closed.
+	 * Safe to call from any thread.
+	 * @param session the session to add
+	 */
+	public void add(Session session) {
+		added.add(session);
+	}
+
+	/**
+	 * Returns the number of sessions ticked in the last tick.
+	 * @return the number of sessions
+	 */
+	public int getSessionCount() {
+		return sessionCount;
+	}
+
+	/**
+	 * Returns the number of ticks run so far.
+	 * @return the number of ticks
+	 */
+	public long getTicks() {
+		return ticks.get();
+	}
+
+	/**
+	 * Returns the number of ticks skipped so far, because the sessions took longer than a tick to advance.
+	 * @return the number of skipped ticks
+	 */
+	public long getSkippedTicks() {
+		return skipped.get();
+	}
+
+	/**
+	 * Stops ticking and stops the threads. The sessions are not closed.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(ticker);
+	}
+
+	/**
+	 * The loop of the tick thread. Waits until the next tick is due, updates the sessions, and ticks them along with the workers.
+	 * Ticks that are already past when a tick ends are skipped, and counted.
+	 */
+	private void runTicker() {
+		long period = tickMillis * 1_000_000L;
+		long next = System.nanoTime();
+		while (!closed) {
+			updateSessions();
+			nextChunk.set(0);
+			phaser.arriveAndAwaitAdvance();
+			tickChunks();
+			phaser.arriveAndAwaitAdvance();
+			ticks.incrementAndGet();
+
+			next += period;
+			long late = System.nanoTime() - next;
+			if (late > 0) {
+				long missed = late / period + 1;
+				skipped.addAndGet(missed);
+				next += missed * period;
+			}
+			while (!closed && System.nanoTime() < next) {
+				LockSupport.parkNanos(next - System.nanoTime());
+			}
+		}
+		phaser.arriveAndDeregister();
+	}
+
+	/**
+	 * The loop of a worker thread, ticking chunks of sessions every time it is released, until the scheduler is closed.
+	 */
+	private void runWorker() {
+		while (true) {
+			phaser.arriveAndAwaitAdvance();
+			if (closed) {
+				phaser.arriveAndDeregister();
+				return;
+			}
+			tickChunks();
+			phaser.arriveAndAwaitAdvance();
+		}
+	}
+
+	/**
+	 * Takes chunks of sessions and ticks them until every session was ticked in this tick.
+	 * A session that throws is closed, and is removed by the next update of the sessions.
+	 */
+	private void tickChunks() {
+		int n = count;
+		while (true) {
+			int from = nextChunk.getAndIncrement() * CHUNK;
+			if (from >= n) return;
+			int to = Math.min(n, from + CHUNK);
+			for (int i = from; i < to; i++) {
+				Session session = sessions[(offset + i) % n];
+				try {
+					session.tick();
+				} catch (RuntimeException | Error e) {
+					System.err.println("Error in session " + session.getId() + ": " + e);
+					session.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the closed sessions, adds the sessions added since the last tick, and moves the first session of the tick.
+	 * Only called by the tick thread, while the workers are waiting.
+	 */
+	private void updateSessions() {
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (!sessions[i].isClosed()) sessions[kept++] = sessions[i];
+		}
+		Arrays.fill(sessions, kept, count, null);
+		count = kept;
+
+		Session s;
+		while ((s = added.poll()) != null) {
+			if (count == sessions.length) sessions = Arrays.copyOf(sessions, sessions.length * 2);
+			sessions[count++] = s;
+		}
+		offset = count == 0 ? 0 : (offset + CHUNK) % count;
+		sessionCount = count;
+	}
+}
@@ -6,8 +6,14 @@ import java.util.*;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import metrics.GameEvents;
+import metrics.Metrics;
+
 /**
  * The LeaderBoard class represents a leaderboard with a list of high scores.
+ * Its methods are synchronized, as verified scores are added from the threads of a ReplayVerifier.
+ * The time it takes to save the entries is reported in the Metrics, and so is the number of entries,
+ * but only for the leaderboard that is shown to the player, so other instances do not overwrite it.
  */
 public class LeaderBoard {
     /**
@@ -15,6 +21,11 @@ public class LeaderBoard {
      */
     private List<HighScore> lb;
 
+    /**
+     * Whether the number of entries of this leaderboard is reported in the Metrics, set by reportSize().
+     */
+    private boolean reported;
+
     /**
      * Constructs a new LeaderBoard object with an empty list of high scores.
      */
@@ -32,13 +43,21 @@ public class LeaderBoard {
         Collections.reverse(lb);
     }
 
+    /**
+     * Makes this the leaderboard whose number of entries is reported in the Metrics, from now on and whenever it changes.
+     */
+    public synchronized void reportSize() {
+        reported = true;
+        Metrics.LEADERBOARD_SIZE.set(lb.size());
+    }
+
     /**
      * Returns the high score at the specified index in the leaderboard.
      * If the given index is higher than the number of high scores, returns an empty high score.
      * @param index the index of the high score to return
      * @return the high score at the specified index
      */
-    public HighScore get(int index) {
+    public synchronized HighScore get(int index) {
         if (index >= lb.size()) return new HighScore();
         return lb.get(index);
     }
@@ -48,11 +67,12 @@ public class LeaderBoard {
      * If the score is invalid, it is not added.
      * @param s the high score to add
      */
-    public void add(HighScore s) {
+    public synchronized void add(HighScore s) {
         if (s.getScore() != 0) {
             lb.add(s);
             Collections.sort(lb);
             Collections.reverse(lb);
+            if (reported) Metrics.LEADERBOARD_SIZE.set(lb.size());
         }
     }
 
@@ -61,7 +81,7 @@ public class LeaderBoard {
      * @param score the score to check
      * @return the position the score would have in the leaderboard
      */
-    public int positionIfAdded(int score) {
+    public synchronized int positionIfAdded(int score) {
         int pos = 0;
         while (pos < lb.size() && lb.get(pos).getScore() >= score) {
             pos++;
@@ -72,9 +92,12 @@ public class LeaderBoard {
     /**
      * Reads high scores from a JSON file and adds them to the leaderboard.
      * The file should only contain valid high scores, in descending order.
+     * The read is recorded as a flight recorder event, even if the file is empty.
      * @param filename the name of the file to read from
      */
-    public void readFromJSON(String filename) {
+    public synchronized void readFromJSON(String filename) {
+        GameEvents.LeaderBoardEvent event = new GameEvents.LeaderBoardEvent();
+        event.begin();
         Gson gson = new Gson();
         try  {
             FileReader reader = new FileReader(filename);
@@ -82,17 +105,26 @@ public class LeaderBoard {
             reader.close();
             if (t == null) return;
             lb = new ArrayList<>(Arrays.asList(t));
+            if (reported) Metrics.LEADERBOARD_SIZE.set(lb.size());
         } catch (IOException e) {
             System.err.println("Error reading scores");
+        } finally {
+            event.file = filename;
+            event.entries = lb.size();
+            event.commit();
         }
     }
 
     /**
      * Writes the high scores to a JSON file.
      * The file will contain the high scores in descending order.
+     * The write is recorded as a flight recorder event.
      * @param filename the name of the file to write to
      */
-    public void writeToJSON(String filename) {
+    public synchronized void writeToJSON(String filename) {
+        long start = System.nanoTime();
+        GameEvents.LeaderBoardEvent event = new GameEvents.LeaderBoardEvent();
+        event.begin();
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
         try {
             FileWriter writer = new FileWriter(filename);
@@ -101,5 +133,10 @@ public class LeaderBoard {
         } catch (IOException e) {
             System.err.println("Error saving scores");
         }
+        event.file = filename;
+        event.write = true;
+        event.entries = lb.size();
+        event.commit();
+        Metrics.LEADERBOARD_SAVE_TIME.record(System.nanoTime() - start);
     }
 }
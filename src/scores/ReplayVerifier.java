@@ -0,0 +1,129 @@
+package scores;
+
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import tetris.Replay;
+import tetris.Tetris;
+
+/**
+ * The ReplayVerifier class checks submitted high scores by re-simulating the replay of the game they came from,
+ * and only passes on the scores which match the result of the simulation.
+ * Verification runs on a pool of worker threads, with a bounded number of submissions waiting at once.
+ * When the verifier is full, offer() rejects new submissions instead of blocking, while submit() waits for room,
+ * so callers can choose between dropping and slowing down a flood of submissions.
+ */
+public class ReplayVerifier {
+    /**
+     * The pool of worker threads that simulate the replays.
+     */
+    private ThreadPoolExecutor workers;
+
+    /**
+     * The permits for submissions that are waiting or being verified, one permit is taken for each submission.
+     * There are as many permits as there are worker threads and places in the queue.
+     * The queue of the executor has room for all of them, because a finished task gives back its permit
+     * before its worker thread is ready to take the next one, so the executor never rejects an accepted submission.
+     */
+    private Semaphore permits;
+
+    /**
+     * Constructs a new ReplayVerifier with the given number of worker threads and queued submissions.
+     * @param threads the number of submissions that can be verified in parallel
+     * @param queueCapacity the number of submissions that can wait for a free worker
+     */
+    public ReplayVerifier(int threads, int queueCapacity) {
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads + queueCapacity), r -> {
+            Thread t = new Thread(r, "replay-verifier");
+            t.setDaemon(true);
+            return t;
+        });
+        permits = new Semaphore(threads + queueCapacity);
+    }
+
+    /**
+     * Constructs a new ReplayVerifier with a worker thread for every available processor,
+     * and room for 64 submissions per worker to wait.
+     */
+    public ReplayVerifier() {
+        this(Runtime.getRuntime().availableProcessors(), 64 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Submits a high score with the replay of its game for verification, if there is room for it.
+     * Does not block, so it is safe to call from the UI thread.
+     * @param hs the high score to verify
+     * @param replay the replay of the game the score was achieved in
+     * @param onVerified called from a worker thread with the high score, if it is verified
+     * @return true if the submission was accepted, false if the verifier is full or shut down
+     */
+    public boolean offer(HighScore hs, Replay replay, Consumer<HighScore> onVerified) {
+        if (!permits.tryAcquire()) return false;
+        return enqueue(hs, replay, onVerified);
+    }
+
+    /**
+     * Submits a high score with the replay of its game for verification, waiting for room if the verifier is full.
+     * Should be used by bulk submitters, so they are slowed down to the speed of the verification.
+     * @param hs the high score to verify
+     * @param replay the replay of the game the score was achieved in
+     * @param onVerified called from a worker thread with the high score, if it is verified
+     * @return true if the submission was accepted, false if the verifier is shut down
+     * @throws InterruptedException if the thread is interrupted while waiting for room
+     */
+    public boolean submit(HighScore hs, Replay replay, Consumer<HighScore> onVerified) throws InterruptedException {
+        permits.acquire();
+        return enqueue(hs, replay, onVerified);
+    }
+
+    /**
+     * Checks whether the given replay results in a finished game with the score of the given high score.
+     * @param hs the high score to check
+     * @param replay the replay of the game the score was achieved in
+     * @return true if the score is the result of the replay, false otherwise
+     */
+    public static boolean verify(HighScore hs, Replay replay) {
+        if (replay == null) return false;
+        Tetris result = replay.simulate();
+        return result.isGameOver() && result.getScore() == hs.getScore();
+    }
+
+    /**
+     * Stops accepting submissions, and waits for the already accepted ones to be verified.
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return true if every accepted submission was verified in time, false otherwise
+     */
+    public boolean shutdown(long timeoutMillis) {
+        workers.shutdown();
+        try {
+            return workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Hands a submission to the worker threads, after a permit has been taken for it.
+     * The permit is given back once the submission is verified.
+     * @param hs the high score to verify
+     * @param replay the replay of the game the score was achieved in
+     * @param onVerified called with the high score, if it is verified
+     * @return true if the submission was accepted, false if the verifier is shut down
+     */
+    private boolean enqueue(HighScore hs, Replay replay, Consumer<HighScore> onVerified) {
+        try {
+            workers.execute(() -> {
+                try {
+                    if (verify(hs, replay)) onVerified.accept(hs);
+                } finally {
+                    permits.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * The BagRandomizer class deals the pieces from a shuffled bag holding every shape the same number of times,
+ * shuffling a new bag once the last one is empty. This ensures the player does not experience long droughts of any specific piece.
+ * The bag is an array that is shuffled in place, the same way Collections.shuffle() shuffles a list,
+ * so a bag of 7 gives the same pieces for the same seed as the list the game used before.
+ */
+public class BagRandomizer implements Randomizer {
+	/**
+	 * The shapes in the order of their indices, cached because Shape.values() creates a new array every call.
+	 */
+	private static final Tetromino.Shape[] SHAPES = Tetromino.Shape.values();
+
+	/**
+	 * The source of the random numbers of the shuffles.
+	 */
+	private Random random;
+
+	/**
+	 * The shapes of the current bag, in the order they are dealt.
+	 */
+	private Tetromino.Shape[] bag;
+
+	/**
+	 * The index of the next shape to deal from the bag.
+	 */
+	private int index;
+
+	/**
+	 * Constructs a new BagRandomizer with a bag holding every shape the given number of times, and shuffles the first bag.
+	 * @param random the source of the random numbers
+	 * @param copies the number of times every shape is in a bag
+	 */
+	public BagRandomizer(Random random, int copies) {
+		this.random = random;
+		bag = new Tetromino.Shape[SHAPES.length * copies];
+		fill();
+	}
+
+	/**
+	 * Returns the shape of the next piece, and moves on to the one after it.
+	 * @return the shape of the next piece
+	 */
+	@Override
+	public Tetromino.Shape next() {
+		if (index == bag.length) fill();
+		return bag[index++];
+	}
+
+	/**
+	 * Returns a new randomizer in the same state as this one.
+	 * @return the copy of the randomizer
+	 * @throws IllegalStateException if the randomizer does not use a GameRandom
+	 */
+	@Override
+	public Randomizer copy() {
+		BagRandomizer out = new BagRandomizer(GameRandom.copyOf(random), bag.length / SHAPES.length);
+		out.set(this);
+		return out;
+	}
+
+	/**
+	 * Sets the state of this randomizer to the state of the given one, without allocating.
+	 * @param other the randomizer to take the state of, which must be of the same class
+	 * @throws IllegalStateException if either randomizer does not use a GameRandom
+	 */
+	@Override
+	public void set(Randomizer other) {
+		BagRandomizer o = (BagRandomizer) other;
+		GameRandom.copyState(o.random, random);
+		System.arraycopy(o.bag, 0, bag, 0, bag.length);
+		index = o.index;
+	}
+
+	/**
+	 * Fills the bag with every shape in order, and shuffles it by swapping every position, from the last, with a random one before it.
+	 */
+	private void fill() {
+		for (int i = 0; i < bag.length; i++) {
+			bag[i] = SHAPES[i % SHAPES.length];
+		}
+		for (int i = bag.length; i > 1; i--) {
+			int j = random.nextInt(i);
+			Tetromino.Shape swap = bag[i-1];
+			bag[i-1] = bag[j];
+			bag[j] = swap;
+		}
+		index = 0;
+	}
+}
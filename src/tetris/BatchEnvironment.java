@@ -0,0 +1,307 @@
+package tetris;
+
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.Phaser;
+
+/**
+ * The BatchEnvironment class runs a batch of Tetris games in lockstep, for training agents against the game.
+ * Every call to step() applies one action to each game, then writes the observations, rewards and done flags
+ * of all games into shared arrays, which are allocated once and reused for every step.
+ * The games are split into shards, and each shard is stepped on its own thread.
+ * Games that end are restarted automatically with a new seed, which is derived from the seed of the batch,
+ * so the same seed always gives the same sequence of games.
+ * Stepping does not allocate any objects, apart from the new games made when a game ends and the occasional growth of the list of actions
+ * in the replay of a game, since the pieces of every orientation are shared and the minos are read from arrays.
+ * An exception thrown while stepping a shard is passed on to the caller of step(), after which the environment can only be closed.
+ */
+public class BatchEnvironment implements AutoCloseable {
+	/**
+	 * The values of the cells in an observation: empty, filled by the stack, or taken by the falling piece.
+	 */
+	public static final int CELL_EMPTY = 0, CELL_FILLED = 1, CELL_PIECE = 2;
+
+	/**
+	 * The actions in the order of their indices, cached because Action.values() creates a new array every call.
+	 */
+	private static final Tetris.Action[] ACTIONS = Tetris.Action.values();
+
+	/**
+	 * The games in the batch.
+	 */
+	private Tetris[] games;
+
+	/**
+	 * The number of games each game in the batch has been restarted, used to derive the seed of the next game.
+	 */
+	private long[] episodes;
+
+	/**
+	 * The seed of the batch, which the seeds of all games are derived from.
+	 */
+	private long seed;
+
+	/**
+	 * The observations of all games, with the observation of game i starting at index i*getObservationSize().
+	 * An observation is made up of the cells of the visible board row by row from the bottom,
+	 * followed by the shape of the current piece, the shape of the next piece, the score, and the shape of the held piece, or -1 if none.
+	 */
+	private int[] observations;
+
+	/**
+	 * The rewards of the last step for each game, which is the score gained by the action.
+	 */
+	private int[] rewards;
+
+	/**
+	 * The done flags of the last step for each game, true if the game ended and was restarted.
+	 */
+	private boolean[] dones;
+
+	/**
+	 * The actions of the current step, set by step() before the shards are released.
+	 */
+	private int[] actions;
+
+	/**
+	 * The width and height of the visible boards, and the size of one observation.
+	 */
+	private int width, height, observationSize;
+
+	/**
+	 * The worker threads stepping every shard except the first one, which is stepped by the caller of step().
+	 */
+	private Thread[] workers;
+
+	/**
+	 * The Phaser used to release the workers at the start of a step, and to wait for them at the end.
+	 */
+	private Phaser phaser;
+
+	/**
+	 * A flag telling the workers to exit, set by close().
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * The first exception thrown while stepping a shard, or null if none was. Set by any thread, and read by step() after the shards are stepped.
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * Constructs a new BatchEnvironment with the given number of games, split into the given number of shards.
+	 * Starts the worker threads, and resets every game.
+	 * @param count the number of games in the batch
+	 * @param seed the seed of the batch
+	 * @param threads the number of shards, and thus threads, the batch is stepped on
+	 */
+	public BatchEnvironment(int count, long seed, int threads) {
+		this.seed = seed;
+		games = new Tetris[count];
+		episodes = new long[count];
+		rewards = new int[count];
+		dones = new boolean[count];
+		actions = new int[count];
+		reset();
+		width = games[0].getBoardWidth();
+		height = games[0].getBoardHeight();
+		observationSize = width*height + 4;
+		observations = new int[count * observationSize];
+		for (int i = 0; i < count; i++) {
+			writeObservation(i);
+		}
+
+		int shards = Math.max(1, Math.min(threads, count));
+		phaser = new Phaser(shards);
+		workers = new Thread[shards-1];
+		for (int s = 1; s < shards; s++) {
+			int shard = s;
+			workers[s-1] = new Thread(() -> runWorker(shard, shards), "batch-environment-" + s);
+			workers[s-1].setDaemon(true);
+			workers[s-1].start();
+		}
+	}
+
+	/**
+	 * Constructs a new BatchEnvironment with the given number of games, using a shard for every available processor.
+	 * @param count the number of games in the batch
+	 * @param seed the seed of the batch
+	 */
+	public BatchEnvironment(int count, long seed) {
+		this(count, seed, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns the number of games in the batch.
+	 * @return the number of games
+	 */
+	public int size() {
+		return games.length;
+	}
+
+	/**
+	 * Returns the size of the observation of a single game.
+	 * @return the number of values in one observation
+	 */
+	public int getObservationSize() {
+		return observationSize;
+	}
+
+	/**
+	 * Returns the observations of all games. The array is reused, and updated by every step.
+	 * @return the observations of all games
+	 */
+	public int[] getObservations() {
+		return observations;
+	}
+
+	/**
+	 * Returns the rewards of the last step. The array is reused, and updated by every step.
+	 * @return the rewards of all games
+	 */
+	public int[] getRewards() {
+		return rewards;
+	}
+
+	/**
+	 * Returns the done flags of the last step. The array is reused, and updated by every step.
+	 * @return the done flags of all games
+	 */
+	public boolean[] getDones() {
+		return dones;
+	}
+
+	/**
+	 * Returns the number of actions that can be given to a game, the indices of the Tetris.Action values.
+	 * @return the number of actions
+	 */
+	public static int getActionCount() {
+		return ACTIONS.length;
+	}
+
+	/**
+	 * Restarts every game in the batch, with the episode counters starting over.
+	 */
+	public void reset() {
+		for (int i = 0; i < games.length; i++) {
+			episodes[i] = 0;
+			restart(i);
+		}
+		if (observations != null) {
+			for (int i = 0; i < games.length; i++) {
+				writeObservation(i);
+			}
+		}
+	}
+
+	/**
+	 * Applies the given actions to the games of the batch, one action to each game,
+	 * then updates the observations, rewards and done flags. Games that end are restarted.
+	 * Blocks until every shard is stepped.
+	 * @param a the indices of the actions to apply, one for each game
+	 * @throws IllegalStateException if stepping a shard failed, now or in an earlier step
+	 */
+	public void step(int[] a) {
+		if (failure != null) throw new IllegalStateException("An earlier step of the batch failed", failure);
+		System.arraycopy(a, 0, actions, 0, actions.length);
+		phaser.arriveAndAwaitAdvance();
+		stepShard(0, workers.length+1);
+		phaser.arriveAndAwaitAdvance();
+		if (failure != null) throw new IllegalStateException("Stepping the batch failed", failure);
+	}
+
+	/**
+	 * Stops the worker threads. The environment can not be stepped after it is closed.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		phaser.arriveAndDeregister();
+	}
+
+	/**
+	 * The loop of a worker thread, stepping its shard every time it is released, until the environment is closed.
+	 * @param shard the index of the shard of the worker
+	 * @param shards the number of shards
+	 */
+	private void runWorker(int shard, int shards) {
+		while (true) {
+			phaser.arriveAndAwaitAdvance();
+			if (closed) {
+				phaser.arriveAndDeregister();
+				return;
+			}
+			stepShard(shard, shards);
+			phaser.arriveAndAwaitAdvance();
+		}
+	}
+
+	/**
+	 * Steps every game that belongs to the given shard. Each shard is a contiguous range of games,
+	 * so the threads write to separate parts of the shared arrays.
+	 * An exception is kept for step() to throw instead of being thrown, so the thread still arrives at the Phaser and the other threads are not left waiting.
+	 * @param shard the index of the shard
+	 * @param shards the number of shards
+	 */
+	private void stepShard(int shard, int shards) {
+		try {
+			stepGames(shard, shards);
+		} catch (RuntimeException | Error e) {
+			synchronized (this) {
+				if (failure == null) failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Steps every game that belongs to the given shard, as stepShard().
+	 * @param shard the index of the shard
+	 * @param shards the number of shards
+	 */
+	private void stepGames(int shard, int shards) {
+		int end = games.length * (shard+1) / shards;
+		for (int i = games.length * shard / shards; i < end; i++) {
+			Tetris t = games[i];
+			int before = t.getScore();
+			boolean running = t.apply(ACTIONS[actions[i]]);
+			rewards[i] = t.getScore() - before;
+			dones[i] = !running;
+			if (!running) restart(i);
+			writeObservation(i);
+		}
+	}
+
+	/**
+	 * Starts a new game in the given place of the batch, with a seed derived from the seed of the batch,
+	 * the index of the game and the number of times it has been restarted.
+	 * @param i the index of the game
+	 */
+	private void restart(int i) {
+		games[i] = new Tetris(new Random(seed + i + episodes[i]*games.length));
+		episodes[i]++;
+	}
+
+	/**
+	 * Writes the observation of the given game into its place in the observations array.
+	 * @param i the index of the game
+	 */
+	private void writeObservation(int i) {
+		Tetris t = games[i];
+		Board board = t.getBoard();
+		int offset = i * observationSize;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				observations[offset + y*width + x] = board.isFilled(x, y) ? CELL_FILLED : CELL_EMPTY;
+			}
+		}
+		for (Point mino : t.getPiece().getMinoArray()) {
+			int x = t.getPieceX() + mino.x;
+			int y = t.getPieceY() + mino.y;
+			if (y < height) observations[offset + y*width + x] = CELL_PIECE;
+		}
+		observations[offset + width*height] = t.getPiece().getShape().ordinal();
+		observations[offset + width*height + 1] = t.getNextPiece().getShape().ordinal();
+		observations[offset + width*height + 2] = t.getScore();
+		observations[offset + width*height + 3] = t.getHeldShape();
+	}
+}
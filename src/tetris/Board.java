@@ -8,31 +8,44 @@ import gui.TetrisApp;
 
 /**
  * The Board class represents the game board in Tetris, which is a grid of cells that can be filled by Tetrominos.
+ * Each line is stored as a long bit mask of its filled cells, next to a flat array of the colors of the cells,
+ * so boards can be up to 64 cells wide.
  */
 public class Board {
 	/**
-	 * A private inner class representing a cell in the board, which can be filled with a Tetromino and has a color for drawing.
-	 */
-	private class Cell {
-		/**
-		 * A boolean flag indicating whether the cell is filled with a Tetromino.
-		 */
-		public boolean filled;
-
-		/**
-		 * The color of the cell, which is the background color if the cell is empty,
-		 * and the color of the Tetromino that filled it if not.
-		 */
-		public Color color;
-		
-		/**
-		 * Constructs a new empty cell with the background color.
-		 */
-		public Cell () {
-			filled = false;
-			color = TetrisApp.BACKGROUND_COLOR.brighter();
-		}
-	}
+	 * The default width and visible height of the board, 10x24 as in the original Tetris game.
+	 */
+	public static final int DEFAULT_WIDTH = 10, DEFAULT_HEIGHT = 24;
+
+	/**
+	 * The largest width of a board, the number of bits in the long mask of a line.
+	 */
+	public static final int MAX_WIDTH = 64;
+
+	/**
+	 * The largest visible height of a board, so every line including the hidden ones can be numbered in one byte.
+	 */
+	public static final int MAX_HEIGHT = 250;
+
+	/**
+	 * The smallest width and visible height of a board, so every piece fits when it spawns.
+	 */
+	public static final int MIN_SIZE = 4;
+
+	/**
+	 * The number of hidden lines above the visible board, where pieces spawn and the stack tops out.
+	 */
+	private static final int HIDDEN_LINES = 4;
+
+	/**
+	 * The color of the empty cells of the board.
+	 */
+	private static final Color EMPTY_COLOR = TetrisApp.BACKGROUND_COLOR.brighter();
+
+	/**
+	 * The color of the garbage lines sent by opponents in a versus game.
+	 */
+	private static final Color GARBAGE_COLOR = Color.GRAY;
 
 	/**
 	 * The width of the board in cells.
@@ -40,26 +53,85 @@ public class Board {
 	private int width;
 	
 	/**
-	 * The height of the board in cells, including 4 hidden buffer rows at the top.
+	 * The height of the board in cells, including the 4 hidden buffer rows at the top.
 	 */
 	private int height;
-	
+
+	/**
+	 * The mask of a completely filled line, with the lowest width bits set.
+	 */
+	private long fullLine;
+
+	/**
+	 * The lines of the board as bit masks, where bit x of a line is set if the cell in column x is filled.
+	 * The array is a ring buffer: line y of the board is stored at index (bottom + y) % height,
+	 * so a line can be added at the bottom by moving the start of the ring instead of shifting every line up.
+	 */
+	private long[] lines;
+
+	/**
+	 * The colors of the cells, with the cell in column x of the line at index i of the ring stored at i*width + x.
+	 * Only the colors of filled cells are meaningful.
+	 */
+	private Color[] colors;
+
 	/**
-	 * A list of lists of cells representing the board, with the first index being the y-coordinate
-	 * in ascending order and the second the x-coordinate from left to right.
+	 * The index in the ring buffer of the bottom line of the board.
 	 */
-	private List<List<Cell>> lines;
+	private int bottom;
+
+	/**
+	 * The height of each column, which is the y-coordinate of the highest filled cell in the column plus one,
+	 * or 0 for an empty column. Every cell at or above the height of its column is empty.
+	 */
+	private int[] columnHeights;
 	
 	/**
 	 * Constructs a new Board object with the default width and height, 10x24 as in the original Tetris game.
 	 * Adds 4 hidden rows at the top of the board to allow the spawning of new Tetrominos and for death to occur.
 	 */
 	protected Board () {
-		width = 10;
-		height = 24+4;
+		this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+	}
+
+	/**
+	 * Constructs a new Board object with the given width and visible height, plus the 4 hidden rows at the top.
+	 * @param width the width of the board, from MIN_SIZE to MAX_WIDTH
+	 * @param height the visible height of the board, from MIN_SIZE to MAX_HEIGHT
+	 * @throws IllegalArgumentException if the width or the height is out of range
+	 */
+	protected Board (int width, int height) {
+		if (width < MIN_SIZE || width > MAX_WIDTH || height < MIN_SIZE || height > MAX_HEIGHT) {
+			throw new IllegalArgumentException("Board size " + width + "x" + height + " is out of range");
+		}
+		this.width = width;
+		this.height = height + HIDDEN_LINES;
 		initEmptyBoard();
 	}
 	
+	/**
+	 * Returns a copy of the board, with the same cells filled with the same colors.
+	 * Changing the copy does not change the original board.
+	 * @return the copy of the board
+	 */
+	protected Board copy() {
+		Board out = new Board(width, getHeight());
+		copyTo(out);
+		return out;
+	}
+
+	/**
+	 * Copies the cells of the board into the given board, which must have the same size, which is then the same as this one,
+	 * without allocating anything.
+	 * @param out the board to copy into
+	 */
+	protected void copyTo(Board out) {
+		System.arraycopy(lines, 0, out.lines, 0, height);
+		System.arraycopy(colors, 0, out.colors, 0, colors.length);
+		System.arraycopy(columnHeights, 0, out.columnHeights, 0, width);
+		out.bottom = bottom;
+	}
+
 	/**
 	 * Returns the width of the board in cells.
 	 * @return the width of the board
@@ -73,21 +145,54 @@ public class Board {
 	 * @return the playable height of the board
 	 */
 	protected int getHeight() {
-		return height-4;
+		return height-HIDDEN_LINES;
 	}
 	
+	/**
+	 * Checks if the cell at the given coordinates is filled.
+	 * @param x the x-coordinate of the cell
+	 * @param y the y-coordinate of the cell
+	 * @return true if the cell is filled, false otherwise
+	 */
+	protected boolean isFilled(int x, int y) {
+		return (lines[index(y)] >>> x & 1) != 0;
+	}
+
+	/**
+	 * Returns the line at the given height as a bit mask, where bit x is set if the cell in column x is filled.
+	 * @param y the y-coordinate of the line
+	 * @return the mask of the filled cells of the line
+	 */
+	protected long getLine(int y) {
+		return lines[index(y)];
+	}
+
+	/**
+	 * Returns the height of the given column, which is the y-coordinate of its highest filled cell plus one.
+	 * Every cell at or above this height is empty.
+	 * @param x the x-coordinate of the column
+	 * @return the height of the column, 0 if the column is empty
+	 */
+	protected int getColumnHeight(int x) {
+		return columnHeights[x];
+	}
+
 	/**
 	 * Checks if the given Tetromino piece collides with the current state of the board
-	 * at the given (x, y) origin position, using the relative coordinates of its minos.
+	 * at the given (x, y) origin position, using the row masks of its minos.
+	 * Each row of the piece is shifted into place and tested against a line at once, so a test takes at most 4 line reads,
+	 * which keeps trying the kicks of a rotation cheap.
 	 * @param piece the Tetromino piece to check for collision
 	 * @param x the x-coordinate of the origin for the Tetromino's position
 	 * @param y the y-coordinate of the origin for the Tetromino's position
 	 * @return true if the piece collides with the board or is out of bounds, false otherwise
 	 */
 	protected boolean collides(Tetromino piece, int x, int y) {
-		for (Point mino : piece.getMinos()) {
-			if (y + mino.y < 0 || x + mino.x < 0 || x + mino.x >= width) return true;
-			if (lines.get(y+mino.y).get(x+mino.x).filled) return true;
+		int left = x + piece.getMinX(), bottomRow = y + piece.getMinY();
+		long[] masks = piece.getRowMasks();
+		if (left < 0 || x + piece.getMaxX() >= width || bottomRow < 0 || bottomRow + masks.length > height) return true;
+		for (int r = 0; r < masks.length; r++) {
+			if ((lines[index(bottomRow + r)] & masks[r] << left) != 0) return true;
 		}
 		return false;
 	}
@@ -101,9 +206,11 @@ public class Board {
 	 * @param y the y-coordinate of the origin for the Tetromino's position
 	 */
 	protected void placePiece(Tetromino piece, int x, int y) {
-		for (Point mino : piece.getMinos()) {
-			lines.get(y+mino.y).get(x+mino.x).filled = true;
-			lines.get(y+mino.y).get(x+mino.x).color = piece.getColor();
+		for (Point mino : piece.getMinoArray()) {
+			int i = index(y+mino.y);
+			lines[i] |= 1L << (x+mino.x);
+			colors[i*width + x+mino.x] = piece.getColor();
+			columnHeights[x+mino.x] = Math.max(columnHeights[x+mino.x], y+mino.y+1);
 		}
 	}
 	
@@ -111,18 +218,52 @@ public class Board {
 	 * Clears all lines that are completely filled with Tetrominos, removing them from the board
 	 * which results in the pieces above them being dropped down, and adding new empty lines
 	 * at the top to keep the height of the board constant.
+	 * The lines that are kept are moved down over the cleared ones in a single pass from the bottom.
 	 * @return the number of lines that were cleared
 	 */
 	protected int clearFilledLines() {
-		int cleared = 0;
-		for (int y = getHeight(); y >= 0; y--) {
-			if (lines.get(y).stream().allMatch(cell -> cell.filled)) {
-				removeLine(y);
-				cleared++;
+		int kept = 0;
+		for (int y = 0; y < height; y++) {
+			int from = index(y);
+			if (lines[from] == fullLine) continue;
+			if (kept != y) {
+				int to = index(kept);
+				lines[to] = lines[from];
+				System.arraycopy(colors, from*width, colors, to*width, width);
 			}
+			kept++;
+		}
+		int cleared = height - kept;
+		for (int y = kept; y < height; y++) {
+			lines[index(y)] = 0;
 		}
+		if (cleared > 0) updateColumnHeights();
 		return cleared;
 	}
+
+	/**
+	 * Adds the given number of garbage lines at the bottom of the board, pushing every line above them up.
+	 * Every garbage line is filled except for the cell in the hole column.
+	 * Each line is added by moving the bottom of the ring buffer down by one, which takes the place of the top line,
+	 * so the cost does not depend on the height of the board.
+	 * Lines are only added while the top line is empty, since a filled top line can not be pushed any higher.
+	 * @param count the number of garbage lines to add
+	 * @param hole the x-coordinate of the empty cell of the garbage lines
+	 * @return true if every line was added, false if the stack was pushed out of the top of the board
+	 */
+	protected boolean addGarbage(int count, int hole) {
+		for (int n = 0; n < count; n++) {
+			int top = index(height-1);
+			if (lines[top] != 0) return false;
+			bottom = top;
+			lines[bottom] = fullLine & ~(1L << hole);
+			Arrays.fill(colors, bottom*width, bottom*width + width, GARBAGE_COLOR);
+			for (int x = 0; x < width; x++) {
+				if (x != hole || columnHeights[x] > 0) columnHeights[x]++;
+			}
+		}
+		return true;
+	}
 	
 	/**
 	 * Checks if any lines above the playable height of the board have any filled cells in them,
@@ -131,52 +272,82 @@ public class Board {
 	 */
 	protected boolean isDead() {
 		for (int y = getHeight(); y < height; y++) {
-			if (lines.get(y).stream().anyMatch(cell -> cell.filled)) return true;
+			if (lines[index(y)] != 0) return true;
 		}
 		return false;
 	}
 	
 	/**
-	 * Initializes the board with empty cells, filling the entire grid with empty cells.
+	 * Initializes the board with empty lines, filling the entire grid with empty cells.
 	 */
 	private void initEmptyBoard() {
-		lines = new ArrayList<>();
-		for (int i = 0; i < height; i++) {
-			addEmptyLine();
-		}
+		fullLine = -1L >>> (MAX_WIDTH - width);
+		lines = new long[height];
+		colors = new Color[height*width];
+		bottom = 0;
+		columnHeights = new int[width];
 	}
-	
+
 	/**
-	 * Removes the line at the given height from the board, shifting all lines above it down by one.
-	 * Adds an empty line at the top of the board to keep the height constant.
-	 * @param h the height of the line to remove
+	 * Returns the index in the ring buffer of the line at the given height.
+	 * The ring buffer only wraps once, so a line outside of the board would silently map to another line, which is asserted against.
+	 * @param y the y-coordinate of the line, between 0 and the full height of the board
+	 * @return the index of the line in the lines array
 	 */
-	private void removeLine(int h) {
-		lines.remove(h);
-		addEmptyLine();
+	private int index(int y) {
+		assert 0 <= y && y < height : "line " + y + " is outside of the board";
+		int i = bottom + y;
+		return i >= height ? i - height : i;
 	}
-	
+
 	/**
-	 * Adds a new empty line at the top of the board, filling it with empty cells.
+	 * Recalculates the height of every column, by finding the highest filled cell in it.
 	 */
-	private void addEmptyLine() {
-		List<Cell> newRow = new ArrayList<>();
-		for (int j = 0; j < width; j++) {
-			newRow.add(new Cell());
+	private void updateColumnHeights() {
+		Arrays.fill(columnHeights, 0);
+		long found = 0;
+		for (int y = height-1; y >= 0 && found != fullLine; y--) {
+			long newColumns = lines[index(y)] & ~found;
+			found |= newColumns;
+			while (newColumns != 0) {
+				columnHeights[Long.numberOfTrailingZeros(newColumns)] = y+1;
+				newColumns &= newColumns - 1;
+			}
 		}
-		lines.add(newRow);
 	}
-	
+
 	/**
-	 * Draws the board on the given Graphics object, using the given square size to scale the cells.
+	 * Draws the filled cells of the board on the given Graphics object, using the given square size to scale the cells.
+	 * Empty cells are not drawn, they are expected to be drawn once with drawBackground(), and the filled cells drawn over them.
+	 * Only the lines up to the highest column are checked, since every line above it is empty.
 	 * Origin is at the top-left corner, with the x-axis increasing to the right and the y-axis increasing downwards.
-	 * @param g
-	 * @param squareSize
+	 * @param g the Graphics object to draw on
+	 * @param squareSize the size of each cell in pixels
 	 */
 	public void drawBoard(Graphics g, int squareSize) {
+		int top = 0;
+		for (int columnHeight : columnHeights) {
+			top = Math.max(top, columnHeight);
+		}
+		for (int y = 0; y < Math.min(top, getHeight()); y++) {
+			int i = index(y);
+			for (long line = lines[i]; line != 0; line &= line - 1) {
+				int x = Long.numberOfTrailingZeros(line);
+				Tetromino.drawMino(g, x*squareSize, y*squareSize, colors[i*width + x], squareSize);
+			}
+		}
+	}
+
+	/**
+	 * Draws every visible cell of the board as an empty cell, which is the background the filled cells are drawn over.
+	 * Does not depend on the state of the board, so it can be drawn once and reused.
+	 * @param g the Graphics object to draw on
+	 * @param squareSize the size of each cell in pixels
+	 */
+	public void drawBackground(Graphics g, int squareSize) {
 		for (int y = 0; y < getHeight(); y++) {
 			for (int x = 0; x < width; x++) {
-				Tetromino.drawMino(g, x*squareSize, y*squareSize, lines.get(y).get(x).color, squareSize);
+				Tetromino.drawMino(g, x*squareSize, y*squareSize, EMPTY_COLOR, squareSize);
 			}
 		}
 	}
@@ -0,0 +1,88 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * The BoardBenchmark class measures how the speed of the game scales with the size of the board.
+ * For every size, it plays games of random moves and drops, which measures the engine alone,
+ * and games of the computer Player, which copies and evaluates the board for every placement it considers.
+ * Games that end are restarted, so every size places the same number of pieces.
+ * Usage: BoardBenchmark [pieces] [width]x[height]...
+ */
+public class BoardBenchmark {
+	/**
+	 * The sizes measured when none are given, from the default board up to the largest.
+	 */
+	private static final int[][] DEFAULT_SIZES = {{10, 24}, {20, 40}, {32, 64}, {64, 64}, {64, 250}};
+
+	/**
+	 * The weights of the computer player.
+	 */
+	private static final double[] WEIGHTS = {-0.51, 0.76, -0.36, -0.18};
+
+	/**
+	 * Runs the benchmark from the command line, and prints the pieces placed per second for every size.
+	 * @param args the number of pieces to place for every size and kind of game, 5000 by default, and the sizes to measure
+	 */
+	public static void main(String[] args) {
+		int pieces = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int[][] sizes = DEFAULT_SIZES;
+		if (args.length > 1) {
+			sizes = new int[args.length-1][];
+			for (int i = 1; i < args.length; i++) {
+				String[] size = args[i].split("x");
+				sizes[i-1] = new int[] {Integer.parseInt(size[0]), Integer.parseInt(size[1])};
+			}
+		}
+		for (int[] size : sizes) {
+			randomMoves(size[0], size[1], pieces);
+			playerMoves(size[0], size[1], pieces / 10);
+		}
+		for (int[] size : sizes) {
+			long random = randomMoves(size[0], size[1], pieces);
+			long player = playerMoves(size[0], size[1], pieces / 10);
+			System.out.printf("%3dx%-3d | random moves: %,10.0f pieces/s | player: %,8.0f pieces/s%n",
+					size[0], size[1], pieces * 1e9 / random, pieces / 10 * 1e9 / player);
+		}
+	}
+
+	/**
+	 * Places the given number of pieces on boards of the given size, each after a few random moves.
+	 * @param width the width of the board
+	 * @param height the visible height of the board
+	 * @param pieces the number of pieces to place
+	 * @return the time taken in nanoseconds
+	 */
+	private static long randomMoves(int width, int height, int pieces) {
+		Random moves = new Random(1);
+		Tetris.Action[] actions = Tetris.Action.values();
+		long start = System.nanoTime();
+		Tetris t = new Tetris(new Random(0), width, height);
+		for (int placed = 0; placed < pieces; placed++) {
+			if (t.isGameOver()) t = new Tetris(new Random(placed), width, height);
+			for (int m = moves.nextInt(8); m > 0; m--) {
+				t.apply(actions[moves.nextInt(Tetris.Action.DROP.ordinal())]);
+			}
+			t.drop();
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Places the given number of pieces on boards of the given size with the computer player.
+	 * @param width the width of the board
+	 * @param height the visible height of the board
+	 * @param pieces the number of pieces to place
+	 * @return the time taken in nanoseconds
+	 */
+	private static long playerMoves(int width, int height, int pieces) {
+		Player player = new Player(WEIGHTS);
+		long start = System.nanoTime();
+		Tetris t = new Tetris(new Random(0), width, height);
+		for (int placed = 0; placed < pieces; placed++) {
+			if (t.isGameOver()) t = new Tetris(new Random(placed), width, height);
+			player.placePiece(t);
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,162 @@
+package tetris;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The FrameDecoder class rebuilds the state of a game from the frames of a FrameEncoder, for a spectator.
+ * Delta frames are ignored until the first keyframe, since they only hold the lines that changed.
+ */
+public class FrameDecoder {
+	/**
+	 * The dimensions of the board, known from the first keyframe.
+	 */
+	private int width, height;
+
+	/**
+	 * The lines of the board as bit masks, where bit x of a line is set if the cell in column x is filled.
+	 */
+	private long[] lines;
+
+	/**
+	 * The state of the game in the last frame.
+	 */
+	private int tick, score, level, shape, pieceX, pieceY, rotation;
+
+	/**
+	 * Whether the game in the last frame was over.
+	 */
+	private boolean gameOver;
+
+	/**
+	 * Reads the next frame from the given buffer, starting at its length, and applies it to the state of the game.
+	 * The whole frame is consumed even if it is ignored.
+	 * @param in the buffer holding the frame
+	 * @return true if the frame was applied, false if it is a delta frame and no keyframe was read yet
+	 */
+	public boolean decode(ByteBuffer in) {
+		int end = in.position() + 2 + (in.getShort() & 0xFFFF);
+		int flags = in.get();
+		if ((flags & FrameEncoder.KEYFRAME) == 0 && lines == null) {
+			in.position(end);
+			return false;
+		}
+		gameOver = (flags & FrameEncoder.GAME_OVER) != 0;
+		tick = in.getInt();
+		score = in.getInt();
+		level = in.get();
+		shape = in.get();
+		pieceX = in.get() & 0xFF;
+		pieceY = in.get() & 0xFF;
+		rotation = in.get();
+		if ((flags & FrameEncoder.KEYFRAME) != 0) {
+			width = in.get() & 0xFF;
+			height = in.get() & 0xFF;
+			lines = new long[height];
+		}
+		int count = in.get() & 0xFF;
+		int maskBytes = (width+7)/8;
+		for (int i = 0; i < count; i++) {
+			int y = in.get() & 0xFF;
+			long line = 0;
+			for (int b = 0; b < maskBytes; b++) {
+				line |= (in.get() & 0xFFL) << 8*b;
+			}
+			lines[y] = line;
+		}
+		in.position(end);
+		return true;
+	}
+
+	/**
+	 * Returns whether a keyframe was read, so the state of the game is known.
+	 * @return true if the state is known, false otherwise
+	 */
+	public boolean isSynced() {
+		return lines != null;
+	}
+
+	/**
+	 * Returns the width of the board.
+	 * @return the width of the board
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the visible height of the board.
+	 * @return the height of the board
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the line at the given height as a bit mask, where bit x is set if the cell in column x is filled.
+	 * @param y the y-coordinate of the line
+	 * @return the mask of the filled cells of the line
+	 */
+	public long getLine(int y) {
+		return lines[y];
+	}
+
+	/**
+	 * Returns the tick of the game in the last frame.
+	 * @return the tick of the last frame
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns the score of the game.
+	 * @return the score
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the level of the game.
+	 * @return the level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns whether the game is over.
+	 * @return true if the game is over, false otherwise
+	 */
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+	/**
+	 * Returns the x-coordinate of the origin of the current piece.
+	 * @return the x-coordinate of the piece
+	 */
+	public int getPieceX() {
+		return pieceX;
+	}
+
+	/**
+	 * Returns the y-coordinate of the origin of the current piece.
+	 * @return the y-coordinate of the piece
+	 */
+	public int getPieceY() {
+		return pieceY;
+	}
+
+	/**
+	 * Returns the current piece, in its current rotation.
+	 * @return the current piece
+	 */
+	protected Tetromino getPiece() {
+		Tetromino piece = new Tetromino(Tetromino.Shape.values()[shape]);
+		for (int r = 0; r < rotation; r++) {
+			piece = piece.rotatedRight();
+		}
+		return piece;
+	}
+}
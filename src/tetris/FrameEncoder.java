@@ -0,0 +1,132 @@
+package tetris;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The FrameEncoder class encodes the state of a game into compact binary frames, to stream it to spectators.
+ * A keyframe holds the whole visible board, and a delta frame only the lines that changed since the previous frame,
+ * along with the current piece, score and level. A tick where nothing changed produces no frame at all.
+ * A FrameDecoder rebuilds the state of the game from a keyframe followed by the delta frames after it.
+ *
+ * Every frame starts with its length in two bytes, not counting the length itself, so frames can be read from a stream.
+ * Then follow the flags (KEYFRAME, GAME_OVER) in one byte, the tick as an int, the score as an int, the level in one byte,
+ * and the shape, x, y and rotation of the current piece in one unsigned byte each.
+ * A keyframe then has the width and the visible height of the board in one byte each.
+ * Last come the number of lines in the frame in one byte, and for each of them its y-coordinate in one byte,
+ * followed by its mask of filled cells in (width+7)/8 bytes, lowest column first, so a line of a board up to 64 wide takes at most 9 bytes.
+ */
+public class FrameEncoder {
+	/**
+	 * The flag of a frame that holds every line of the board.
+	 */
+	public static final int KEYFRAME = 1;
+
+	/**
+	 * The flag of a frame of a game that is over.
+	 */
+	public static final int GAME_OVER = 2;
+
+	/**
+	 * The number of bytes of a frame before its lines, including the length and the dimensions of a keyframe.
+	 */
+	private static final int HEADER_SIZE = 2 + 1 + 4 + 4 + 1 + 4 + 2 + 1;
+
+	/**
+	 * The lines of the board in the last frame, which the lines of the next delta frame are compared to.
+	 */
+	private long[] lines;
+
+	/**
+	 * The state of the game in the last frame.
+	 */
+	private int score, level, shape, pieceX, pieceY, rotation;
+
+	/**
+	 * Whether the game was over in the last frame.
+	 */
+	private boolean gameOver;
+
+	/**
+	 * The number of times encode() was called, including the ticks that produced no frame.
+	 */
+	private int tick;
+
+	/**
+	 * Returns the largest number of bytes a frame of a board of the given size can take.
+	 * @param width the width of the board
+	 * @param height the visible height of the board
+	 * @return the maximum size of a frame
+	 */
+	public static int maxFrameSize(int width, int height) {
+		return HEADER_SIZE + height * (1 + (width+7)/8);
+	}
+
+	/**
+	 * Encodes the current state of the given game into the given buffer, as a keyframe if one is asked for,
+	 * or as a delta frame from the last frame encoded. The first frame is always a keyframe.
+	 * If nothing changed since the last frame and no keyframe is asked for, nothing is written.
+	 * The buffer must have room for maxFrameSize() bytes.
+	 * @param tetris the game to encode, always the same one
+	 * @param out the buffer to write the frame into
+	 * @param keyframe whether to write the whole board
+	 * @return true if a frame was written, false if nothing changed
+	 */
+	public boolean encode(Tetris tetris, ByteBuffer out, boolean keyframe) {
+		tick++;
+		Board board = tetris.getBoard();
+		int width = board.getWidth(), height = board.getHeight();
+		if (lines == null || lines.length != height) {
+			lines = new long[height];
+			keyframe = true;
+		}
+		Tetromino piece = tetris.getPiece();
+		int newShape = piece.getShape().ordinal(), newRotation = piece.getRotation();
+		int newX = tetris.getPieceX(), newY = tetris.getPieceY();
+
+		boolean changed = keyframe || tetris.getScore() != score || tetris.getGameSpeed() != level || tetris.isGameOver() != gameOver
+				|| newShape != shape || newX != pieceX || newY != pieceY || newRotation != rotation;
+		for (int y = 0; y < height && !changed; y++) {
+			changed = board.getLine(y) != lines[y];
+		}
+		if (!changed) return false;
+
+		score = tetris.getScore();
+		gameOver = tetris.isGameOver();
+		level = tetris.getGameSpeed();
+		shape = newShape;
+		pieceX = newX;
+		pieceY = newY;
+		rotation = newRotation;
+
+		int start = out.position();
+		out.putShort((short) 0);
+		out.put((byte) ((keyframe ? KEYFRAME : 0) | (gameOver ? GAME_OVER : 0)));
+		out.putInt(tick);
+		out.putInt(score);
+		out.put((byte) level);
+		out.put((byte) shape);
+		out.put((byte) pieceX);
+		out.put((byte) pieceY);
+		out.put((byte) rotation);
+		if (keyframe) {
+			out.put((byte) width);
+			out.put((byte) height);
+		}
+		int countAt = out.position(), count = 0;
+		out.put((byte) 0);
+		int maskBytes = (width+7)/8;
+		for (int y = 0; y < height; y++) {
+			long line = board.getLine(y);
+			if (!keyframe && line == lines[y]) continue;
+			lines[y] = line;
+			out.put((byte) y);
+			for (int b = 0; b < maskBytes; b++) {
+				out.put((byte) (line >>> 8*b));
+			}
+			count++;
+		}
+		out.put(countAt, (byte) count);
+		out.putShort(start, (short) (out.position() - start - 2));
+		return true;
+	}
+}
@@ -0,0 +1,109 @@
+package tetris;
+
+import java.util.Arrays;
+
+/**
+ * The GameEventBus class carries the events a Tetris game publishes to the listeners that react to them,
+ * so the user interface, the audio and the statistics only do work when something changes, instead of polling the game every tick.
+ * Publishing writes the event and its value into a preallocated ring buffer, so the game never allocates or calls out to listeners.
+ * The events are delivered when the thread running the game calls dispatch(), after it is done changing the game.
+ * If more events are published than fit in the buffer before they are dispatched, the oldest ones are overwritten.
+ */
+public class GameEventBus {
+	/**
+	 * The Listener interface is implemented by everything that reacts to the events of a game.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * Called for every event that is dispatched.
+		 * @param event the type of the event
+		 * @param value the value of the event, whose meaning depends on its type
+		 */
+		void onEvent(Tetris.Event event, int value);
+	}
+
+	/**
+	 * The events in the order of their indices, cached because Event.values() creates a new array every call.
+	 */
+	private static final Tetris.Event[] EVENTS = Tetris.Event.values();
+
+	/**
+	 * The indices of the types of the buffered events.
+	 */
+	private int[] types;
+
+	/**
+	 * The values of the buffered events.
+	 */
+	private int[] values;
+
+	/**
+	 * A mask for the indices of the ring buffer, whose size is a power of two.
+	 */
+	private int mask;
+
+	/**
+	 * The number of events published, and the number of events dispatched or overwritten.
+	 */
+	private long tail, head;
+
+	/**
+	 * The listeners the events are dispatched to, in the order they subscribed.
+	 */
+	private Listener[] listeners;
+
+	/**
+	 * Constructs a new GameEventBus with room for at least the given number of events between dispatches.
+	 * @param capacity the minimum number of events the buffer can hold
+	 */
+	public GameEventBus(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		types = new int[size];
+		values = new int[size];
+		mask = size - 1;
+		listeners = new Listener[0];
+	}
+
+	/**
+	 * Adds a listener that every event dispatched from now on is delivered to.
+	 * @param listener the listener to add
+	 */
+	public void subscribe(Listener listener) {
+		listeners = Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+	}
+
+	/**
+	 * Adds an event to the buffer, overwriting the oldest buffered event if the buffer is full.
+	 * @param event the type of the event
+	 * @param value the value of the event
+	 */
+	public void publish(Tetris.Event event, int value) {
+		if (tail - head > mask) head++;
+		int index = (int) (tail & mask);
+		types[index] = event.ordinal();
+		values[index] = value;
+		tail++;
+	}
+
+	/**
+	 * Delivers every buffered event to every listener, in the order they were published, and empties the buffer.
+	 * Events published by a listener during the dispatch are delivered in the same dispatch.
+	 * @return the number of events delivered
+	 */
+	public int dispatch() {
+		int count = 0;
+		while (head < tail) {
+			int index = (int) (head & mask);
+			Tetris.Event event = EVENTS[types[index]];
+			int value = values[index];
+			head++;
+			count++;
+			for (Listener listener : listeners) {
+				listener.onEvent(event, value);
+			}
+		}
+		return count;
+	}
+}
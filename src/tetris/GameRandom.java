@@ -0,0 +1,94 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * The GameRandom class is a Random whose whole state is one long that can be read and set, so a game using it can be saved and restored.
+ * It uses the same linear congruential generator as java.util.Random, so the same seed gives the same numbers,
+ * and games started from a seed have the same pieces as before.
+ */
+public class GameRandom extends Random {
+	/**
+	 * The multiplier and the addend of the generator, the same as in java.util.Random.
+	 */
+	private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL;
+
+	/**
+	 * The mask of the 48 bits of the state.
+	 */
+	private static final long MASK = (1L << 48) - 1;
+
+	/**
+	 * The state of the generator. It has no initializer, because it is set by the constructor of Random through setSeed().
+	 */
+	private long state;
+
+	/**
+	 * Constructs a new GameRandom with the given seed.
+	 * @param seed the seed
+	 */
+	public GameRandom(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Sets the seed of the generator, scrambled the same way as in java.util.Random.
+	 * @param seed the seed
+	 */
+	@Override
+	public void setSeed(long seed) {
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	/**
+	 * Returns the state of the generator, which can be given to setState() to repeat the numbers after this point.
+	 * @return the state
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/**
+	 * Sets the state of the generator to one returned by getState().
+	 * @param state the state
+	 */
+	public void setState(long state) {
+		this.state = state;
+	}
+
+	/**
+	 * Returns a new GameRandom in the same state as the given one, which gives the same numbers from now on.
+	 * @param random the generator to copy
+	 * @return the copy of the generator
+	 * @throws IllegalStateException if the generator is not a GameRandom, whose state can not be read
+	 */
+	public static GameRandom copyOf(Random random) {
+		GameRandom copy = new GameRandom(0);
+		copyState(random, copy);
+		return copy;
+	}
+
+	/**
+	 * Sets the state of a generator to the state of another one, so both give the same numbers from now on.
+	 * @param from the generator to take the state of
+	 * @param to the generator to set the state of
+	 * @throws IllegalStateException if either generator is not a GameRandom, whose state can not be read
+	 */
+	public static void copyState(Random from, Random to) {
+		if (!(from instanceof GameRandom f) || !(to instanceof GameRandom t)) {
+			throw new IllegalStateException("Only games with a GameRandom can be saved");
+		}
+		t.state = f.state;
+	}
+
+	/**
+	 * Advances the generator and returns the given number of its highest bits, which every other method of Random is built on.
+	 * @param bits the number of bits to return
+	 * @return the random bits
+	 */
+	@Override
+	protected int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+}
@@ -0,0 +1,70 @@
+package tetris;
+
+/**
+ * The GameState class holds a snapshot of a Tetris game, taken with Tetris.saveState() and put back with Tetris.restoreState().
+ * A GameState can be reused for any number of snapshots of games of the same size, so saving does not allocate.
+ * Pieces are not copied, since a Tetromino is never changed once the game holds it.
+ */
+public class GameState {
+	/**
+	 * A copy of the board.
+	 */
+	protected Board board;
+
+	/**
+	 * The current piece.
+	 */
+	protected Tetromino piece;
+
+	/**
+	 * The preview queue of the pieces after the current one, as a ring buffer.
+	 */
+	protected Tetromino[] preview;
+
+	/**
+	 * The index of the next piece in the preview queue.
+	 */
+	protected int previewHead;
+
+	/**
+	 * The piece in the hold slot, or null if no piece was held yet.
+	 */
+	protected Tetromino heldPiece;
+
+	/**
+	 * Whether the hold slot was used since the current piece spawned.
+	 */
+	protected boolean holdUsed;
+
+	/**
+	 * The time passed since the piece last fell, the ticks it has rested on the stack, the restarts of its lock delay, and the lowest row it reached.
+	 */
+	protected int gravityMillis, lockTicks, lockResets, lowestY;
+
+	/**
+	 * The position of the current piece, the score, the lines cleared on the level and in total, and the level.
+	 */
+	protected int pieceX, pieceY, score, linesClearedOnLevel, linesClearedTotal, gameSpeed;
+
+	/**
+	 * A copy of the randomizer, including the state of its random source.
+	 */
+	protected Randomizer randomizer;
+
+	/**
+	 * The number of actions in the replay of the game.
+	 */
+	protected int replayLength;
+
+	/**
+	 * Whether the game was over.
+	 */
+	protected boolean gameOver;
+
+	/**
+	 * Constructs a new empty GameState, to be filled by Tetris.saveState().
+	 */
+	public GameState() {
+		preview = new Tetromino[Tetris.PREVIEW_SIZE];
+	}
+}
@@ -0,0 +1,113 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * The HistoryRandomizer class deals the pieces the way the arcade Tetris: The Grand Master 2 does.
+ * It remembers the last 4 shapes dealt, and rolls a random shape up to 6 times until it gets one that is not among them.
+ * The history starts as Z, S, Z, S, and the first piece is always an I, J, L or T, so the game never starts with an overhang.
+ */
+public class HistoryRandomizer implements Randomizer {
+	/**
+	 * The shapes in the order of their indices, cached because Shape.values() creates a new array every call.
+	 */
+	private static final Tetromino.Shape[] SHAPES = Tetromino.Shape.values();
+
+	/**
+	 * The shapes the first piece is picked from.
+	 */
+	private static final Tetromino.Shape[] FIRST = {Tetromino.Shape.I, Tetromino.Shape.J, Tetromino.Shape.L, Tetromino.Shape.T};
+
+	/**
+	 * The number of times a shape is rolled before the last roll is taken even if it is in the history.
+	 */
+	private static final int ROLLS = 6;
+
+	/**
+	 * The source of the random numbers of the rolls.
+	 */
+	private Random random;
+
+	/**
+	 * The last 4 shapes dealt, in a ring buffer.
+	 */
+	private Tetromino.Shape[] history;
+
+	/**
+	 * The index in the history of the oldest shape, which the next shape dealt replaces.
+	 */
+	private int oldest;
+
+	/**
+	 * Whether the first piece was dealt.
+	 */
+	private boolean started;
+
+	/**
+	 * Constructs a new HistoryRandomizer with the starting history.
+	 * @param random the source of the random numbers
+	 */
+	public HistoryRandomizer(Random random) {
+		this.random = random;
+		history = new Tetromino.Shape[] {Tetromino.Shape.Z, Tetromino.Shape.S, Tetromino.Shape.Z, Tetromino.Shape.S};
+	}
+
+	/**
+	 * Returns the shape of the next piece, and moves on to the one after it.
+	 * @return the shape of the next piece
+	 */
+	@Override
+	public Tetromino.Shape next() {
+		Tetromino.Shape shape;
+		if (!started) {
+			shape = FIRST[random.nextInt(FIRST.length)];
+			started = true;
+		} else {
+			int roll = 0;
+			do {
+				shape = SHAPES[random.nextInt(SHAPES.length)];
+			} while (++roll < ROLLS && inHistory(shape));
+		}
+		history[oldest] = shape;
+		oldest = (oldest + 1) % history.length;
+		return shape;
+	}
+
+	/**
+	 * Returns a new randomizer in the same state as this one.
+	 * @return the copy of the randomizer
+	 * @throws IllegalStateException if the randomizer does not use a GameRandom
+	 */
+	@Override
+	public Randomizer copy() {
+		HistoryRandomizer out = new HistoryRandomizer(GameRandom.copyOf(random));
+		out.set(this);
+		return out;
+	}
+
+	/**
+	 * Sets the state of this randomizer to the state of the given one, without allocating.
+	 * @param other the randomizer to take the state of, which must be of the same class
+	 * @throws IllegalStateException if either randomizer does not use a GameRandom
+	 */
+	@Override
+	public void set(Randomizer other) {
+		HistoryRandomizer o = (HistoryRandomizer) other;
+		GameRandom.copyState(o.random, random);
+		System.arraycopy(o.history, 0, history, 0, history.length);
+		oldest = o.oldest;
+		started = o.started;
+	}
+
+	/**
+	 * Checks if the given shape is one of the last 4 shapes dealt.
+	 * @param shape the shape to check
+	 * @return true if the shape is in the history, false otherwise
+	 */
+	private boolean inHistory(Tetromino.Shape shape) {
+		for (Tetromino.Shape s : history) {
+			if (s == shape) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,165 @@
+package tetris;
+
+/**
+ * The InputController class turns the button presses and releases in an InputQueue into actions on a Tetris game,
+ * once every tick of the game loop, so inputs take effect at the same granularity as the rest of the game.
+ * A newly pressed button applies its action once. Holding the soft drop button applies it again every tick. Holding left or right also repeats the move:
+ * after the delayed auto-shift (DAS) of a number of ticks, the piece moves again every auto-repeat rate (ARR) ticks,
+ * or all the way to the wall if the ARR is 0. The timing only depends on the ticks, not on the key repeat of the system,
+ * and the resulting actions are recorded by the game, so the inputs are replayable.
+ */
+public class InputController {
+	/**
+	 * The actions in the order of their indices, cached because Action.values() creates a new array every call.
+	 */
+	private static final Tetris.Action[] ACTIONS = Tetris.Action.values();
+
+	/**
+	 * The queue the inputs are read from.
+	 */
+	private InputQueue queue;
+
+	/**
+	 * The delayed auto-shift and auto-repeat rate, both in ticks.
+	 */
+	private int das, arr;
+
+	/**
+	 * Whether each button is held, at the end of the last tick and during the current tick, indexed by the ordinal of its action.
+	 */
+	private boolean[] heldBefore, held;
+
+	/**
+	 * Whether each button was newly pressed in the current tick, indexed by the ordinal of its action.
+	 */
+	private boolean[] tapped;
+
+	/**
+	 * The direction the piece is auto-shifted in: -1 for left, 1 for right, 0 if neither is held.
+	 */
+	private int shiftDirection;
+
+	/**
+	 * The number of ticks the button of the current shift direction has been held for.
+	 */
+	private int shiftTicks;
+
+	/**
+	 * The time of the earliest input read in the last tick, or -1 if there was none.
+	 */
+	private long firstInputTime;
+
+	/**
+	 * Constructs a new InputController reading from the given queue, with the given DAS and ARR.
+	 * @param queue the queue the inputs are read from
+	 * @param das the delayed auto-shift in ticks
+	 * @param arr the auto-repeat rate in ticks, 0 to move all the way to the wall
+	 */
+	public InputController(InputQueue queue, int das, int arr) {
+		this.queue = queue;
+		this.das = das;
+		this.arr = arr;
+		heldBefore = new boolean[ACTIONS.length];
+		held = new boolean[ACTIONS.length];
+		tapped = new boolean[ACTIONS.length];
+		firstInputTime = -1;
+	}
+
+	/**
+	 * Sets the delayed auto-shift.
+	 * @param das the delayed auto-shift in ticks
+	 */
+	public void setDas(int das) {
+		this.das = das;
+	}
+
+	/**
+	 * Sets the auto-repeat rate.
+	 * @param arr the auto-repeat rate in ticks, 0 to move all the way to the wall
+	 */
+	public void setArr(int arr) {
+		this.arr = arr;
+	}
+
+	/**
+	 * Returns the time of the earliest input read in the last tick, used to measure the latency from an input to its result.
+	 * @return the time of the input in milliseconds, or -1 if no input was read in the last tick
+	 */
+	public long getFirstInputTime() {
+		return firstInputTime;
+	}
+
+	/**
+	 * Reads every input waiting in the queue, and applies the resulting actions to the given game.
+	 * A button released and pressed again in the same tick counts as held, which filters out the key repeat
+	 * of systems that send a release before every repeated press.
+	 * @param t the game to apply the actions to
+	 * @return a bitmask of the actions applied by newly pressed buttons, with the bit of each action at its ordinal
+	 */
+	public int tick(Tetris t) {
+		System.arraycopy(held, 0, heldBefore, 0, held.length);
+		for (int b = 0; b < tapped.length; b++) {
+			tapped[b] = false;
+		}
+		firstInputTime = -1;
+		while (queue.poll()) {
+			if (firstInputTime < 0) firstInputTime = queue.getPolledTime();
+			int b = queue.getPolledButton();
+			if (queue.isPolledPressed()) {
+				if (!held[b] && !heldBefore[b]) tapped[b] = true;
+				held[b] = true;
+			}
+			else held[b] = false;
+		}
+
+		int applied = 0;
+		for (int b = 0; b < tapped.length; b++) {
+			if (!tapped[b]) continue;
+			t.apply(ACTIONS[b]);
+			applied |= 1 << b;
+		}
+
+		int softDrop = Tetris.Action.SOFT_DROP.ordinal();
+		if (held[softDrop] && !tapped[softDrop]) t.softDrop();
+
+		int left = Tetris.Action.LEFT.ordinal(), right = Tetris.Action.RIGHT.ordinal();
+		if (tapped[left] || tapped[right]) {
+			shiftDirection = tapped[right] ? 1 : -1;
+			shiftTicks = 0;
+		}
+		else if (shiftDirection == -1 && !held[left] || shiftDirection == 1 && !held[right] || shiftDirection == 0) {
+			// the shifting button was released, continue with the other one if it is still held
+			shiftDirection = held[left] ? -1 : held[right] ? 1 : 0;
+			shiftTicks = 0;
+		}
+		else {
+			shiftTicks++;
+			if (shiftTicks >= das) autoShift(t);
+		}
+		return applied;
+	}
+
+	/**
+	 * Moves the piece in the shift direction if the auto-repeat is due in this tick, or to the wall if the ARR is 0.
+	 * @param t the game to apply the moves to
+	 */
+	private void autoShift(Tetris t) {
+		if (arr == 0) {
+			int x;
+			do {
+				x = t.getPieceX();
+				shift(t);
+			} while (t.getPieceX() != x);
+		}
+		else if ((shiftTicks - das) % arr == 0) shift(t);
+	}
+
+	/**
+	 * Moves the piece once in the shift direction.
+	 * @param t the game to apply the move to
+	 */
+	private void shift(Tetris t) {
+		if (shiftDirection < 0) t.moveLeft();
+		else t.moveRight();
+	}
+}
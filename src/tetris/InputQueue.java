@@ -0,0 +1,110 @@
+package tetris;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The InputQueue class passes timestamped button presses and releases from the thread receiving the inputs
+ * to the thread running the game loop, without locks and without allocating objects.
+ * It is a ring buffer for a single producer and a single consumer: the producer only writes the tail,
+ * the consumer only writes the head, and each event is published by the ordered write of the tail.
+ */
+public class InputQueue {
+	/**
+	 * The buttons and states of the events, each stored as the index of the button shifted left by one, plus one if it was pressed.
+	 */
+	private int[] codes;
+
+	/**
+	 * The timestamps of the events in milliseconds.
+	 */
+	private long[] times;
+
+	/**
+	 * A mask for the indices of the ring buffer, whose size is a power of two.
+	 */
+	private int mask;
+
+	/**
+	 * The number of events written by the producer, and the number of events read by the consumer.
+	 */
+	private AtomicLong tail, head;
+
+	/**
+	 * The event read by the last successful call to poll().
+	 */
+	private int polledCode;
+
+	/**
+	 * The timestamp of the event read by the last successful call to poll().
+	 */
+	private long polledTime;
+
+	/**
+	 * Constructs a new InputQueue with room for at least the given number of events.
+	 * @param capacity the minimum number of events the queue can hold
+	 */
+	public InputQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		codes = new int[size];
+		times = new long[size];
+		mask = size - 1;
+		tail = new AtomicLong();
+		head = new AtomicLong();
+	}
+
+	/**
+	 * Adds an event to the queue. Must only be called from the producer thread.
+	 * @param button the button that was pressed or released
+	 * @param pressed true if the button was pressed, false if it was released
+	 * @param time the time of the event in milliseconds
+	 * @return true if the event was added, false if the queue is full
+	 */
+	public boolean offer(Tetris.Action button, boolean pressed, long time) {
+		long t = tail.get();
+		if (t - head.get() > mask) return false;
+		int index = (int) (t & mask);
+		codes[index] = (button.ordinal() << 1) | (pressed ? 1 : 0);
+		times[index] = time;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Removes the oldest event from the queue, making it available through the getters of the polled event.
+	 * Must only be called from the consumer thread.
+	 * @return true if there was an event, false if the queue is empty
+	 */
+	public boolean poll() {
+		long h = head.get();
+		if (h == tail.get()) return false;
+		int index = (int) (h & mask);
+		polledCode = codes[index];
+		polledTime = times[index];
+		head.lazySet(h + 1);
+		return true;
+	}
+
+	/**
+	 * Returns the index of the button of the last polled event, which is the ordinal of its Tetris.Action.
+	 * @return the index of the button
+	 */
+	public int getPolledButton() {
+		return polledCode >> 1;
+	}
+
+	/**
+	 * Returns whether the button of the last polled event was pressed or released.
+	 * @return true if the button was pressed, false if it was released
+	 */
+	public boolean isPolledPressed() {
+		return (polledCode & 1) != 0;
+	}
+
+	/**
+	 * Returns the timestamp of the last polled event.
+	 * @return the time of the event in milliseconds
+	 */
+	public long getPolledTime() {
+		return polledTime;
+	}
+}
@@ -0,0 +1,239 @@
+package tetris;
+
+import java.awt.Point;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The Perft class counts the game states reachable by placing the next pieces of a seeded game,
+ * like the perft function of chess engines counts the positions reachable in a number of moves.
+ * A piece can be placed in every distinct position it can be hard-dropped to, after being rotated and moved at its spawning height.
+ * Placements that end the game do not lead to any further states.
+ * The counts for a seed are fixed by the rules of the game, so they are used to check that changes to Board and Tetromino
+ * keep the rules the same, and the time it takes to count them is used to measure the speed of the engine.
+ */
+public class Perft {
+	/**
+	 * The depth at and above which the parallel count splits a node into a task for each of its placements.
+	 * Smaller subtrees are counted on the thread that reaches them.
+	 */
+	private static final int SPLIT_DEPTH = 2;
+
+	/**
+	 * The shapes of the pieces to place, in the order the seeded game gives them.
+	 */
+	private Tetromino.Shape[] pieces;
+
+	/**
+	 * The board the pieces are placed on, which is not changed by counting.
+	 */
+	private Board start;
+
+	/**
+	 * Constructs a new Perft for the first given number of pieces of the game started from the given seed.
+	 * @param seed the seed of the game
+	 * @param depth the number of pieces to place
+	 */
+	public Perft(long seed, int depth) {
+		start = new Board();
+		Tetris t = new Tetris(new Random(seed));
+		pieces = new Tetromino.Shape[depth];
+		for (int i = 0; i < depth; i++) {
+			if (i == 0) pieces[i] = t.getPiece().getShape();
+			else if (i <= Tetris.PREVIEW_SIZE) pieces[i] = t.getPreview(i-1).getShape();
+			else pieces[i] = t.pullFromPieceBag();
+		}
+	}
+
+	/**
+	 * Constructs a new Perft for the given pieces, placed on the given board instead of an empty one.
+	 * Protected scope because it is used to test the counts of positions with a stack already on the board.
+	 * @param start the board to place the pieces on, which is not changed
+	 * @param pieces the shapes of the pieces to place, in order
+	 */
+	protected Perft(Board start, Tetromino.Shape... pieces) {
+		this.start = start;
+		this.pieces = pieces.clone();
+	}
+
+	/**
+	 * Counts the states reachable after placing every piece, on a single thread.
+	 * @return the number of reachable states
+	 */
+	public long count() {
+		return count(start, 0);
+	}
+
+	/**
+	 * Counts the states reachable after placing every piece, splitting the work across the given pool.
+	 * @param pool the pool of threads to count on
+	 * @return the number of reachable states
+	 */
+	public long countParallel(ForkJoinPool pool) {
+		return pool.invoke(new PerftTask(start, 0));
+	}
+
+	/**
+	 * Runs perft from the command line for every depth up to the given one,
+	 * and prints the counts and the speed of both the single-threaded and the parallel count.
+	 * Usage: Perft [seed] [depth]
+	 * @param args the seed of the game and the maximum depth
+	 */
+	public static void main(String[] args) {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 2;
+		int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			Perft perft = new Perft(seed, depth);
+
+			long start = System.nanoTime();
+			long nodes = perft.count();
+			long single = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			long parallelNodes = perft.countParallel(pool);
+			long parallel = System.nanoTime() - start;
+
+			System.out.printf("perft(%d) = %d nodes | single: %d ms, %.0f nodes/s | parallel: %d ms, %.0f nodes/s%s%n",
+					depth, nodes, single / 1_000_000, nodes * 1e9 / single, parallel / 1_000_000, parallelNodes * 1e9 / parallel,
+					nodes == parallelNodes ? "" : " | MISMATCH: " + parallelNodes);
+		}
+	}
+
+	/**
+	 * Counts the states reachable from the given board by placing the pieces from the given index onwards.
+	 * @param board the board before placing the piece at the index
+	 * @param index the index of the next piece to place
+	 * @return the number of reachable states
+	 */
+	private long count(Board board, int index) {
+		if (index == pieces.length) return 1;
+		List<Board> children = placements(board, pieces[index], index < pieces.length-1);
+		if (index == pieces.length-1) return children.size();
+		long total = 0;
+		for (Board child : children) {
+			total += count(child, index+1);
+		}
+		return total;
+	}
+
+	/**
+	 * Finds every distinct placement of the given shape on the given board, which does not end the game.
+	 * The shape spawns the same way as in the game, then is rotated and moved at its spawning height, and finally dropped.
+	 * Placements are distinct if they fill a different set of cells.
+	 * @param board the board to place the piece on
+	 * @param shape the shape of the piece
+	 * @param build whether the resulting boards are needed, if not, only the number of placements is correct
+	 * @return the boards resulting from the placements, with the filled lines cleared, or null elements if build is false
+	 */
+	private List<Board> placements(Board board, Tetromino.Shape shape, boolean build) {
+		Tetromino piece = new Tetromino(shape);
+		int spawnX = board.getWidth()/2-1;
+		int spawnY = board.getHeight();
+		while (board.collides(piece, spawnX, spawnY)) {
+			spawnY++;
+		}
+
+		List<Board> out = new ArrayList<>();
+		Set<Long> seen = new HashSet<>();
+		for (int r = 0; r < 4; r++) {
+			for (int x = -2; x < board.getWidth() + 2; x++) {
+				if (board.collides(piece, x, spawnY)) continue;
+				int y = spawnY;
+				while (!board.collides(piece, x, y-1)) {
+					y--;
+				}
+				if (endsGame(board, piece, y) || !seen.add(cellsKey(board, piece, x, y))) continue;
+				Board child = null;
+				if (build) {
+					child = board.copy();
+					child.placePiece(piece, x, y);
+					child.clearFilledLines();
+				}
+				out.add(child);
+			}
+			piece = piece.rotatedRight();
+		}
+		return out;
+	}
+
+	/**
+	 * Checks whether placing the given piece with its origin at the given height ends the game,
+	 * which happens if any of its minos are in the hidden lines above the board.
+	 * @param board the board the piece is placed on
+	 * @param piece the piece to place
+	 * @param y the y-coordinate of the origin of the piece
+	 * @return true if the placement ends the game, false otherwise
+	 */
+	private static boolean endsGame(Board board, Tetromino piece, int y) {
+		for (Point mino : piece.getMinos()) {
+			if (y + mino.y >= board.getHeight()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a key identifying the set of cells the given piece fills at the given position.
+	 * The indices of the 4 cells are sorted and packed into 16 bits each, so the key does not depend on the order of the minos.
+	 * The largest board has fewer than 65536 cells, hidden lines included, so the indices never spill into each other.
+	 * @param board the board the piece is placed on
+	 * @param piece the piece to place
+	 * @param x the x-coordinate of the origin of the piece
+	 * @param y the y-coordinate of the origin of the piece
+	 * @return the key of the placement
+	 */
+	private static long cellsKey(Board board, Tetromino piece, int x, int y) {
+		int[] cells = new int[piece.getMinos().size()];
+		int i = 0;
+		for (Point mino : piece.getMinos()) {
+			cells[i++] = (y + mino.y) * board.getWidth() + x + mino.x;
+		}
+		Arrays.sort(cells);
+		long key = 0;
+		for (int cell : cells) {
+			key = (key << 16) | cell;
+		}
+		return key;
+	}
+
+	/**
+	 * The PerftTask class counts the states reachable from a board on a fork-join pool.
+	 * Nodes close to the root are split into a task for every placement, deeper nodes are counted directly.
+	 */
+	private class PerftTask extends RecursiveTask<Long> {
+		/**
+		 * The board before placing the piece at the index.
+		 */
+		private Board board;
+
+		/**
+		 * The index of the next piece to place.
+		 */
+		private int index;
+
+		/**
+		 * Constructs a new PerftTask for the given board and index of the next piece.
+		 * @param board the board before placing the piece at the index
+		 * @param index the index of the next piece to place
+		 */
+		public PerftTask(Board board, int index) {
+			this.board = board;
+			this.index = index;
+		}
+
+		@Override
+		protected Long compute() {
+			if (pieces.length - index <= SPLIT_DEPTH) return count(board, index);
+			List<PerftTask> tasks = new ArrayList<>();
+			for (Board child : placements(board, pieces[index], true)) {
+				tasks.add(new PerftTask(child, index+1));
+			}
+			long total = 0;
+			for (PerftTask task : invokeAll(tasks)) {
+				total += task.join();
+			}
+			return total;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package tetris;
+
+import java.awt.Point;
+import java.util.Random;
+
+/**
+ * The Player class is a computer player for Tetris, which places each piece where a weighted evaluation
+ * of the resulting board is the highest. The evaluation is the sum of the features of the board
+ * multiplied by their weights, so different weights result in different styles of play.
+ */
+public class Player {
+	/**
+	 * The indices of the features of a board in the array of weights:
+	 * the sum of the heights of the columns, the number of lines cleared by the placement,
+	 * the number of empty cells with a filled cell above them, and the sum of the height differences of neighboring columns.
+	 */
+	public static final int AGGREGATE_HEIGHT = 0, LINES = 1, HOLES = 2, BUMPINESS = 3;
+
+	/**
+	 * The number of features a board is evaluated by.
+	 */
+	public static final int FEATURES = 4;
+
+	/**
+	 * The weights of the features, indexed by the constants of the features.
+	 */
+	private double[] weights;
+
+	/**
+	 * The best placement found by the last search: the number of right rotations and the x-coordinate of the origin.
+	 */
+	private int bestRotations, bestX;
+
+	/**
+	 * Whether the best placement found by the last search is of the piece swapped in from the hold slot.
+	 */
+	private boolean bestHold;
+
+	/**
+	 * Whether the search also considers swapping the current piece with the hold slot.
+	 */
+	private boolean useHold;
+
+	/**
+	 * The number of pieces of the preview queue searched after the current one, 0 to only consider the current piece.
+	 */
+	private int lookahead;
+
+	/**
+	 * Constructs a new Player with the given weights for the features.
+	 * @param weights the weights of the features, indexed by the constants of the features
+	 */
+	public Player(double... weights) {
+		if (weights.length != FEATURES) throw new IllegalArgumentException("Expected " + FEATURES + " weights");
+		this.weights = weights.clone();
+	}
+
+	/**
+	 * Sets the number of pieces of the preview queue that are searched after the current one.
+	 * Every placement of the current piece is then valued by the best placements of the following pieces on the resulting board,
+	 * which plays better, but multiplies the time taken by about 40 for every piece searched.
+	 * @param pieces the number of pieces to search after the current one, from 0 to Tetris.PREVIEW_SIZE
+	 * @throws IllegalArgumentException if the number of pieces is out of range
+	 */
+	public void setLookahead(int pieces) {
+		if (pieces < 0 || pieces > Tetris.PREVIEW_SIZE) throw new IllegalArgumentException("Lookahead must be from 0 to " + Tetris.PREVIEW_SIZE);
+		lookahead = pieces;
+	}
+
+	/**
+	 * Sets whether the search also considers swapping the current piece with the hold slot, and placing the piece swapped in instead.
+	 * This doubles the time taken by the search.
+	 * @param useHold true to consider holding, false to always place the current piece
+	 */
+	public void setHold(boolean useHold) {
+		this.useHold = useHold;
+	}
+
+	/**
+	 * Plays a game with the given weights, started from the given seed, until it ends or the given number of pieces are placed.
+	 * The same weights and seed always result in the same game.
+	 * @param weights the weights of the features
+	 * @param seed the seed of the game
+	 * @param maxPieces the maximum number of pieces to place
+	 * @return the score of the game
+	 */
+	public static int playGame(double[] weights, long seed, int maxPieces) {
+		Player p = new Player(weights);
+		Tetris t = new Tetris(new Random(seed));
+		for (int i = 0; i < maxPieces && !t.isGameOver(); i++) {
+			p.placePiece(t);
+		}
+		return t.getScore();
+	}
+
+	/**
+	 * Places the current piece of the given game in the best position found,
+	 * by rotating it, moving it to the right column, then dropping it.
+	 * If the piece swapped in from the hold slot has a better placement, the piece is held first, and the swapped piece is placed instead.
+	 * @param t the game to play in
+	 */
+	public void placePiece(Tetris t) {
+		findBestPlacement(t);
+		if (bestHold) t.hold();
+		for (int i = 0; i < bestRotations; i++) {
+			t.rotateRight();
+		}
+		int x = t.getPieceX();
+		while (x > bestX) {
+			t.moveLeft();
+			if (t.getPieceX() == x) break;
+			x = t.getPieceX();
+		}
+		while (x < bestX) {
+			t.moveRight();
+			if (t.getPieceX() == x) break;
+			x = t.getPieceX();
+		}
+		t.drop();
+	}
+
+	/**
+	 * Evaluates every rotation and column the current piece of the given game can be dropped in,
+	 * and stores the best one in bestRotations and bestX.
+	 * If holding is considered, the piece that would be swapped in from the hold slot, or the next piece if the slot is empty,
+	 * is evaluated the same way, with the preview queue moved along by one piece in the second case.
+	 * @param t the game to search in
+	 */
+	private void findBestPlacement(Tetris t) {
+		bestRotations = 0;
+		bestX = t.getPieceX();
+		bestHold = false;
+		double value = search(t, t.getBoard(), t.getPiece(), t.getPieceY(), 0, 0);
+		if (!useHold || !t.canHold()) return;
+
+		int rotations = bestRotations, x = bestX;
+		Tetromino swapped = t.getHeldPiece();
+		int queueOffset = 0;
+		if (swapped == null) {
+			swapped = t.getNextPiece();
+			queueOffset = 1;
+		}
+		Board board = t.getBoard();
+		if (search(t, board, swapped, spawnY(board, swapped), 0, queueOffset) > value) {
+			bestHold = true;
+		} else {
+			bestRotations = rotations;
+			bestX = x;
+		}
+	}
+
+	/**
+	 * Returns the y-coordinate the given piece spawns at on the given board, the same way as the game spawns pieces.
+	 * @param board the board the piece spawns on
+	 * @param piece the piece that spawns
+	 * @return the y-coordinate of the origin of the piece
+	 */
+	private static int spawnY(Board board, Tetromino piece) {
+		int x = board.getWidth()/2-1, y = board.getHeight();
+		while (board.collides(piece, x, y)) {
+			y++;
+		}
+		return y;
+	}
+
+	/**
+	 * Evaluates every rotation and column the given piece can be dropped in on the given board,
+	 * followed by the pieces of the preview queue up to the lookahead, and returns the value of the best one.
+	 * For the current piece, the best placement is stored in bestRotations and bestX.
+	 * @param t the game to search in
+	 * @param board the board to place the piece on
+	 * @param piece the piece to place
+	 * @param spawnY the y-coordinate the piece starts falling from
+	 * @param ply the number of pieces placed before this one in the search, 0 for the current piece
+	 * @param queueOffset the position in the preview queue of the piece after the current one
+	 * @return the value of the best placement, or negative infinity if every placement ends the game
+	 */
+	private double search(Tetris t, Board board, Tetromino piece, int spawnY, int ply, int queueOffset) {
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int r = 0; r < 4; r++) {
+			for (int x = -2; x < board.getWidth() + 2; x++) {
+				if (board.collides(piece, x, spawnY)) continue;
+				int y = spawnY;
+				while (!board.collides(piece, x, y-1)) {
+					y--;
+				}
+				double value = evaluate(t, board, piece, x, y, ply, queueOffset);
+				if (value > bestValue) {
+					bestValue = value;
+					if (ply == 0) {
+						bestRotations = r;
+						bestX = x;
+					}
+				}
+			}
+			piece = piece.rotatedRight();
+		}
+		return bestValue;
+	}
+
+	/**
+	 * Evaluates the board that results from placing the given piece at the given position.
+	 * If pieces are left to search, the board is instead valued by the best placement of the next piece of the preview queue on it,
+	 * plus the lines cleared by this placement.
+	 * @param t the game to search in
+	 * @param board the board before the placement
+	 * @param piece the piece to place
+	 * @param x the x-coordinate of the origin of the piece
+	 * @param y the y-coordinate of the origin of the piece
+	 * @param ply the number of pieces placed before this one in the search
+	 * @param queueOffset the position in the preview queue of the piece after the current one
+	 * @return the weighted sum of the features of the resulting board, or negative infinity if it ends the game
+	 */
+	private double evaluate(Tetris t, Board board, Tetromino piece, int x, int y, int ply, int queueOffset) {
+		for (Point mino : piece.getMinos()) {
+			if (y + mino.y >= board.getHeight()) return Double.NEGATIVE_INFINITY;
+		}
+		Board after = board.copy();
+		after.placePiece(piece, x, y);
+		int lines = after.clearFilledLines();
+		if (ply < lookahead && ply + queueOffset < Tetris.PREVIEW_SIZE) {
+			Tetromino next = t.getPreview(ply + queueOffset);
+			return weights[LINES]*lines + search(t, after, next, spawnY(after, next), ply+1, queueOffset);
+		}
+
+		int aggregateHeight = 0, holes = 0, bumpiness = 0, previousHeight = -1;
+		for (int col = 0; col < after.getWidth(); col++) {
+			int height = 0;
+			for (int row = after.getHeight()-1; row >= 0; row--) {
+				if (after.isFilled(col, row)) {
+					if (height == 0) height = row+1;
+				}
+				else if (height != 0) holes++;
+			}
+			aggregateHeight += height;
+			if (previousHeight >= 0) bumpiness += Math.abs(height - previousHeight);
+			previousHeight = height;
+		}
+		return weights[AGGREGATE_HEIGHT]*aggregateHeight + weights[LINES]*lines + weights[HOLES]*holes + weights[BUMPINESS]*bumpiness;
+	}
+}
@@ -0,0 +1,149 @@
+package tetris;
+
+/**
+ * The Predictor class runs the client side of a networked game with prediction and rollback.
+ * The inputs of the player are applied to a local game at once, instead of waiting for the server to apply them,
+ * and are kept until the server confirms them. The server is the authority on the game: it sends back the actions it applied,
+ * which are the inputs of the player along with the steps of gravity, and the number of the last input it applied.
+ * The local game is then rolled back to the last confirmed state, the actions of the server are applied to it,
+ * and the inputs that the server has not applied yet are applied again on top.
+ *
+ * Since the game is deterministic for a seed and a list of actions, the local game is then exactly the game of the server,
+ * plus the inputs still on their way. Rolling back and applying dozens of actions takes a few microseconds,
+ * as saving and restoring the game only copies a few small arrays, so it fits easily in a frame.
+ * Events are published to the event bus of the local game only when an input is first applied, not when it is applied again.
+ */
+public class Predictor {
+	/**
+	 * The number of inputs that can wait for confirmation.
+	 */
+	private static final int CAPACITY = 256;
+
+	/**
+	 * The local game, which is shown to the player.
+	 */
+	private Tetris game;
+
+	/**
+	 * The last state of the game confirmed by the server.
+	 */
+	private GameState confirmed;
+
+	/**
+	 * The inputs waiting for confirmation, in a ring buffer, and their sequence numbers.
+	 */
+	private Tetris.Action[] pending;
+
+	/**
+	 * The sequence numbers of the inputs waiting for confirmation.
+	 */
+	private int[] pendingSequence;
+
+	/**
+	 * The index of the oldest input waiting for confirmation, and the number of inputs waiting.
+	 */
+	private int head, count;
+
+	/**
+	 * The sequence number of the next input.
+	 */
+	private int nextSequence;
+
+	/**
+	 * The event bus of the local game, which is detached while the game is rolled back.
+	 */
+	private GameEventBus events;
+
+	/**
+	 * The number of actions applied again in the last rollback, including the actions of the server.
+	 */
+	private int lastResimulated;
+
+	/**
+	 * Constructs a new Predictor for the game with the given seed, which must be the seed of the game on the server.
+	 * @param seed the seed of the game
+	 */
+	public Predictor(long seed) {
+		game = new Tetris(new GameRandom(seed));
+		confirmed = new GameState();
+		game.saveState(confirmed);
+		pending = new Tetris.Action[CAPACITY];
+		pendingSequence = new int[CAPACITY];
+	}
+
+	/**
+	 * Returns the local game, which has every input applied, confirmed or not.
+	 * @return the local game
+	 */
+	public Tetris getGame() {
+		return game;
+	}
+
+	/**
+	 * Sets the event bus of the local game.
+	 * @param events the bus to publish to, or null to stop publishing
+	 */
+	public void setEventBus(GameEventBus events) {
+		this.events = events;
+		game.setEventBus(events);
+	}
+
+	/**
+	 * Returns the number of inputs waiting for confirmation by the server.
+	 * @return the number of unconfirmed inputs
+	 */
+	public int getPendingCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of actions applied again in the last rollback, including the actions of the server.
+	 * @return the number of actions simulated by the last call to confirm()
+	 */
+	public int getLastResimulated() {
+		return lastResimulated;
+	}
+
+	/**
+	 * Applies an input of the player to the local game, and keeps it until the server confirms it.
+	 * If too many inputs are waiting for confirmation, the input is dropped.
+	 * @param input the input to apply
+	 * @return the sequence number of the input, to send to the server along with it, or -1 if it was dropped
+	 */
+	public int apply(Tetris.Action input) {
+		if (count == CAPACITY) return -1;
+		game.apply(input);
+		int i = (head + count) % CAPACITY;
+		pending[i] = input;
+		pendingSequence[i] = nextSequence;
+		count++;
+		return nextSequence++;
+	}
+
+	/**
+	 * Applies the actions the server applied since its last confirmation, and confirms every input up to the given sequence number.
+	 * The local game is rolled back to the last confirmed state, the actions are applied, the result is the new confirmed state,
+	 * and the inputs after the given sequence number are applied again on top of it.
+	 * @param actions the actions the server applied, in order
+	 * @param length the number of actions in the array
+	 * @param acknowledged the sequence number of the last input the server applied, or -1 if none
+	 */
+	public void confirm(Tetris.Action[] actions, int length, int acknowledged) {
+		game.setEventBus(null);
+		game.restoreState(confirmed);
+		for (int i = 0; i < length; i++) {
+			game.apply(actions[i]);
+		}
+		game.saveState(confirmed);
+		while (count > 0 && pendingSequence[head] - acknowledged <= 0) {
+			pending[head] = null;
+			head = (head + 1) % CAPACITY;
+			count--;
+		}
+		for (int k = 0; k < count; k++) {
+			game.apply(pending[(head + k) % CAPACITY]);
+		}
+		lastResimulated = length + count;
+		game.setEventBus(events);
+	}
+}
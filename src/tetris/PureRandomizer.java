@@ -0,0 +1,56 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * The PureRandomizer class picks every piece independently and uniformly, like the earliest versions of Tetris,
+ * so the same shape can come many times in a row, or not for a long time.
+ */
+public class PureRandomizer implements Randomizer {
+	/**
+	 * The shapes in the order of their indices, cached because Shape.values() creates a new array every call.
+	 */
+	private static final Tetromino.Shape[] SHAPES = Tetromino.Shape.values();
+
+	/**
+	 * The source of the random numbers.
+	 */
+	private Random random;
+
+	/**
+	 * Constructs a new PureRandomizer.
+	 * @param random the source of the random numbers
+	 */
+	public PureRandomizer(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Returns the shape of the next piece, and moves on to the one after it.
+	 * @return the shape of the next piece
+	 */
+	@Override
+	public Tetromino.Shape next() {
+		return SHAPES[random.nextInt(SHAPES.length)];
+	}
+
+	/**
+	 * Returns a new randomizer in the same state as this one.
+	 * @return the copy of the randomizer
+	 * @throws IllegalStateException if the randomizer does not use a GameRandom
+	 */
+	@Override
+	public Randomizer copy() {
+		return new PureRandomizer(GameRandom.copyOf(random));
+	}
+
+	/**
+	 * Sets the state of this randomizer to the state of the given one, without allocating.
+	 * @param other the randomizer to take the state of, which must be of the same class
+	 * @throws IllegalStateException if either randomizer does not use a GameRandom
+	 */
+	@Override
+	public void set(Randomizer other) {
+		GameRandom.copyState(((PureRandomizer) other).random, random);
+	}
+}
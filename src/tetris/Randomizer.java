@@ -0,0 +1,56 @@
+package tetris;
+
+import java.util.Random;
+
+/**
+ * The Randomizer interface is a strategy for choosing the order of the pieces of a game.
+ * Every implementation keeps its state in primitive arrays and an index, so pulling a piece does not allocate,
+ * and draws its numbers from a Random. When that Random is a GameRandom, whose whole state is one long,
+ * the randomizer can be copied, to save the state of a game or to fork it for a search.
+ */
+public interface Randomizer {
+	/**
+	 * The Type enum lists the randomizers a game can be started with, and creates them.
+	 * BAG_7 deals every shape once in a shuffled bag of 7, BAG_14 deals every shape twice in a bag of 14,
+	 * HISTORY rerolls shapes that were dealt recently, the way the arcade Tetris: The Grand Master 2 does,
+	 * and RANDOM picks every shape independently.
+	 */
+	enum Type {
+		BAG_7, BAG_14, HISTORY, RANDOM;
+
+		/**
+		 * Creates a new randomizer of this type, drawing its numbers from the given Random.
+		 * @param random the source of the random numbers
+		 * @return the new randomizer
+		 */
+		public Randomizer create(Random random) {
+			return switch (this) {
+			case BAG_7 -> new BagRandomizer(random, 1);
+			case BAG_14 -> new BagRandomizer(random, 2);
+			case HISTORY -> new HistoryRandomizer(random);
+			case RANDOM -> new PureRandomizer(random);
+			};
+		}
+	}
+
+	/**
+	 * Returns the shape of the next piece, and moves on to the one after it.
+	 * @return the shape of the next piece
+	 */
+	Tetromino.Shape next();
+
+	/**
+	 * Returns a new randomizer in the same state as this one, which gives the same pieces from now on,
+	 * independently of this one.
+	 * @return the copy of the randomizer
+	 * @throws IllegalStateException if the randomizer does not use a GameRandom
+	 */
+	Randomizer copy();
+
+	/**
+	 * Sets the state of this randomizer to the state of the given one, which must be of the same class, without allocating.
+	 * @param other the randomizer to take the state of
+	 * @throws IllegalStateException if either randomizer does not use a GameRandom
+	 */
+	void set(Randomizer other);
+}
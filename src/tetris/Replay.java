@@ -0,0 +1,136 @@
+package tetris;
+
+import java.util.*;
+
+/**
+ * The Replay class represents a recording of a game of Tetris, made up of the seed of the random source
+ * and the list of every action applied to the game in order.
+ * Since the game logic is deterministic, simulating the replay results in the exact same game.
+ */
+public class Replay {
+	/**
+	 * The seed of the random source the recorded game was started with.
+	 */
+	private long seed;
+
+	/**
+	 * The width and the visible height of the board of the recorded game.
+	 */
+	private int width, height;
+
+	/**
+	 * The kind of randomizer the recorded game was started with.
+	 */
+	private Randomizer.Type type;
+
+	/**
+	 * The lock delay of the recorded game in ticks, and the number of times it can be restarted.
+	 */
+	private int lockDelay, lockResets;
+
+	/**
+	 * The list of actions applied to the recorded game, in the order they were applied.
+	 */
+	private List<Tetris.Action> actions;
+
+	/**
+	 * Constructs a new empty Replay for a game started with the given seed.
+	 * @param seed the seed of the random source of the recorded game
+	 */
+	public Replay(long seed) {
+		this(seed, Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+	}
+
+	/**
+	 * Constructs a new empty Replay for a game started with the given seed, on a board of the given size.
+	 * @param seed the seed of the random source of the recorded game
+	 * @param width the width of the board of the recorded game
+	 * @param height the visible height of the board of the recorded game
+	 */
+	public Replay(long seed, int width, int height) {
+		this(seed, width, height, Randomizer.Type.BAG_7);
+	}
+
+	/**
+	 * Constructs a new empty Replay for a game started with the given seed and kind of randomizer, on a board of the given size.
+	 * @param seed the seed of the random source of the recorded game
+	 * @param width the width of the board of the recorded game
+	 * @param height the visible height of the board of the recorded game
+	 * @param type the kind of randomizer of the recorded game
+	 */
+	public Replay(long seed, int width, int height, Randomizer.Type type) {
+		this.seed = seed;
+		this.width = width;
+		this.height = height;
+		this.type = type;
+		lockDelay = Tetris.DEFAULT_LOCK_DELAY;
+		lockResets = Tetris.DEFAULT_LOCK_RESETS;
+		actions = new ArrayList<>();
+	}
+
+	/**
+	 * Returns the seed of the random source the recorded game was started with.
+	 * @return the seed of the recorded game
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the kind of randomizer the recorded game was started with.
+	 * @return the randomizer type of the recorded game
+	 */
+	public Randomizer.Type getType() {
+		return type;
+	}
+
+	/**
+	 * Sets the lock delay the recorded game was played with.
+	 * @param ticks the number of ticks a piece can rest on the stack before it locks
+	 * @param resets the number of times moving or rotating a resting piece can restart the delay
+	 */
+	protected void setLockDelay(int ticks, int resets) {
+		lockDelay = ticks;
+		lockResets = resets;
+	}
+
+	/**
+	 * Returns the number of actions in the replay.
+	 * @return the length of the replay
+	 */
+	public int length() {
+		return actions.size();
+	}
+
+	/**
+	 * Adds the given action to the end of the replay.
+	 * @param a the action to add
+	 */
+	public void record(Tetris.Action a) {
+		actions.add(a);
+	}
+
+	/**
+	 * Removes the actions after the given length, which is used when a game is restored to an earlier state.
+	 * @param length the number of actions to keep
+	 */
+	protected void truncate(int length) {
+		actions.subList(length, actions.size()).clear();
+	}
+
+	/**
+	 * Re-simulates the recorded game by applying every action to a new game started with the same seed and kind of randomizer,
+	 * on a board of the same size, with the same lock delay.
+	 * The simulated game does not record a replay of its own.
+	 * Actions after the game ended have no effect, exactly like in the recorded game.
+	 * @return the Tetris object in the state the recorded game ended in
+	 */
+	public Tetris simulate() {
+		Tetris t = new Tetris(type.create(new Random(seed)), width, height);
+		t.setLockDelay(lockDelay, lockResets);
+		for (Tetris.Action a : actions) {
+			if (!t.apply(a)) break;
+		}
+		return t;
+	}
+}
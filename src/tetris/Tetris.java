@@ -1,12 +1,36 @@
 package tetris;
 
 import java.awt.Graphics;
+import java.awt.Point;
 import java.util.*;
 
+import metrics.Metrics;
+
 /**
  * The Tetris class represents the game logic for a Tetris game, including the board, falling piece, and scoring.
  */
 public class Tetris {
+	/**
+	 * The Action enum represents every input that can change the state of the game.
+	 * DOWN is a step of falling that locks the piece at once if it can not fall, the rest correspond to the player's controls.
+	 * Actions are what a Replay is made of, so the same seed and the same actions always give the same game.
+	 * New actions are added at the end, since their ordinals are sent over the network.
+	 * SOFT_DROP moves the piece down without locking it, and TICK advances the clock of the game, which makes the piece fall and lock.
+	 */
+	public enum Action {
+		DOWN, LEFT, RIGHT, ROTATE_LEFT, ROTATE_RIGHT, DROP, HOLD, SOFT_DROP, TICK
+	}
+
+	/**
+	 * The Event enum represents every change of the game that is published to its GameEventBus.
+	 * PIECE_SPAWNED and PIECE_LOCKED have the ordinal of the shape of the piece as their value,
+	 * LINES_CLEARED has the number of lines cleared at once, SCORE_CHANGED the new score, LEVEL_UP the new level,
+	 * TOP_OUT the final score, and GARBAGE_RECEIVED the number of garbage lines added to the board in a versus game.
+	 */
+	public enum Event {
+		PIECE_SPAWNED, PIECE_LOCKED, LINES_CLEARED, SCORE_CHANGED, LEVEL_UP, TOP_OUT, GARBAGE_RECEIVED
+	}
+
 	/**
 	 * The Board object representing the game board.
 	 */
@@ -18,15 +42,43 @@ public class Tetris {
 	private Tetromino piece;
 
 	/**
-	 * The Tetromino object that will be the next one to fall, after the current one lands.
+	 * The pieces that will fall after the current one, in a ring buffer starting at previewHead.
+	 * The queue is always kept full, PREVIEW_SIZE pieces ahead of the current one, so reading any of them takes a single array access,
+	 * and the pieces are pulled from the randomizer in the same order as without the queue.
 	 */
-	private Tetromino nextPiece;
+	private Tetromino[] preview;
+
+	/**
+	 * The index in the preview queue of the next piece to fall.
+	 */
+	private int previewHead;
+
+	/**
+	 * The piece in the hold slot, in its spawn orientation, or null if no piece was held yet.
+	 */
+	private Tetromino heldPiece;
+
+	/**
+	 * Whether the hold slot was used since the current piece spawned from the preview queue, as it can be used once per piece.
+	 */
+	private boolean holdUsed;
 
 	/**
 	 * The origin coordinates of the current falling piece.
 	 */
 	private int pieceX, pieceY;
 
+	/**
+	 * The y-coordinate the origin of the current piece would land at if it was dropped, cached by getLandingY().
+	 */
+	private int landingY;
+
+	/**
+	 * A flag indicating whether landingY is up to date.
+	 * It is cleared whenever the current piece moves or rotates, and whenever the board changes, which only happens when a new piece spawns.
+	 */
+	private boolean landingValid;
+
 	/**
 	 * The metrics for how well the player is doing. Score will be the result at the end of the game,
 	 * the linesCleared values represent the number of lines cleared in the current level and total game.
@@ -40,57 +92,276 @@ public class Tetris {
 	private int gameSpeed;
 
 	/**
-	 * A list of Tetromino shapes that will be used to determine the next piece to fall.
-	 * The list is shuffled and cycled through once it's empty to provide a random sequence of pieces.
-	 * This is used over just generating a random piece to ensure that the player
-	 * does not experience long droughts of any specific piece.
+	 * The Randomizer that determines the order of the pieces, a shuffled bag of all 7 shapes unless another one is chosen.
+	 * Games started from a seed use a GameRandom as its random source, so its state can be saved along with the rest of the game.
+	 */
+	private Randomizer randomizer;
+
+	/**
+	 * The number of pieces after the current one that are known in advance, and can be shown to the player or searched by a bot.
+	 */
+	public static final int PREVIEW_SIZE = 6;
+
+	/**
+	 * The length of a tick of the clock of the game in milliseconds. The game only measures time in ticks, so it is the same on every machine.
+	 */
+	public static final int TICK_MILLIS = 16;
+
+	/**
+	 * The default number of ticks a piece can rest on the stack before it locks, about half a second,
+	 * and the default number of times moving or rotating it can restart that delay.
 	 */
-	private List<Tetromino.Shape> pieceBag;
+	public static final int DEFAULT_LOCK_DELAY = 30, DEFAULT_LOCK_RESETS = 15;
 
 	/**
-	 * A Random object used to shuffle the pieceBag.
-	 * This is used to allow for a seed to be set for testing purposes.
+	 * The number of ticks a piece can rest on the stack before it locks, and the number of times moving or rotating it can restart that delay.
 	 */
-	private Random randomSource;
+	private int lockDelay, lockResetLimit;
+
+	/**
+	 * The time passed since the piece last fell a cell because of gravity, in milliseconds of ticks.
+	 */
+	private int gravityMillis;
+
+	/**
+	 * The number of ticks the current piece has been resting on the stack, or 0 if it is falling.
+	 */
+	private int lockTicks;
+
+	/**
+	 * The number of times the lock delay of the current piece was restarted by moving or rotating it,
+	 * since it reached the lowest row it has been on.
+	 */
+	private int lockResets;
+
+	/**
+	 * The lowest y-coordinate the current piece has been on.
+	 */
+	private int lowestY;
+
+	/**
+	 * A flag indicating whether the game has ended, after which no more actions have any effect.
+	 */
+	private boolean gameOver;
+
+	/**
+	 * The Replay that every action applied to this game is recorded into.
+	 * Only games started from a known seed can be replayed, so this is null for games with a given Random object.
+	 */
+	private Replay replay;
+
+	/**
+	 * The GameEventBus the events of the game are published to, or null if nothing listens to them.
+	 */
+	private GameEventBus events;
+
+	/**
+	 * The Versus battle the game is a part of, or null if the game is played alone.
+	 */
+	private Versus versus;
+
+	/**
+	 * The index of the player of this game in its Versus battle.
+	 */
+	private int versusIndex;
 
 	/**
 	 * Constructs a new Tetris object with a new empty Board. Sets all performance metrics to 0 and the game speed to 1.
-	 * Initializes the current and next pieces with the first two pieces from the pieceBag.
-	 * Sets the random source to a built in Random object.
+	 * Initializes the current and next pieces with the first two pieces from a shuffled bag of all 7 shapes.
+	 * Sets the random source to a built in Random object with a random seed, so the game can be replayed.
 	 */
 	public Tetris() {
-		board = new Board();
-		score = linesClearedTotal = linesClearedOnLevel = 0;
-		gameSpeed = 1;
-		randomSource = new Random();
-		initPieceBag();
-		nextPiece = new Tetromino(pullFromPieceBag());
-		newPiece();
+		this(new Random().nextLong());
+	}
+
+	/**
+	 * Constructs a new Tetris object the same way as the default constructor,
+	 * but with the random source seeded with the given seed.
+	 * Every action applied to the game is recorded into a Replay, which can be used to verify the result.
+	 * Only these games are played by a player, so only their pieces and lines are counted in the Metrics.
+	 * @param seed the seed of the random source that determines the order of the pieces
+	 */
+	public Tetris(long seed) {
+		this(seed, Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+	}
+
+	/**
+	 * Constructs a new Tetris object from the given seed, the same way as Tetris(long), on a board of the given size.
+	 * The timings of falling and the spawning position of the pieces are derived from the size of the board.
+	 * @param seed the seed of the random source that determines the order of the pieces
+	 * @param width the width of the board, up to Board.MAX_WIDTH
+	 * @param height the visible height of the board, up to Board.MAX_HEIGHT
+	 * @throws IllegalArgumentException if the size of the board is out of range
+	 */
+	public Tetris(long seed, int width, int height) {
+		this(seed, width, height, Randomizer.Type.BAG_7);
+	}
+
+	/**
+	 * Constructs a new Tetris object from the given seed, the same way as Tetris(long, int, int), with the given kind of randomizer.
+	 * @param seed the seed of the random source that determines the order of the pieces
+	 * @param width the width of the board, up to Board.MAX_WIDTH
+	 * @param height the visible height of the board, up to Board.MAX_HEIGHT
+	 * @param type the kind of randomizer that determines the order of the pieces
+	 * @throws IllegalArgumentException if the size of the board is out of range
+	 */
+	public Tetris(long seed, int width, int height, Randomizer.Type type) {
+		this(type.create(new GameRandom(seed)), width, height);
+		replay = new Replay(seed, width, height, type);
 	}
 
 	/**
 	 * Constructs a new Tetris object with a new empty Board. Sets all performance metrics to 0 and the game speed to 1.
-	 * Initializes the current and next pieces with the first two pieces from the pieceBag.
+	 * Initializes the current and next pieces with the first two pieces from a shuffled bag of all 7 shapes.
 	 * Sets the random source to a given Random object.
 	 * Protected scope because this is used for testing.
 	 */
 	protected Tetris(Random r) {
-		board = new Board();
+		this(r, Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+	}
+
+	/**
+	 * Constructs a new Tetris object the same way as Tetris(Random), on a board of the given size.
+	 * Protected scope because this is used for testing.
+	 * @param r the random source that determines the order of the pieces
+	 * @param width the width of the board
+	 * @param height the visible height of the board
+	 */
+	protected Tetris(Random r, int width, int height) {
+		this(new BagRandomizer(r, 1), width, height);
+	}
+
+	/**
+	 * Constructs a new Tetris object on a board of the given size, with the pieces dealt by the given Randomizer.
+	 * Protected scope because this is used for testing.
+	 * @param randomizer the randomizer that determines the order of the pieces
+	 * @param width the width of the board
+	 * @param height the visible height of the board
+	 */
+	protected Tetris(Randomizer randomizer, int width, int height) {
+		board = new Board(width, height);
 		score = linesClearedTotal = linesClearedOnLevel = 0;
 		gameSpeed = 1;
-		randomSource = r;
-		initPieceBag();
-		nextPiece = new Tetromino(pullFromPieceBag());
+		this.randomizer = randomizer;
+		lockDelay = DEFAULT_LOCK_DELAY;
+		lockResetLimit = DEFAULT_LOCK_RESETS;
+		preview = new Tetromino[PREVIEW_SIZE];
+		for (int i = 0; i < PREVIEW_SIZE; i++) {
+			preview[i] = Tetromino.spawned(pullFromPieceBag());
+		}
 		newPiece();
 	}
 	
+	/**
+	 * Sets the lock delay of the game, which is recorded in its replay. It must be set before any action is applied.
+	 * @param ticks the number of ticks a piece can rest on the stack before it locks, 0 to lock at the first tick it rests
+	 * @param resets the number of times moving or rotating a resting piece can restart the delay, before it reaches a lower row
+	 * @throws IllegalArgumentException if either value is negative
+	 * @throws IllegalStateException if an action was already recorded
+	 */
+	public void setLockDelay(int ticks, int resets) {
+		if (ticks < 0 || resets < 0) throw new IllegalArgumentException("Lock delay and resets must not be negative");
+		if (replay != null) {
+			if (replay.length() > 0) throw new IllegalStateException("The lock delay must be set before the first action");
+			replay.setLockDelay(ticks, resets);
+		}
+		lockDelay = ticks;
+		lockResetLimit = resets;
+	}
+
+	/**
+	 * Sets the GameEventBus the events of the game are published to from now on.
+	 * @param events the bus to publish to, or null to stop publishing
+	 */
+	public void setEventBus(GameEventBus events) {
+		this.events = events;
+	}
+
+	/**
+	 * Makes the game a part of the given Versus battle, as the player with the given index.
+	 * The replay of the game does not contain the garbage it receives, so it can only be verified together with the other games.
+	 * @param versus the battle
+	 * @param index the index of the player in the battle
+	 */
+	protected void setVersus(Versus versus, int index) {
+		this.versus = versus;
+		versusIndex = index;
+	}
+
+	/**
+	 * Saves the state of the game into the given GameState, so the game can be restored to this point with restoreState().
+	 * The GameState can be reused, so saving the same game again does not allocate.
+	 * Only games whose random source is a GameRandom, such as the games started from a seed, can be saved.
+	 * The event bus and the versus battle of the game are not part of its state.
+	 * @param state the GameState to save into
+	 * @throws IllegalStateException if the random source of the game is not a GameRandom
+	 */
+	public void saveState(GameState state) {
+		if (state.randomizer == null || state.randomizer.getClass() != randomizer.getClass()) {
+			state.randomizer = randomizer.copy();
+		} else {
+			state.randomizer.set(randomizer);
+		}
+		if (state.board == null || state.board.getWidth() != board.getWidth() || state.board.getHeight() != board.getHeight()) {
+			state.board = new Board(board.getWidth(), board.getHeight());
+		}
+		board.copyTo(state.board);
+		state.piece = piece;
+		System.arraycopy(preview, 0, state.preview, 0, PREVIEW_SIZE);
+		state.previewHead = previewHead;
+		state.heldPiece = heldPiece;
+		state.holdUsed = holdUsed;
+		state.gravityMillis = gravityMillis;
+		state.lockTicks = lockTicks;
+		state.lockResets = lockResets;
+		state.lowestY = lowestY;
+		state.pieceX = pieceX;
+		state.pieceY = pieceY;
+		state.score = score;
+		state.linesClearedOnLevel = linesClearedOnLevel;
+		state.linesClearedTotal = linesClearedTotal;
+		state.gameSpeed = gameSpeed;
+		state.replayLength = replay == null ? 0 : replay.length();
+		state.gameOver = gameOver;
+	}
+
+	/**
+	 * Restores the game to the state saved into the given GameState by saveState(), which must be a state of this game.
+	 * The actions recorded in the replay since then are removed. Nothing is published to the event bus.
+	 * @param state the GameState to restore
+	 */
+	public void restoreState(GameState state) {
+		state.board.copyTo(board);
+		piece = state.piece;
+		System.arraycopy(state.preview, 0, preview, 0, PREVIEW_SIZE);
+		previewHead = state.previewHead;
+		heldPiece = state.heldPiece;
+		holdUsed = state.holdUsed;
+		gravityMillis = state.gravityMillis;
+		lockTicks = state.lockTicks;
+		lockResets = state.lockResets;
+		lowestY = state.lowestY;
+		pieceX = state.pieceX;
+		pieceY = state.pieceY;
+		landingValid = false;
+		score = state.score;
+		linesClearedOnLevel = state.linesClearedOnLevel;
+		linesClearedTotal = state.linesClearedTotal;
+		gameSpeed = state.gameSpeed;
+		randomizer.set(state.randomizer);
+		if (replay != null) replay.truncate(state.replayLength);
+		gameOver = state.gameOver;
+	}
+
 	/**
 	 * Attempts to move the current piece down by one cell.
 	 * If the piece cannot move down, it will put the piece on the board, add points, and generate a new piece.
 	 * @return true if the piece was successfully moved or if it landed and the game continues, false if the game is over
 	 */
 	public boolean moveDown() {
-		if (tryMove(pieceX, pieceY-1)) {
+		if (gameOver) return false;
+		record(Action.DOWN);
+		if (fall()) {
 			return true;
 		}
 		return finalizePiece(0);
@@ -100,30 +371,61 @@ public class Tetris {
 	 * Attempts to move the current piece left by one cell. This can not result in a piece landing, so no finalization is needed.
 	 */
 	public void moveLeft() {
-		tryMove(pieceX-1, pieceY);
+		if (gameOver) return;
+		record(Action.LEFT);
+		if (tryMove(pieceX-1, pieceY)) restartLockDelay();
 	}
 	
 	/**
 	 * Attempts to move the current piece right by one cell. This can not result in a piece landing, so no finalization is needed.
 	 */
 	public void moveRight() {
-		tryMove(pieceX+1, pieceY);
+		if (gameOver) return;
+		record(Action.RIGHT);
+		if (tryMove(pieceX+1, pieceY)) restartLockDelay();
 	}
 	
 	/**
-	 * Attempts to rotate the current piece left (counter-clockwise) by 90 degrees.
+	 * Attempts to rotate the current piece left (counter-clockwise) by 90 degrees, with the wall kicks of the Super Rotation System.
 	 * This can not result in a piece landing, so no finalization is needed.
 	 */
 	public void rotateLeft () {
-		if (!board.collides(piece.rotatedLeft(), pieceX, pieceY)) piece = piece.rotatedLeft();
+		if (gameOver) return;
+		record(Action.ROTATE_LEFT);
+		tryRotate(piece.rotatedLeft());
 	}
 	
 	/**
-	 * Attempts to rotate the current piece right (clockwise) by 90 degrees.
+	 * Attempts to rotate the current piece right (clockwise) by 90 degrees, with the wall kicks of the Super Rotation System.
 	 * This can not result in a piece landing, so no finalization is needed.
 	 */
 	public void rotateRight () {
-		if (!board.collides(piece.rotatedRight(), pieceX, pieceY)) piece = piece.rotatedRight();
+		if (gameOver) return;
+		record(Action.ROTATE_RIGHT);
+		tryRotate(piece.rotatedRight());
+	}
+
+	/**
+	 * Attempts to replace the current piece with the given rotation of it, moved by each of the kicks of the rotation in order,
+	 * until the rotated piece does not collide with the board. If every kick collides, nothing happens.
+	 * The kicks only depend on the shape and the orientations, so rotating is deterministic, and replays give the same game.
+	 * @param rotated the current piece rotated
+	 * @return true if the rotation was successful, false if every kick collides
+	 */
+	private boolean tryRotate(Tetromino rotated) {
+		int[] kicks = Tetromino.getKicks(piece.getShape(), piece.getRotation(), rotated.getRotation());
+		for (int i = 0; i < kicks.length; i += 2) {
+			if (!board.collides(rotated, pieceX + kicks[i], pieceY + kicks[i+1])) {
+				piece = rotated;
+				pieceX += kicks[i];
+				pieceY += kicks[i+1];
+				landingValid = false;
+				if (pieceY < lowestY) reachLowerRow();
+				else restartLockDelay();
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	/**
@@ -132,13 +434,123 @@ public class Tetris {
 	 * Extra points are awarded for the height of the drop, up to 5 cells.
 	 */
 	public void drop() {
-		int drop = 0;
-		while(tryMove(pieceX, pieceY-1)) {
-			drop++;
-		}
+		if (gameOver) return;
+		record(Action.DROP);
+		int drop = pieceY - getLandingY();
+		pieceY = landingY;
 		finalizePiece(drop >= 5 ? 5 : drop);
 	}
 	
+	/**
+	 * Performs a "soft-drop", which moves the current piece down by one cell without locking it, awarding a point for the cell.
+	 * A piece that can not move down locks once the lock delay has passed, like a piece resting on the stack.
+	 * This is applied every tick while the player holds the soft drop button.
+	 */
+	public void softDrop() {
+		if (gameOver) return;
+		record(Action.SOFT_DROP);
+		if (!fall()) return;
+		gravityMillis = 0;
+		score++;
+		publish(Event.SCORE_CHANGED, score);
+	}
+
+	/**
+	 * Advances the clock of the game by one tick. Gravity moves the piece down whenever the delay of the current game speed has passed,
+	 * by as many cells as the time of the tick covers, so pieces fall at the right speed even when it is more than a cell per tick.
+	 * A piece resting on the stack locks once it has rested for the lock delay. Moving or rotating it restarts the delay,
+	 * up to the reset limit, and reaching a row lower than before allows that many resets again.
+	 * Every tick is recorded in the replay, so a game played in real time is replayed exactly.
+	 * @return false if the game is over after the tick, true otherwise
+	 */
+	public boolean tick() {
+		if (gameOver) return false;
+		record(Action.TICK);
+		int delay = getDelayInMillis();
+		gravityMillis += TICK_MILLIS;
+		while (gravityMillis >= delay) {
+			gravityMillis -= delay;
+			if (!fall()) {
+				gravityMillis = 0;
+				break;
+			}
+		}
+		if (getLandingY() != pieceY) {
+			lockTicks = 0;
+			return true;
+		}
+		if (++lockTicks <= lockDelay) return true;
+		return finalizePiece(0);
+	}
+
+	/**
+	 * Moves the current piece down by one cell if it can, without locking it.
+	 * @return true if the piece moved, false if it rests on the stack
+	 */
+	private boolean fall() {
+		if (!tryMove(pieceX, pieceY-1)) return false;
+		lockTicks = 0;
+		if (pieceY < lowestY) reachLowerRow();
+		return true;
+	}
+
+	/**
+	 * Records that the current piece reached a row lower than before, which allows it the full number of lock delay restarts again.
+	 */
+	private void reachLowerRow() {
+		lowestY = pieceY;
+		lockTicks = 0;
+		lockResets = 0;
+	}
+
+	/**
+	 * Restarts the lock delay of the current piece after it moved or rotated while resting on the stack, if it has restarts left.
+	 */
+	private void restartLockDelay() {
+		if (lockTicks > 0 && lockResets < lockResetLimit) {
+			lockTicks = 0;
+			lockResets++;
+		}
+	}
+
+	/**
+	 * Swaps the current piece with the piece in the hold slot, which then spawns at the top of the board.
+	 * If the slot is empty, the current piece is held and the next piece spawns instead.
+	 * The hold slot can be used once per piece, until the piece spawned from the preview queue locks,
+	 * so holding again before that has no effect. This can not result in a piece landing, so no finalization is needed.
+	 * Pieces are held in their spawn orientation, so swapping them does not construct any Tetromino.
+	 */
+	public void hold() {
+		if (gameOver) return;
+		record(Action.HOLD);
+		if (holdUsed) return;
+		Tetromino swap = heldPiece;
+		heldPiece = Tetromino.spawned(piece.getShape());
+		if (swap == null) newPiece();
+		else spawnPiece(swap);
+		holdUsed = true;
+	}
+
+	/**
+	 * Applies the given action to the game, by calling the method that corresponds to it.
+	 * @param a the action to apply
+	 * @return false if the game is over after the action, true otherwise
+	 */
+	public boolean apply(Action a) {
+		switch(a) {
+		case DOWN -> moveDown();
+		case LEFT -> moveLeft();
+		case RIGHT -> moveRight();
+		case ROTATE_LEFT -> rotateLeft();
+		case ROTATE_RIGHT -> rotateRight();
+		case DROP -> drop();
+		case HOLD -> hold();
+		case SOFT_DROP -> softDrop();
+		case TICK -> tick();
+		}
+		return !gameOver;
+	}
+
 	/**
 	 * Returns the delay in milliseconds between the steps of automatic falling, based on the current game speed.
 	 * The delay is given by the time it takes for a piece to drop from its spawning point to the bottom of the board.
@@ -201,6 +613,22 @@ public class Tetris {
 		return gameSpeed;
 	}
 	
+	/**
+	 * Returns whether the game has ended by the stack reaching the hidden lines.
+	 * @return true if the game is over, false otherwise
+	 */
+	public boolean isGameOver() {
+		return gameOver;
+	}
+
+	/**
+	 * Returns the Replay of the game, containing every action applied so far.
+	 * @return the replay of the game, or null if the game was not started from a known seed
+	 */
+	public Replay getReplay() {
+		return replay;
+	}
+
 	/**
 	 * Returns the height of the board in cells.
 	 * @return the height of the board
@@ -217,16 +645,115 @@ public class Tetris {
 		return board.getWidth();
 	}
 	
+	/**
+	 * Returns the board of the game.
+	 * @return the board of the game
+	 */
+	protected Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Returns the piece the player is currently controlling.
+	 * @return the current piece
+	 */
+	protected Tetromino getPiece() {
+		return piece;
+	}
+
+	/**
+	 * Returns the piece that will fall after the current one lands.
+	 * @return the next piece
+	 */
+	protected Tetromino getNextPiece() {
+		return preview[previewHead];
+	}
+
+	/**
+	 * Returns the piece that will fall the given number of pieces after the next one, so 0 is the next piece.
+	 * @param index the position of the piece in the preview queue, less than PREVIEW_SIZE
+	 * @return the piece at the given position of the queue
+	 * @throws IllegalArgumentException if the index is out of range
+	 */
+	protected Tetromino getPreview(int index) {
+		if (index < 0 || index >= PREVIEW_SIZE) throw new IllegalArgumentException("Preview index out of range: " + index);
+		return preview[(previewHead + index) % PREVIEW_SIZE];
+	}
+
+	/**
+	 * Returns the piece in the hold slot, in its spawn orientation.
+	 * @return the held piece, or null if no piece was held yet
+	 */
+	protected Tetromino getHeldPiece() {
+		return heldPiece;
+	}
+
+	/**
+	 * Returns the shape of the piece in the hold slot, as the ordinal of the shape.
+	 * @return the ordinal of the shape of the held piece, or -1 if no piece was held yet
+	 */
+	public int getHeldShape() {
+		return heldPiece == null ? -1 : heldPiece.getShape().ordinal();
+	}
+
+	/**
+	 * Returns whether the current piece can be swapped with the hold slot, which is once per piece.
+	 * @return true if the game is not over and the hold slot was not used since the current piece spawned, false otherwise
+	 */
+	public boolean canHold() {
+		return !gameOver && !holdUsed;
+	}
+
+	/**
+	 * Returns the shape of the piece at the given position of the preview queue, as the ordinal of the shape,
+	 * like the values of the PIECE_SPAWNED events.
+	 * @param index the position of the piece in the preview queue, less than PREVIEW_SIZE
+	 * @return the ordinal of the shape of the piece
+	 * @throws IllegalArgumentException if the index is out of range
+	 */
+	public int getPreviewShape(int index) {
+		return getPreview(index).getShape().ordinal();
+	}
+
+	/**
+	 * Returns the x-coordinate of the origin of the current piece.
+	 * @return the x-coordinate of the current piece
+	 */
+	protected int getPieceX() {
+		return pieceX;
+	}
+
+	/**
+	 * Returns the y-coordinate of the origin of the current piece.
+	 * @return the y-coordinate of the current piece
+	 */
+	protected int getPieceY() {
+		return pieceY;
+	}
+
 	/**
 	 * Calls the draw functions of both the board and the current piece to draw the game state to the given Graphics object.
+	 * The ghost of the current piece is drawn where it would land if it was dropped, below the piece itself.
+	 * Only the filled cells of the board are drawn, over the empty grid drawn by drawBackground().
 	 * @param g the Graphics object to draw on
 	 * @param squareSize the size of each square in pixels
 	 */
 	public void drawTetris(Graphics g, int squareSize) {
 		board.drawBoard(g, squareSize);
+		piece.drawGhost(g, pieceX*squareSize, getLandingY()*squareSize, squareSize);
 		piece.drawPiece(g, pieceX*squareSize, pieceY*squareSize, squareSize);		
 	}
 
+	/**
+	 * Draws the empty grid of the board, which the board and pieces are drawn over by drawTetris().
+	 * It never changes during the game, so it can be drawn once and reused.
+	 * @param g the Graphics object to draw on
+	 * @param squareSize the size of each square in pixels
+	 */
+	public void drawBackground(Graphics g, int squareSize) {
+		board.drawBackground(g, squareSize);
+	}
+
 	/**
 	 * Calls the draw function of the next piece, to draw it in a preview window.
 	 * The preview window should be a 5x5 square, the drawing is done in a way where the piece is centered in the window.
@@ -234,11 +761,50 @@ public class Tetris {
 	 * @param squareSize the size of each square in pixels
 	 */
 	public void drawNextPiece(Graphics g, int squareSize) {
-		if (nextPiece.isShape(Tetromino.Shape.O)) nextPiece.drawPiece(g, 3*squareSize/2, 3*squareSize/2, squareSize);
-		else if (nextPiece.isShape(Tetromino.Shape.I)) nextPiece.drawPiece(g, 3*squareSize/2, 4*squareSize/2, squareSize);
-		else nextPiece.drawPiece(g, 4*squareSize/2, 3*squareSize/2, squareSize);
+		drawPreviewPiece(g, getNextPiece(), squareSize, squareSize);
+	}
+
+	/**
+	 * Draws a piece of the given shape in its spawn orientation, centered in a window 5 squares wide and 3 squares tall,
+	 * so a preview queue can draw each shape once and reuse the image.
+	 * @param g the Graphics object to draw on
+	 * @param shape the ordinal of the shape, as returned by getPreviewShape()
+	 * @param squareSize the size of each square in pixels
+	 */
+	public static void drawPreviewShape(Graphics g, int shape, int squareSize) {
+		drawPreviewPiece(g, new Tetromino(Tetromino.Shape.values()[shape]), 0, squareSize);
+	}
+
+	/**
+	 * Draws the given piece centered in a window 5 squares wide and 3 squares tall, whose bottom is at the given y-coordinate.
+	 * @param g the Graphics object to draw on
+	 * @param piece the piece to draw
+	 * @param y the y-coordinate of the bottom of the window
+	 * @param squareSize the size of each square in pixels
+	 */
+	private static void drawPreviewPiece(Graphics g, Tetromino piece, int y, int squareSize) {
+		if (piece.isShape(Tetromino.Shape.O)) piece.drawPiece(g, 3*squareSize/2, y + squareSize/2, squareSize);
+		else if (piece.isShape(Tetromino.Shape.I)) piece.drawPiece(g, 3*squareSize/2, y + squareSize, squareSize);
+		else piece.drawPiece(g, 2*squareSize, y + squareSize/2, squareSize);
 	}
 	
+	/**
+	 * Publishes the given event to the event bus of the game, if there is one.
+	 * @param e the type of the event
+	 * @param value the value of the event
+	 */
+	private void publish(Event e, int value) {
+		if (events != null) events.publish(e, value);
+	}
+
+	/**
+	 * Records the given action into the replay of the game, if there is one.
+	 * @param a the action to record
+	 */
+	private void record(Action a) {
+		if (replay != null) replay.record(a);
+	}
+
 	/**
 	 * Attempts to move the current piece to the given coordinates.
 	 * If the piece can not be moved to the new position, nothing happens, and the function returns false.
@@ -254,8 +820,42 @@ public class Tetris {
 		}
 		pieceX = newX;
 		pieceY = newY;
+		landingValid = false;
 		return true;
 	}
+
+	/**
+	 * Returns the y-coordinate the origin of the current piece would land at if it was dropped.
+	 * The result is cached until the piece moves or rotates, or a new piece spawns.
+	 * @return the y-coordinate of the landing position
+	 */
+	protected int getLandingY() {
+		if (!landingValid) {
+			landingY = findLandingY();
+			landingValid = true;
+		}
+		return landingY;
+	}
+
+	/**
+	 * Finds the y-coordinate the origin of the current piece would land at if it was dropped.
+	 * Each mino can go no lower than the height of its column, so the piece lands at the highest of these limits.
+	 * This is only exact if the piece is above the heights of its columns, otherwise it is tucked under an overhang,
+	 * and the landing position is found by moving the piece down one cell at a time.
+	 * @return the y-coordinate of the landing position
+	 */
+	private int findLandingY() {
+		int landing = Integer.MIN_VALUE;
+		for (Point mino : piece.getMinoArray()) {
+			landing = Math.max(landing, board.getColumnHeight(pieceX + mino.x) - mino.y);
+		}
+		if (landing <= pieceY) return landing;
+		int y = pieceY;
+		while (!board.collides(piece, pieceX, y-1)) {
+			y--;
+		}
+		return y;
+	}
 	
 	/**
 	 * Places the current piece on the board. If this results in the game ending, the function returns false.
@@ -263,13 +863,24 @@ public class Tetris {
 	 * and whether or not the piece was dropped from a significant height.
 	 * If the cleared lines result in the player reaching the next level, the function increments the level.
 	 * Finally, the function generates a new piece to fall, and returns true.
+	 * Games played by a player count the placed piece and the cleared lines in the Metrics.
+	 * In a versus game, cleared lines are sent to the opponents as garbage, and if no lines were cleared,
+	 * the garbage waiting for this game is added to the board before the new piece spawns, which can end the game.
+	 * Every change is published as an event: the piece locking, the lines cleared, the new score and level, or the game ending.
 	 * @param drop
 	 * @return true if the game continues, false if the game is over
 	 */
 	private boolean finalizePiece(int drop) {
 		board.placePiece(piece, pieceX, pieceY);
-		if (board.isDead()) return false;
+		publish(Event.PIECE_LOCKED, piece.getShape().ordinal());
+		if (board.isDead()) {
+			return topOut();
+		}
 		int lines = board.clearFilledLines();
+		if (replay != null) {
+			Metrics.PIECES_PLACED.increment();
+			Metrics.LINES_CLEARED.add(lines);
+		}
 		switch(lines) {
 		case 0:
 			break;
@@ -288,47 +899,92 @@ public class Tetris {
 		}
 		linesClearedOnLevel+=lines;
 		linesClearedTotal+=lines;
+		if (lines > 0) {
+			publish(Event.LINES_CLEARED, lines);
+			publish(Event.SCORE_CHANGED, score);
+		}
+		if (versus != null && !exchangeGarbage(lines)) {
+			return topOut();
+		}
 		newPiece();
 		if (getLinesToNextLevel() <= 0) {
 			linesClearedOnLevel = 0;
 			gameSpeed++;
+			publish(Event.LEVEL_UP, gameSpeed);
 		}
 		return true;
 	}
 	
 	/**
-	 * Sets the current piece to the next piece, and pulls a new next piece from the pieceBag.
-	 * The new piece is placed at the top of the board in the center. If the new piece can not start in this position
+	 * Ends the game because the stack reached the hidden lines, taking the player out of their versus battle.
+	 * @return false, as the game is over
+	 */
+	private boolean topOut() {
+		gameOver = true;
+		if (versus != null) versus.leave(versusIndex);
+		publish(Event.TOP_OUT, score);
+		return false;
+	}
+
+	/**
+	 * Sends the garbage for the given number of cleared lines to the opponents, or if no lines were cleared,
+	 * adds all the garbage waiting for this game to the bottom of the board, with the hole in the same column.
+	 * @param lines the number of lines cleared by the piece that just locked
+	 * @return false if the garbage pushed the stack into the hidden lines, true otherwise
+	 */
+	private boolean exchangeGarbage(int lines) {
+		if (lines > 0) {
+			versus.linesCleared(versusIndex, lines);
+			return true;
+		}
+		int garbage = versus.takeGarbage(versusIndex);
+		if (garbage == 0) return true;
+		publish(Event.GARBAGE_RECEIVED, garbage);
+		return board.addGarbage(garbage, versus.nextHole(versusIndex, board.getWidth())) && !board.isDead();
+	}
+
+	/**
+	 * Sets the current piece to the next piece in the preview queue, and pulls a new piece from the randomizer into the end of the queue.
+	 * The hold slot can be used again for the new piece.
+	 */
+	private void newPiece () {
+		Tetromino next = preview[previewHead];
+		preview[previewHead] = Tetromino.spawned(pullFromPieceBag());
+		previewHead = (previewHead + 1) % PREVIEW_SIZE;
+		holdUsed = false;
+		spawnPiece(next);
+	}
+
+	/**
+	 * Makes the given piece the current piece, placed at the top of the board in the center. If the new piece can not start in this position
 	 * because the stack is so high, then it is moved up into the hidden lines until this is no longer the case.
 	 * This will take less than 4 iterations, as the piece is at most 4 cells tall, so 4 hidden lines are enough. 
+	 * The new piece starts with the full time of gravity and the full lock delay.
+	 * Publishes the spawning of the piece as an event.
+	 * @param next the piece to spawn, in its spawn orientation
 	 */
-	private void newPiece () {
+	private void spawnPiece(Tetromino next) {
 		pieceX = board.getWidth()/2-1;
 		pieceY = board.getHeight();
-		piece = nextPiece;
-		nextPiece = new Tetromino(pullFromPieceBag());
+		piece = next;
+		landingValid = false;
 		
 		while (board.collides(piece, pieceX, pieceY)) {
 			pieceY++;
 		}
+		gravityMillis = 0;
+		lockTicks = 0;
+		lockResets = 0;
+		lowestY = pieceY;
+		publish(Event.PIECE_SPAWNED, piece.getShape().ordinal());
 	}
 
 	/**
-	 * Pulls the next piece from the pieceBag, creating a new shuffled order when all pieces have been pulled.
+	 * Pulls the next piece from the randomizer, which is the piece after the last one in the preview queue.
+	 * Protected scope because it is used to read the sequence of pieces of a game further ahead than the queue.
 	 * @return the shape of the next piece to fall
 	 */
-	private Tetromino.Shape pullFromPieceBag () {
-		if (pieceBag.isEmpty()) {
-			initPieceBag();
-		}
-		return pieceBag.remove(0);
-	}
-
-	/**
-	 * Initializes the pieceBag with a shuffled list of all Tetromino shapes.
-	 */
-	private void initPieceBag() {
-		pieceBag = new ArrayList<>(List.of(Tetromino.Shape.values()));
-		Collections.shuffle(pieceBag, randomSource);
+	protected Tetromino.Shape pullFromPieceBag () {
+		return randomizer.next();
 	}
 }
@@ -22,11 +22,58 @@ public class Tetromino {
 	 */
 	private static EnumMap<Shape, Color> shapeColors = new EnumMap<>(Shape.class);
 	
+	/**
+	 * A static map that stores the translucent color of the ghost of each shape.
+	 */
+	private static EnumMap<Shape, Color> ghostColors = new EnumMap<>(Shape.class);
+
 	/**
 	 * A static map that stores the minos of each shape.
 	 */
 	private static EnumMap<Shape, Set<Point>> shapeMinos = new EnumMap<>(Shape.class);
 
+	/**
+	 * A shared Tetromino of each shape in its spawn orientation, indexed by the ordinal of the shape.
+	 * A Tetromino is never changed once it is constructed, so pieces entering the game do not have to be constructed every time.
+	 */
+	private static final Tetromino[] spawnPieces = new Tetromino[Shape.values().length];
+
+	/**
+	 * A shared Tetromino of each shape in each of its 4 orientations, indexed by the ordinal of the shape and the rotation.
+	 * Rotating a piece with the minos of its shape returns one of these, so rotating does not allocate.
+	 */
+	private static final Tetromino[][] orientations = new Tetromino[Shape.values().length][4];
+
+	/**
+	 * The offsets of the Super Rotation System for the J, L, S, T and Z shapes, for each orientation from the spawn orientation clockwise,
+	 * as 5 pairs of x and y offsets. The kicks tried when rotating from one orientation to another are the offsets of the first
+	 * minus the offsets of the second, which gives the usual kick tables for pieces rotating around the origin mino.
+	 */
+	private static final int[][] JLSTZ_OFFSETS = {
+		{0,0, 0,0, 0,0, 0,0, 0,0},
+		{0,0, 1,0, 1,-1, 0,2, 1,2},
+		{0,0, 0,0, 0,0, 0,0, 0,0},
+		{0,0, -1,0, -1,-1, 0,2, -1,2}
+	};
+
+	/**
+	 * The offsets of the Super Rotation System for the I shape, the same way as JLSTZ_OFFSETS.
+	 * They also move the I piece back to the center of its 4x4 box, since it rotates around its second mino instead.
+	 */
+	private static final int[][] I_OFFSETS = {
+		{0,0, -1,0, 2,0, -1,0, 2,0},
+		{-1,0, 0,0, 0,0, 0,1, 0,-2},
+		{-1,1, 1,1, -2,1, 1,0, -2,0},
+		{0,1, 0,1, 0,1, 0,-1, 0,2}
+	};
+
+	/**
+	 * The kicks tried when rotating, indexed by the ordinal of the shape, the orientation before and the orientation after the rotation.
+	 * Each is a list of x and y offsets to move the rotated piece by, tried in order until one does not collide.
+	 * The O piece does not change its orientation, so it only has the kick (0, 0).
+	 */
+	private static final int[][][][] kicks = new int[Shape.values().length][4][4][];
+
 	/**
 	 * A set of points (relative coordinates) to represent the minos that make up the Tetromino.
 	 */
@@ -41,31 +88,154 @@ public class Tetromino {
 	 * The shape of the Tetromino.
 	 */
 	private Shape shape;
+
+	/**
+	 * The number of right (clockwise) rotations from the spawn orientation, from 0 to 3.
+	 */
+	private int rotation;
+
+	/**
+	 * The minos of the Tetromino as a bit mask for each row it covers from the bottom,
+	 * where bit x of a row is set if the mino in column minX + x is filled, so it can be tested against the lines of a Board at once.
+	 */
+	private long[] rowMasks;
+
+	/**
+	 * The lowest and the highest relative x-coordinates, and the lowest relative y-coordinate, of the minos.
+	 */
+	private int minX, maxX, minY;
+
+	/**
+	 * The minos in an array, so they can be iterated without allocating an iterator.
+	 */
+	private Point[] minoArray;
+
+	/**
+	 * Whether the minos are those of the shape, in which case the rotations of the Tetromino are the shared ones in orientations.
+	 */
+	private boolean standard;
 	
 	/**
 	 * Constructs a new Tetromino object with the specified shape, setting the minos and color accordingly.
 	 * @param shape the shape of the Tetromino
 	 */
 	protected Tetromino(Shape shape) {
-		minos = shapeMinos.get(shape);
+		this(shape, shapeMinos.get(shape), 0, true);
+	}
+
+	/**
+	 * Constructs a new Tetromino object with the color of the specified shape, but the given minos, in the spawn orientation.
+	 * @param shape the shape of the Tetromino
+	 * @param minos the relative coordinates of the minos
+	 */
+	protected Tetromino(Shape shape, Set<Point> minos) {
+		this(shape, minos, 0, false);
+	}
+
+	/**
+	 * Constructs a new Tetromino object with the color of the specified shape, the given minos and the given orientation.
+	 * The minos are copied into a set that can not be changed, so the Tetromino is never changed once it is constructed.
+	 * @param shape the shape of the Tetromino
+	 * @param minos the relative coordinates of the minos
+	 * @param rotation the number of right rotations from the spawn orientation, from 0 to 3
+	 * @param standard whether the minos are those of the shape in the given orientation
+	 */
+	private Tetromino(Shape shape, Set<Point> minos, int rotation, boolean standard) {
+		this.minos = Collections.unmodifiableSet(new HashSet<>(minos));
+		minoArray = this.minos.toArray(new Point[0]);
 		color = shapeColors.get(shape);
 		this.shape = shape;
+		this.rotation = rotation;
+		this.standard = standard;
+		updateRowMasks();
+	}
+
+	/**
+	 * Returns the kicks tried when rotating a piece of the given shape from one orientation to another,
+	 * according to the Super Rotation System. The array is shared, and must not be changed.
+	 * @param shape the shape of the piece
+	 * @param from the orientation before the rotation, from 0 to 3
+	 * @param to the orientation after the rotation, from 0 to 3
+	 * @return the x and y offsets of the kicks, in pairs, in the order they are tried
+	 */
+	protected static int[] getKicks(Shape shape, int from, int to) {
+		return kicks[shape.ordinal()][from][to];
 	}
 	
+	/**
+	 * Returns the shared Tetromino of the given shape in its spawn orientation.
+	 * @param shape the shape of the Tetromino
+	 * @return the Tetromino of the shape in its spawn orientation
+	 */
+	protected static Tetromino spawned(Shape shape) {
+		return spawnPieces[shape.ordinal()];
+	}
+
 	/**
 	 * Returns the minos of the Tetromino.
-	 * @return a Set of points representing the minos
+	 * @return a Set of points representing the minos, which can not be changed
 	 */
 	protected Set<Point> getMinos(){
 		return minos;
 	}
-	
+
+	/**
+	 * Returns the minos of the Tetromino as an array, which can be iterated without allocating. The array is shared, and must not be changed.
+	 * @return an array of points representing the minos
+	 */
+	protected Point[] getMinoArray() {
+		return minoArray;
+	}
+
+	/**
+	 * Returns the row masks of the minos, from the lowest row of the piece up. The array is shared, and must not be changed.
+	 * @return the bit mask of each row, where bit x is set if the mino in column getMinX() + x is filled
+	 */
+	protected long[] getRowMasks() {
+		return rowMasks;
+	}
+
+	/**
+	 * Returns the lowest relative x-coordinate of the minos.
+	 * @return the x-coordinate of the leftmost mino
+	 */
+	protected int getMinX() {
+		return minX;
+	}
+
 	/**
-	 * Sets the minos of the Tetromino to the given set of points.
-	 * @param newMinos the new set of minos
+	 * Returns the highest relative x-coordinate of the minos.
+	 * @return the x-coordinate of the rightmost mino
 	 */
-	protected void setMinos(Set<Point> newMinos) {
-		minos = newMinos;
+	protected int getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * Returns the lowest relative y-coordinate of the minos.
+	 * @return the y-coordinate of the lowest mino
+	 */
+	protected int getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Calculates the row masks and the bounds of the minos, once when the Tetromino is constructed.
+	 */
+	private void updateRowMasks() {
+		minX = minY = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (Point mino : minos) {
+			minX = Math.min(minX, mino.x);
+			maxX = Math.max(maxX, mino.x);
+			minY = Math.min(minY, mino.y);
+			maxY = Math.max(maxY, mino.y);
+		}
+		rowMasks = new long[maxY - minY + 1];
+		for (Point mino : minos) {
+			rowMasks[mino.y - minY] |= 1L << (mino.x - minX);
+		}
 	}
 	
 	/**
@@ -76,6 +246,22 @@ public class Tetromino {
 		return color;
 	}
 
+	/**
+	 * Returns the shape of the Tetromino.
+	 * @return the shape of the Tetromino
+	 */
+	protected Shape getShape() {
+		return shape;
+	}
+
+	/**
+	 * Returns the orientation of the Tetromino, as the number of right rotations from its spawn orientation.
+	 * @return the rotation, from 0 to 3
+	 */
+	protected int getRotation() {
+		return rotation;
+	}
+
 	/**
 	 * Checks if the Tetromino has the given shape.
 	 * @param s the shape to check against
@@ -87,32 +273,39 @@ public class Tetromino {
 	
 	/**
 	 * Rotates the Tetromino 90 degrees to the left (counter-clockwise).
-	 * @return a new Tetromino object representing the rotated piece
+	 * @return the shared Tetromino of the rotated orientation, or a new one if the minos are not those of the shape
 	 */
 	protected Tetromino rotatedLeft() {
 		if (shape == Shape.O) return this;
-		Tetromino out = new Tetromino(shape);
+		if (standard) return orientations[shape.ordinal()][(rotation + 3) % 4];
 		Set<Point> newMinos = new HashSet<>();
 		for (Point mino : minos) {
 			newMinos.add(new Point(-1*mino.y, mino.x));
 		}
-		out.setMinos(newMinos);
-		return out;
+		return new Tetromino(shape, newMinos, (rotation + 3) % 4, false);
 	}
 	
 	/**
 	 * Rotates the Tetromino 90 degrees to the right (clockwise).
-	 * @return a new Tetromino object representing the rotated piece
+	 * @return the shared Tetromino of the rotated orientation, or a new one if the minos are not those of the shape
 	 */
 	protected Tetromino rotatedRight() {
 		if (shape == Shape.O) return this;
-		Tetromino out = new Tetromino(shape);
+		if (standard) return orientations[shape.ordinal()][(rotation + 1) % 4];
+		return turnedRight(false);
+	}
+
+	/**
+	 * Builds the Tetromino rotated 90 degrees to the right, by rotating each of its minos.
+	 * @param standardMinos whether the minos are those of the shape, which is only true while the shared orientations are built
+	 * @return a new Tetromino object representing the rotated piece
+	 */
+	private Tetromino turnedRight(boolean standardMinos) {
 		Set<Point> newMinos = new HashSet<>();
 		for (Point mino : minos) {
 			newMinos.add(new Point(mino.y, -1*mino.x));
 		}
-		out.setMinos(newMinos);
-		return out;
+		return new Tetromino(shape, newMinos, (rotation + 1) % 4, standardMinos);
 	}
 	
 	/**
@@ -129,6 +322,19 @@ public class Tetromino {
 		}
 	}
 	
+	/**
+	 * Draws the ghost of the Tetromino, which shows where it would land, as translucent minos.
+	 * @param g the graphics context to draw on
+	 * @param x the x-coordinate of the top-left corner of the piece
+	 * @param y the y-coordinate of the top-left corner of the piece
+	 * @param squareSize the size of each square in pixels
+	 */
+	protected void drawGhost(Graphics g, int x, int y, int squareSize) {
+		for (Point mino : minos) {
+			drawMino(g, x + mino.x*squareSize, y + mino.y*squareSize, ghostColors.get(shape), squareSize);
+		}
+	}
+
 	/**
 	 * Draws a single mino on the graphics context at the specified location and size.
 	 * Draws a darker border around the mino.
@@ -160,6 +366,10 @@ public class Tetromino {
 		shapeColors.put(Shape.Z, new Color(255, 85, 85));
 		shapeColors.put(Shape.T, new Color(255, 121, 198));
 		shapeColors.put(Shape.O, new Color(241, 250, 140));
+		for (Shape s : Shape.values()) {
+			Color c = shapeColors.get(s);
+			ghostColors.put(s, new Color(c.getRed(), c.getGreen(), c.getBlue(), 60));
+		}
 				
 		shapeMinos.put(Shape.I, new HashSet<>(Set.of(new Point(-1,0), new Point(0,0), new Point(1,0), new Point(2,0))));
 		shapeMinos.put(Shape.J, new HashSet<>(Set.of(new Point(-1,1), new Point(-1,0), new Point(0,0), new Point(1,0))));
@@ -168,5 +378,27 @@ public class Tetromino {
 		shapeMinos.put(Shape.Z, new HashSet<>(Set.of(new Point(-1,1), new Point(0,1), new Point(0,0), new Point(1,0))));
 		shapeMinos.put(Shape.T, new HashSet<>(Set.of(new Point(-1,0), new Point(0,0), new Point(1,0), new Point(0,1))));
 		shapeMinos.put(Shape.O, new HashSet<>(Set.of(new Point(0,0), new Point(1,0), new Point(0,1), new Point(1,1))));
+		for (Shape s : Shape.values()) {
+			spawnPieces[s.ordinal()] = new Tetromino(s);
+			orientations[s.ordinal()][0] = spawnPieces[s.ordinal()];
+			for (int r = 1; r < 4; r++) {
+				Tetromino before = orientations[s.ordinal()][r-1];
+				orientations[s.ordinal()][r] = s == Shape.O ? before : before.turnedRight(true);
+			}
+			int[][] offsets = s == Shape.I ? I_OFFSETS : JLSTZ_OFFSETS;
+			for (int from = 0; from < 4; from++) {
+				for (int to = 0; to < 4; to++) {
+					if (s == Shape.O || from == to) {
+						kicks[s.ordinal()][from][to] = new int[] {0, 0};
+						continue;
+					}
+					int[] k = new int[offsets[from].length];
+					for (int i = 0; i < k.length; i++) {
+						k[i] = offsets[from][i] - offsets[to][i];
+					}
+					kicks[s.ordinal()][from][to] = k;
+				}
+			}
+		}
 	}
 }
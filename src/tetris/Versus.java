@@ -0,0 +1,149 @@
+package tetris;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The Versus class links the games of two or more players in a battle, where clearing lines sends garbage lines to an opponent.
+ * Clearing 2, 3 or 4 lines at once sends 1, 2 or 4 garbage lines. The lines first cancel the garbage waiting for the sender,
+ * and the rest go to the next player, in order, who is still playing.
+ *
+ * Garbage is never put on a board while a piece is falling. It waits in a counter for its receiver,
+ * and is added to the receiver's board all at once when the receiver's next piece locks, before the next piece spawns.
+ * The counters are atomic, so the games can be advanced on different threads, as they are by the TickScheduler of a GameServer,
+ * with each board only ever changed by the thread advancing its own game.
+ */
+public class Versus {
+	/**
+	 * The number of garbage lines sent for each number of lines cleared at once.
+	 */
+	private static final int[] ATTACK = {0, 0, 1, 2, 4};
+
+	/**
+	 * The value of the garbage counter of a player who is out of the battle.
+	 */
+	private static final int OUT = -1;
+
+	/**
+	 * The games of the players, in the order garbage is passed on.
+	 */
+	private Tetris[] players;
+
+	/**
+	 * The number of garbage lines waiting for each player, or OUT for the players whose games are over.
+	 */
+	private AtomicIntegerArray incoming;
+
+	/**
+	 * The random sources of the holes of the garbage of each player, each only used by the thread advancing the game of its player.
+	 */
+	private Random[] holes;
+
+	/**
+	 * Constructs a new Versus battle between the given games, which should not have started yet.
+	 * The holes of the garbage lines are random, seeded with the given seed, so the same seed gives every player the same holes.
+	 * @param seed the seed of the holes of the garbage lines
+	 * @param players the games of the players
+	 */
+	public Versus(long seed, Tetris... players) {
+		this.players = players.clone();
+		incoming = new AtomicIntegerArray(players.length);
+		holes = new Random[players.length];
+		for (int i = 0; i < players.length; i++) {
+			holes[i] = new Random(seed);
+			players[i].setVersus(this, i);
+		}
+	}
+
+	/**
+	 * Returns the number of players in the battle.
+	 * @return the number of players
+	 */
+	public int getPlayerCount() {
+		return players.length;
+	}
+
+	/**
+	 * Returns the game of the given player.
+	 * @param player the index of the player
+	 * @return the game of the player
+	 */
+	public Tetris getPlayer(int player) {
+		return players[player];
+	}
+
+	/**
+	 * Returns the number of garbage lines waiting to be added to the board of the given player.
+	 * @param player the index of the player
+	 * @return the number of waiting garbage lines, 0 if the player is out of the battle
+	 */
+	public int getIncoming(int player) {
+		return Math.max(0, incoming.get(player));
+	}
+
+	/**
+	 * Sends the garbage for the given number of lines cleared at once by the given player.
+	 * The garbage first cancels the garbage waiting for the sender, and the rest goes to the next player still in the battle.
+	 * @param sender the index of the player who cleared the lines
+	 * @param lines the number of lines cleared
+	 */
+	protected void linesCleared(int sender, int lines) {
+		int attack = ATTACK[Math.min(lines, ATTACK.length-1)];
+		while (attack > 0) {
+			int waiting = incoming.get(sender);
+			if (waiting <= 0) break;
+			int cancelled = Math.min(waiting, attack);
+			if (incoming.compareAndSet(sender, waiting, waiting - cancelled)) attack -= cancelled;
+		}
+		if (attack > 0) send(sender, attack);
+	}
+
+	/**
+	 * Adds the given number of garbage lines to the counter of the next player after the sender who is still in the battle.
+	 * If no other player is left, the lines are dropped.
+	 * @param sender the index of the player sending the lines
+	 * @param lines the number of lines to send
+	 */
+	protected void send(int sender, int lines) {
+		for (int k = 1; k < players.length; k++) {
+			int target = (sender + k) % players.length;
+			int waiting;
+			do {
+				waiting = incoming.get(target);
+			} while (waiting != OUT && !incoming.compareAndSet(target, waiting, waiting + lines));
+			if (waiting != OUT) return;
+		}
+	}
+
+	/**
+	 * Takes every garbage line waiting for the given player, leaving none.
+	 * @param player the index of the player
+	 * @return the number of lines taken
+	 */
+	protected int takeGarbage(int player) {
+		int waiting;
+		do {
+			waiting = incoming.get(player);
+			if (waiting <= 0) return 0;
+		} while (!incoming.compareAndSet(player, waiting, 0));
+		return waiting;
+	}
+
+	/**
+	 * Returns the column of the hole of the next garbage lines of the given player.
+	 * @param player the index of the player
+	 * @param width the width of the board of the player
+	 * @return the x-coordinate of the hole
+	 */
+	protected int nextHole(int player, int width) {
+		return holes[player].nextInt(width);
+	}
+
+	/**
+	 * Takes the given player out of the battle, after their game is over, so no more garbage is sent to them.
+	 * @param player the index of the player
+	 */
+	protected void leave(int player) {
+		incoming.set(player, OUT);
+	}
+}
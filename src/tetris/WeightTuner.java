@@ -0,0 +1,299 @@
+package tetris;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The WeightTuner class searches for the weights of a Player that result in the highest scores.
+ * It uses an evolution strategy in the style of the cross-entropy method: each generation, candidate weights
+ * are sampled from a normal distribution, the best candidates are selected, and the distribution is moved towards them.
+ * The fitness of a candidate is its average score over the same list of seeded games, played in parallel on every core.
+ * Candidates are evaluated in rounds of games, and the worse half is dropped after each round, so losing candidates stop early.
+ * Every generation samples new candidates, so no game is played twice, and the whole state of the search can be saved to and loaded from a JSON checkpoint.
+ */
+public class WeightTuner {
+	/**
+	 * The seed of the search, which the seeds of the sampled candidates and the games are derived from.
+	 */
+	private long seed;
+
+	/**
+	 * The number of candidates sampled each generation, and the number of best candidates selected from them.
+	 */
+	private int populationSize, eliteCount;
+
+	/**
+	 * The number of rounds the candidates are evaluated in, and the number of games played in each round.
+	 */
+	private int rounds, gamesPerRound;
+
+	/**
+	 * The maximum number of pieces placed in a game, as a good player would never top out.
+	 */
+	private int maxPieces;
+
+	/**
+	 * The number of generations finished so far.
+	 */
+	private int generation;
+
+	/**
+	 * The mean and the standard deviation of the normal distribution the candidates are sampled from, for each weight.
+	 */
+	private double[] mean, deviation;
+
+	/**
+	 * The best weights found so far, evaluated on every game.
+	 */
+	private double[] best;
+
+	/**
+	 * The fitness of the best weights found so far.
+	 */
+	private double bestFitness;
+
+	/**
+	 * The pool of threads the games are played on. Not part of the checkpoint.
+	 */
+	private transient ExecutorService pool;
+
+	/**
+	 * Constructs a new WeightTuner starting from the given mean weights.
+	 * @param seed the seed of the search
+	 * @param populationSize the number of candidates sampled each generation
+	 * @param eliteCount the number of best candidates the distribution is moved towards
+	 * @param rounds the number of rounds the candidates are evaluated in
+	 * @param gamesPerRound the number of games played in each round
+	 * @param maxPieces the maximum number of pieces placed in a game
+	 * @param initialMean the weights the search starts from
+	 * @param initialDeviation the standard deviation of the weights of the first generation
+	 */
+	public WeightTuner(long seed, int populationSize, int eliteCount, int rounds, int gamesPerRound, int maxPieces, double[] initialMean, double initialDeviation) {
+		this.seed = seed;
+		this.populationSize = populationSize;
+		this.eliteCount = eliteCount;
+		this.rounds = rounds;
+		this.gamesPerRound = gamesPerRound;
+		this.maxPieces = maxPieces;
+		mean = initialMean.clone();
+		deviation = new double[mean.length];
+		Arrays.fill(deviation, initialDeviation);
+		best = mean.clone();
+		bestFitness = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Returns the number of generations finished so far.
+	 * @return the number of generations
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the best weights found so far.
+	 * @return a copy of the best weights
+	 */
+	public double[] getBest() {
+		return best.clone();
+	}
+
+	/**
+	 * Returns the fitness of the best weights found so far.
+	 * @return the average score of the best weights over every game
+	 */
+	public double getBestFitness() {
+		return bestFitness;
+	}
+
+	/**
+	 * Returns the fitness of the given weights, which is their average score over the first given number of games.
+	 * The games are played in parallel.
+	 * @param weights the weights of the player
+	 * @param games the number of games to play
+	 * @return the average score of the games
+	 */
+	public double fitness(double[] weights, int games) {
+		double[] out = fitness(List.of(weights), 0, games);
+		return out[0];
+	}
+
+	/**
+	 * Runs a single generation of the search: samples the candidates, evaluates them in rounds while dropping the losing ones,
+	 * then moves the distribution towards the best candidates, and updates the best weights.
+	 * The candidates of a generation only depend on the seed and the number of the generation,
+	 * so a search continued from a checkpoint gives the same results as an uninterrupted one.
+	 */
+	public void runGeneration() {
+		Random r = new Random(seed * 31 + generation);
+		List<double[]> candidates = new ArrayList<>();
+		for (int i = 0; i < populationSize; i++) {
+			double[] c = new double[mean.length];
+			for (int j = 0; j < c.length; j++) {
+				c[j] = mean[j] + deviation[j] * r.nextGaussian();
+			}
+			candidates.add(c);
+		}
+
+		double[] sums = new double[candidates.size()];
+		for (int round = 0; round < rounds; round++) {
+			double[] scores = fitness(candidates, round*gamesPerRound, (round+1)*gamesPerRound);
+			List<Integer> order = new ArrayList<>();
+			for (int i = 0; i < candidates.size(); i++) {
+				sums[i] += scores[i];
+				order.add(i);
+			}
+			double[] totals = sums;
+			order.sort((a, b) -> Double.compare(totals[b], totals[a]));
+
+			// keep the better half, but never fewer than the elite, and keep everything after the last round to select from
+			int keep = round == rounds-1 ? candidates.size() : Math.max(eliteCount, (candidates.size()+1)/2);
+			List<double[]> survivors = new ArrayList<>();
+			double[] survivorSums = new double[keep];
+			for (int i = 0; i < keep; i++) {
+				survivors.add(candidates.get(order.get(i)));
+				survivorSums[i] = sums[order.get(i)];
+			}
+			candidates = survivors;
+			sums = survivorSums;
+		}
+
+		// the candidates are sorted by fitness after the last round
+		int elites = Math.min(eliteCount, candidates.size());
+		for (int j = 0; j < mean.length; j++) {
+			double m = 0;
+			for (int i = 0; i < elites; i++) {
+				m += candidates.get(i)[j];
+			}
+			m /= elites;
+			double v = 0;
+			for (int i = 0; i < elites; i++) {
+				v += (candidates.get(i)[j] - m) * (candidates.get(i)[j] - m);
+			}
+			mean[j] = m;
+			// a small amount of extra noise keeps the search from collapsing too early
+			deviation[j] = Math.sqrt(v / elites) + 0.01;
+		}
+
+		// the sums add up the average score of every round
+		double topFitness = sums[0] / rounds;
+		if (topFitness > bestFitness) {
+			bestFitness = topFitness;
+			best = candidates.get(0).clone();
+		}
+		generation++;
+	}
+
+	/**
+	 * Saves the state of the search to the given file, by writing it to a temporary file first
+	 * and moving it in place, so a crash while saving does not destroy the previous checkpoint.
+	 * @param filename the name of the file to save to
+	 */
+	public void saveCheckpoint(String filename) {
+		Gson gson = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+		Path target = Paths.get(filename);
+		Path temp = Paths.get(filename + ".tmp");
+		try {
+			Files.writeString(temp, gson.toJson(this));
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Error saving checkpoint");
+		}
+	}
+
+	/**
+	 * Loads the state of a search from the given checkpoint file.
+	 * @param filename the name of the file to load from
+	 * @return the loaded search, or null if the file could not be read
+	 */
+	public static WeightTuner loadCheckpoint(String filename) {
+		Gson gson = new Gson();
+		try (Reader reader = new FileReader(filename)) {
+			return gson.fromJson(reader, WeightTuner.class);
+		} catch (IOException e) {
+			System.err.println("Error reading checkpoint");
+			return null;
+		}
+	}
+
+	/**
+	 * Stops the threads the games are played on. They are started again if more games are played.
+	 */
+	public void shutdown() {
+		if (pool != null) pool.shutdown();
+		pool = null;
+	}
+
+	/**
+	 * Runs the search from the command line, continuing from the checkpoint if it exists,
+	 * and saving a checkpoint after every generation.
+	 * Usage: WeightTuner [generations] [checkpoint file]
+	 * @param args the number of generations to run, and the name of the checkpoint file
+	 */
+	public static void main(String[] args) {
+		int generations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		String checkpoint = args.length > 1 ? args[1] : "tuner.json";
+		WeightTuner tuner = new File(checkpoint).exists() ? loadCheckpoint(checkpoint) : null;
+		if (tuner == null) tuner = new WeightTuner(1, 32, 8, 3, 8, 500, new double[] {-0.5, 0.75, -0.35, -0.2}, 0.5);
+		while (tuner.getGeneration() < generations) {
+			long start = System.nanoTime();
+			tuner.runGeneration();
+			tuner.saveCheckpoint(checkpoint);
+			System.out.printf("Generation %d: best fitness %.1f, weights %s (%d ms)%n", tuner.getGeneration(), tuner.getBestFitness(),
+					Arrays.toString(tuner.getBest()), (System.nanoTime() - start) / 1_000_000);
+		}
+		tuner.shutdown();
+	}
+
+	/**
+	 * Returns the average scores of the given candidates over the games with the given range of indices.
+	 * The games are played in parallel, one task per game.
+	 * @param candidates the weights of the candidates
+	 * @param fromGame the index of the first game, inclusive
+	 * @param toGame the index of the last game, exclusive
+	 * @return the average scores of the candidates, in the same order
+	 */
+	private double[] fitness(List<double[]> candidates, int fromGame, int toGame) {
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (double[] c : candidates) {
+			for (int g = fromGame; g < toGame; g++) {
+				long gameSeed = seed + g;
+				tasks.add(() -> Player.playGame(c, gameSeed, maxPieces));
+			}
+		}
+		try {
+			List<Future<Integer>> results = getPool().invokeAll(tasks);
+			double[] out = new double[candidates.size()];
+			int games = toGame - fromGame;
+			for (int i = 0; i < results.size(); i++) {
+				out[i / games] += results.get(i).get();
+			}
+			for (int i = 0; i < out.length; i++) {
+				out[i] /= games;
+			}
+			return out;
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Evaluation of the candidates failed", e);
+		}
+	}
+
+	/**
+	 * Returns the pool of threads the games are played on, starting it with a thread for every core if needed.
+	 * @return the pool of threads
+	 */
+	private ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+				Thread t = new Thread(r, "weight-tuner");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return pool;
+	}
+}
@@ -0,0 +1,63 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the LatencyHistogram class.
+ */
+public class LatencyHistogramTest {
+    /**
+     * Tests that small values are read back exactly.
+     */
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 1; v <= 50; v++) {
+            h.record(v);
+        }
+        assertEquals(50, h.getCount());
+        assertEquals(25, h.getValueAtPercentile(50));
+        assertEquals(50, h.getValueAtPercentile(100));
+        assertEquals(1, h.getValueAtPercentile(0));
+        assertEquals(50, h.getMax());
+    }
+
+    /**
+     * Tests that large values are read back within the relative precision of the buckets.
+     */
+    @Test
+    public void testLargeValuesArePrecise() {
+        long[] values = {100, 1_000, 16_666_667, 123_456_789, 1L << 39};
+        for (long value : values) {
+            LatencyHistogram h = new LatencyHistogram();
+            h.record(value / 2);
+            h.record(value);
+            long read = h.getValueAtPercentile(50);
+            assertTrue(Math.abs(read - value / 2) <= value / 2 / 32, value + " read back as " + read);
+            assertEquals(value, h.getValueAtPercentile(100));
+        }
+    }
+
+    /**
+     * Tests the percentiles of a skewed distribution, and that resetting removes every value.
+     */
+    @Test
+    public void testPercentilesAndReset() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 990; i++) {
+            h.record(16_000_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            h.record(100_000_000);
+        }
+        assertTrue(Math.abs(h.getValueAtPercentile(50) - 16_000_000) < 16_000_000 / 32);
+        assertTrue(Math.abs(h.getValueAtPercentile(99) - 16_000_000) < 16_000_000 / 32);
+        assertEquals(100_000_000, h.getValueAtPercentile(99.9));
+
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+        assertEquals(0, h.getValueAtPercentile(99));
+    }
+}
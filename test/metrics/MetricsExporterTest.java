@@ -0,0 +1,56 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the Metrics and MetricsExporter classes.
+ */
+public class MetricsExporterTest {
+    /**
+     * Tests that the histograms are exported with cumulative buckets that end with the total count.
+     */
+    @Test
+    public void testHistogramFormat() {
+        long before = Metrics.LEADERBOARD_SAVE_TIME.getCount();
+        Metrics.LEADERBOARD_SAVE_TIME.record(3_000_000);
+        String text = Metrics.scrape();
+        assertTrue(text.contains("# TYPE tetris_leaderboard_save_seconds histogram\n"));
+        assertTrue(text.contains("tetris_leaderboard_save_seconds_bucket{le=\"+Inf\"} " + (before + 1) + "\n"));
+        assertTrue(text.contains("tetris_leaderboard_save_seconds_count " + (before + 1) + "\n"));
+        assertTrue(text.contains("# TYPE tetris_games_started_total counter\n"));
+    }
+
+    /**
+     * Tests that the metrics are served over HTTP, and written to a file when the exporter is closed.
+     */
+    @Test
+    public void testServeAndWrite() throws Exception {
+        Path dir = Files.createTempDirectory("metrics");
+        Path file = dir.resolve("tetris.prom");
+        try (MetricsExporter exporter = new MetricsExporter()) {
+            int port = exporter.serve(0);
+            exporter.writeTo(file, 3600);
+            Metrics.LINES_CLEARED.add(4);
+
+            HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + port + "/metrics").toURL().openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            try (InputStream in = connection.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("tetris_lines_cleared_total " + Metrics.LINES_CLEARED.sum()));
+            }
+        }
+        assertTrue(Files.readString(file).contains("tetris_lines_cleared_total"));
+        Files.delete(file);
+        Files.delete(dir);
+    }
+}
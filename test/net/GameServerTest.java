@@ -0,0 +1,162 @@
+package net;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import tetris.FrameDecoder;
+import tetris.Tetris;
+
+/**
+ * This class contains tests for the GameServer, Session and TickScheduler classes, played through a LoopbackClient.
+ */
+public class GameServerTest {
+    /**
+     * Tests that a player dropping every piece receives the events of a whole game, ending with topping out,
+     * after which the server closes the connection.
+     */
+    @Test
+    public void testGameOverLoopback() throws Exception {
+        try (GameServer server = new GameServer(0, 2);
+             LoopbackClient client = new LoopbackClient(server.getPort())) {
+            List<Tetris.Event> events = new ArrayList<>();
+            int locked = 0;
+            client.tap(Tetris.Action.DROP);
+            while (client.receive()) {
+                events.add(client.getEvent());
+                if (client.getEvent() == Tetris.Event.PIECE_LOCKED) locked++;
+                if (client.getEvent() == Tetris.Event.PIECE_SPAWNED) client.tap(Tetris.Action.DROP);
+            }
+            assertTrue(locked > 0);
+            assertEquals(Tetris.Event.PIECE_LOCKED, events.get(0));
+            assertEquals(Tetris.Event.TOP_OUT, events.get(events.size() - 1));
+        }
+    }
+
+    /**
+     * Tests that the scheduler ticks every connected player, and drops the sessions of players that disconnect.
+     */
+    @Test
+    public void testManySessions() throws Exception {
+        try (GameServer server = new GameServer(0, 3)) {
+            TickScheduler scheduler = server.getScheduler();
+            List<LoopbackClient> clients = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                clients.add(new LoopbackClient(server.getPort()));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (scheduler.getSessionCount() < 100 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(100, scheduler.getSessionCount());
+            for (LoopbackClient client : clients) {
+                client.tap(Tetris.Action.DROP);
+            }
+            for (LoopbackClient client : clients) {
+                assertTrue(client.receive());
+                assertEquals(Tetris.Event.PIECE_LOCKED, client.getEvent());
+            }
+
+            clients.forEach(LoopbackClient::close);
+            while (scheduler.getSessionCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, scheduler.getSessionCount());
+            assertTrue(scheduler.getTicks() > 0);
+        }
+    }
+
+    /**
+     * Tests that a session throwing while it is ticked is closed and dropped, while the other sessions keep being ticked.
+     */
+    @Test
+    public void testFailingSessionIsDropped() throws Exception {
+        AtomicInteger[] ticks = {new AtomicInteger(), new AtomicInteger()};
+        List<Session> sessions = new ArrayList<>();
+        try (TickScheduler scheduler = new TickScheduler(1, 2)) {
+            for (int i = 0; i < 3; i++) {
+                AtomicInteger counter = i < 2 ? ticks[i] : null;
+                Session session = new Session(SocketChannel.open(), i, i) {
+                    @Override
+                    protected boolean tick() {
+                        if (counter == null) throw new IllegalStateException("failing session");
+                        counter.incrementAndGet();
+                        return !isClosed();
+                    }
+                };
+                sessions.add(session);
+                scheduler.add(session);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!sessions.get(2).isClosed() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(sessions.get(2).isClosed());
+            int before = ticks[0].get();
+            while (ticks[0].get() < before + 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(ticks[0].get() >= before + 10);
+            assertTrue(ticks[1].get() >= before + 9);
+            assertEquals(2, scheduler.getSessionCount());
+        } finally {
+            sessions.forEach(Session::close);
+        }
+    }
+
+    /**
+     * Tests that the games of a versus room only start ticking once the room is full.
+     */
+    @Test
+    public void testVersusRoom() throws Exception {
+        try (GameServer server = new GameServer(0, 2, 2);
+             LoopbackClient first = new LoopbackClient(server.getPort())) {
+            TickScheduler scheduler = server.getScheduler();
+            Thread.sleep(100);
+            assertEquals(0, scheduler.getSessionCount());
+            try (LoopbackClient second = new LoopbackClient(server.getPort())) {
+                long deadline = System.currentTimeMillis() + 5000;
+                while (scheduler.getSessionCount() < 2 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(2, scheduler.getSessionCount());
+                for (LoopbackClient client : new LoopbackClient[] {first, second}) {
+                    client.tap(Tetris.Action.DROP);
+                    assertTrue(client.receive());
+                    assertEquals(Tetris.Event.PIECE_LOCKED, client.getEvent());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a spectator of a game is streamed its state until the game is over, ending with the final score.
+     */
+    @Test
+    public void testSpectator() throws Exception {
+        try (GameServer server = new GameServer(0, 2, 1, 0);
+             LoopbackClient player = new LoopbackClient(server.getPort())) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.getScheduler().getSessionCount() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            try (SpectatorClient spectator = new SpectatorClient(server.getSpectatorPort(), 0)) {
+                Thread.sleep(100);
+                int pieces = player.playDrops();
+                int frames = 0;
+                while (spectator.receive()) {
+                    frames++;
+                }
+                FrameDecoder view = spectator.getView();
+                assertTrue(frames >= pieces);
+                assertTrue(view.isSynced());
+                assertTrue(view.isGameOver());
+                assertEquals(player.getValue(), view.getScore());
+            }
+        }
+    }
+}
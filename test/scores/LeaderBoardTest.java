@@ -7,6 +7,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.*;
 
+import metrics.Metrics;
+
 /**
  * Unit tests for the LeaderBoard class. Since HighScore doesn't have a .equals() method, we use unique names to compare them.
  */
@@ -143,4 +145,20 @@ public class LeaderBoardTest {
         assertEquals(h1.getScore(), lb2.get(1).getScore());
         assertEquals("<empty>", lb2.get(2).getName());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that only the leaderboard reporting its size sets the number of entries in the metrics,
+     * so other leaderboards being constructed or changed do not overwrite it.
+     */
+    @Test
+    public void testReportSize() {
+        LeaderBoard shown = new LeaderBoard(new HighScore("A", 100), new HighScore("B", 200));
+        shown.reportSize();
+        assertEquals(2, Metrics.LEADERBOARD_SIZE.get());
+        LeaderBoard other = new LeaderBoard();
+        other.add(new HighScore("C", 300));
+        assertEquals(2, Metrics.LEADERBOARD_SIZE.get());
+        shown.add(new HighScore("D", 400));
+        assertEquals(3, Metrics.LEADERBOARD_SIZE.get());
+    }
+}
@@ -0,0 +1,77 @@
+package scores;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tetris.Replay;
+import tetris.Tetris;
+
+/**
+ * Unit tests for the ReplayVerifier class.
+ */
+public class ReplayVerifierTest {
+    /**
+     * Plays a game with the given seed by dropping every piece until the game is over.
+     * @param seed the seed of the game
+     * @return the finished game
+     */
+    private Tetris playGame(long seed) {
+        Tetris t = new Tetris(seed);
+        while (!t.isGameOver()) {
+            t.moveRight();
+            t.drop();
+            t.moveDown();
+        }
+        return t;
+    }
+
+    /**
+     * Test that a score is only verified if it matches the result of the replay, and the game is over.
+     */
+    @Test
+    public void testVerify() {
+        Tetris t = playGame(1);
+        assertTrue(ReplayVerifier.verify(new HighScore("A", t.getScore()), t.getReplay()));
+        assertFalse(ReplayVerifier.verify(new HighScore("A", t.getScore() + 40), t.getReplay()));
+        assertFalse(ReplayVerifier.verify(new HighScore("A", 40), null));
+        Tetris unfinished = new Tetris(1);
+        assertFalse(ReplayVerifier.verify(new HighScore("A", 0), unfinished.getReplay()));
+    }
+
+    /**
+     * Test that only the verified scores are passed on, and all of them are verified before shutdown returns.
+     */
+    @Test
+    public void testSubmit() throws InterruptedException {
+        ReplayVerifier verifier = new ReplayVerifier(2, 2);
+        AtomicInteger verified = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            Tetris t = playGame(i);
+            int claimed = i % 2 == 0 ? t.getScore() : t.getScore() + 1;
+            assertTrue(verifier.submit(new HighScore("A", claimed), t.getReplay(), hs -> verified.incrementAndGet()));
+        }
+        assertTrue(verifier.shutdown(10000));
+        assertEquals(10, verified.get());
+        assertFalse(verifier.offer(new HighScore("A", 1), null, hs -> { }));
+    }
+
+    /**
+     * Test that offer rejects submissions without blocking once every worker and queue place is taken.
+     */
+    @Test
+    public void testOfferRejectsWhenFull() throws InterruptedException {
+        ReplayVerifier verifier = new ReplayVerifier(1, 1);
+        Object lock = new Object();
+        Tetris t = playGame(3);
+        HighScore hs = new HighScore("A", t.getScore());
+        synchronized (lock) {
+            // the first submission blocks the only worker, the second one waits in the queue
+            assertTrue(verifier.offer(hs, t.getReplay(), h -> { synchronized (lock) { } }));
+            assertTrue(verifier.offer(hs, t.getReplay(), h -> { }));
+            assertFalse(verifier.offer(hs, t.getReplay(), h -> { }));
+        }
+        assertTrue(verifier.shutdown(10000));
+    }
+}
@@ -0,0 +1,101 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class contains tests for the BatchEnvironment class.
+ */
+public class BatchEnvironmentTest {
+    /**
+     * Tests the layout of the observations after a reset: an empty board with the falling piece in the hidden rows,
+     * followed by the shapes of the pieces and a score of 0.
+     */
+    @Test
+    public void testInitialObservation() {
+        try (BatchEnvironment env = new BatchEnvironment(2, 2, 1)) {
+            assertEquals(10*24 + 4, env.getObservationSize());
+            int[] obs = env.getObservations();
+            assertEquals(2 * env.getObservationSize(), obs.length);
+            for (int i = 0; i < 10*24; i++) {
+                assertEquals(BatchEnvironment.CELL_EMPTY, obs[i]);
+            }
+            // first game has seed 2, so the first pieces are L and J
+            assertEquals(Tetromino.Shape.L.ordinal(), obs[10*24]);
+            assertEquals(Tetromino.Shape.J.ordinal(), obs[10*24 + 1]);
+            assertEquals(0, obs[10*24 + 2]);
+        }
+    }
+
+    /**
+     * Tests that the batch gives the same results as single games with the same seeds,
+     * and that ending games are reported as done and restarted.
+     */
+    @Test
+    public void testStepMatchesSingleGames() {
+        int count = 3;
+        try (BatchEnvironment env = new BatchEnvironment(count, 5, 2)) {
+            Tetris[] games = new Tetris[count];
+            for (int i = 0; i < count; i++) {
+                games[i] = new Tetris(new Random(5 + i));
+            }
+            int[] actions = new int[count];
+            Arrays.fill(actions, Tetris.Action.DROP.ordinal());
+            boolean anyDone = false;
+            for (int step = 0; step < 15; step++) {
+                env.step(actions);
+                for (int i = 0; i < count; i++) {
+                    int before = games[i].getScore();
+                    boolean running = games[i].apply(Tetris.Action.DROP);
+                    assertEquals(games[i].getScore() - before, env.getRewards()[i]);
+                    assertEquals(!running, env.getDones()[i]);
+                    anyDone |= !running;
+                    if (!running) games[i] = new Tetris(new Random(5 + i + count));
+                }
+            }
+            assertTrue(anyDone);
+        }
+    }
+
+    /**
+     * Tests that the results do not depend on the number of threads the batch is split into.
+     */
+    @Test
+    public void testShardingIsDeterministic() {
+        int count = 8;
+        try (BatchEnvironment single = new BatchEnvironment(count, 11, 1);
+             BatchEnvironment sharded = new BatchEnvironment(count, 11, 4)) {
+            Random r = new Random(3);
+            int[] actions = new int[count];
+            for (int step = 0; step < 500; step++) {
+                for (int i = 0; i < count; i++) {
+                    actions[i] = r.nextInt(BatchEnvironment.getActionCount());
+                }
+                single.step(actions);
+                sharded.step(actions);
+                assertArrayEquals(single.getObservations(), sharded.getObservations());
+                assertArrayEquals(single.getRewards(), sharded.getRewards());
+                assertArrayEquals(single.getDones(), sharded.getDones());
+            }
+        }
+    }
+
+    /**
+     * Tests that an exception thrown on a worker thread is passed on to the caller of step() instead of leaving it waiting,
+     * and that the environment can not be stepped again after it.
+     */
+    @Test
+    public void testWorkerFailureIsRethrown() {
+        try (BatchEnvironment env = new BatchEnvironment(4, 5, 2)) {
+            int[] actions = new int[4];
+            actions[3] = BatchEnvironment.getActionCount();
+            IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(IllegalStateException.class, () -> env.step(actions)));
+            assertTrue(e.getCause() instanceof ArrayIndexOutOfBoundsException);
+            actions[3] = 0;
+            assertThrows(IllegalStateException.class, () -> env.step(actions));
+        }
+    }
+}
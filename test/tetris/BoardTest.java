@@ -27,8 +27,7 @@ public class BoardTest {
     @BeforeEach
     public void setUp() {
         board = new Board();
-        singleMino = new Tetromino(Tetromino.Shape.O);
-        singleMino.setMinos(Set.of(new Point(0, 0)));
+        singleMino = new Tetromino(Tetromino.Shape.O, Set.of(new Point(0, 0)));
     }
 
     /**
@@ -105,4 +104,130 @@ public class BoardTest {
         board.placePiece(new Tetromino(Tetromino.Shape.O), 1, board.getHeight());
         assertTrue(board.isDead());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that the column heights follow placements, including overhangs, and line clears.
+     */
+    @Test
+    public void testColumnHeights() {
+        for (int x = 0; x < board.getWidth(); x++) {
+            assertEquals(0, board.getColumnHeight(x));
+        }
+        board.placePiece(singleMino, 0, 3);
+        assertEquals(4, board.getColumnHeight(0));
+        board.placePiece(singleMino, 0, 1);
+        assertEquals(4, board.getColumnHeight(0));
+        for (int x = 1; x < board.getWidth(); x++) {
+            board.placePiece(singleMino, x, 0);
+            assertEquals(1, board.getColumnHeight(x));
+        }
+        board.placePiece(singleMino, 0, 0);
+        assertEquals(1, board.clearFilledLines());
+        assertEquals(3, board.getColumnHeight(0));
+        for (int x = 1; x < board.getWidth(); x++) {
+            assertEquals(0, board.getColumnHeight(x));
+        }
+    }
+
+    /**
+     * Test that garbage lines are added at the bottom with a hole, pushing the stack up,
+     * that filling the holes clears them, and that garbage can not push a filled top line out of the board.
+     */
+    @Test
+    public void testGarbage() {
+        board.placePiece(singleMino, 0, 0);
+        assertTrue(board.addGarbage(2, 3));
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                assertEquals(x != 3, board.isFilled(x, y));
+            }
+        }
+        assertTrue(board.isFilled(0, 2));
+        assertEquals(3, board.getColumnHeight(0));
+        assertEquals(2, board.getColumnHeight(1));
+        assertEquals(0, board.getColumnHeight(3));
+
+        board.placePiece(singleMino, 3, 0);
+        board.placePiece(singleMino, 3, 1);
+        assertEquals(2, board.clearFilledLines());
+        assertTrue(board.isFilled(0, 0));
+        assertFalse(board.isFilled(1, 0));
+        assertEquals(1, board.getColumnHeight(0));
+
+        assertTrue(board.addGarbage(board.getHeight() + 3, 5));
+        assertTrue(board.isDead());
+        assertFalse(board.addGarbage(1, 5));
+    }
+
+    /**
+     * Test a board of the largest width, where the highest column uses the sign bit of the line mask,
+     * and test that sizes out of range are refused.
+     */
+    @Test
+    public void testWideBoard() {
+        Board wide = new Board(Board.MAX_WIDTH, 8);
+        assertEquals(64, wide.getWidth());
+        assertEquals(8, wide.getHeight());
+        wide.placePiece(singleMino, 63, 1);
+        assertTrue(wide.isFilled(63, 1));
+        assertTrue(wide.collides(singleMino, 63, 1));
+        assertTrue(wide.collides(singleMino, 64, 0));
+        for (int x = 0; x < 64; x++) {
+            wide.placePiece(singleMino, x, 0);
+        }
+        assertEquals(-1L, wide.getLine(0));
+        assertEquals(1, wide.clearFilledLines());
+        assertEquals(1, wide.getColumnHeight(63));
+        assertEquals(0, wide.getColumnHeight(0));
+        assertTrue(wide.isFilled(63, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> new Board(Board.MAX_WIDTH + 1, 20));
+        assertThrows(IllegalArgumentException.class, () -> new Board(10, Board.MAX_HEIGHT + 1));
+        assertThrows(IllegalArgumentException.class, () -> new Board(3, 20));
+    }
+
+    /**
+     * Tests that testing a piece against the row masks of the board gives the same result as testing each of its minos,
+     * for every shape and orientation, on every position of a randomly filled board.
+     */
+    @Test
+    public void testCollisionMatchesMinos() {
+        java.util.Random r = new java.util.Random(3);
+        for (int y = 0; y < board.getHeight() / 2; y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                if (r.nextInt(3) == 0) board.placePiece(singleMino, x, y);
+            }
+        }
+        for (Tetromino.Shape shape : Tetromino.Shape.values()) {
+            Tetromino piece = new Tetromino(shape);
+            for (int rotation = 0; rotation < 4; rotation++) {
+                for (int y = -2; y < board.getHeight(); y++) {
+                    for (int x = -3; x < board.getWidth() + 3; x++) {
+                        boolean expected = false;
+                        for (Point mino : piece.getMinos()) {
+                            int cx = x + mino.x, cy = y + mino.y;
+                            if (cx < 0 || cx >= board.getWidth() || cy < 0 || board.isFilled(cx, cy)) expected = true;
+                        }
+                        assertEquals(expected, board.collides(piece, x, y), shape + " " + rotation + " at " + x + "," + y);
+                    }
+                }
+                piece = piece.rotatedRight();
+            }
+        }
+    }
+
+    /**
+     * Test collision on the top edge of the hidden rows, a piece reaching above the full height of the board should always collide.
+     */
+    @Test
+    public void testCollisionOnCeiling() {
+        Board small = new Board(10, 12);
+        Tetromino vertical = new Tetromino(Tetromino.Shape.I).rotatedRight();
+        int top = 12 + 4, bottomRow = 0;
+        for (Point mino : vertical.getMinos()) bottomRow = Math.min(bottomRow, mino.y);
+        assertFalse(small.collides(vertical, 2, top - 4 - bottomRow));
+        assertTrue(small.collides(vertical, 2, top - 3 - bottomRow));
+        assertTrue(small.collides(singleMino, 0, top));
+        assertFalse(small.collides(singleMino, 0, top - 1));
+    }
+}
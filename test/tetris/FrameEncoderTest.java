@@ -0,0 +1,82 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the FrameEncoder and FrameDecoder classes.
+ */
+public class FrameEncoderTest {
+    /**
+     * Tests that decoding the frames of a whole game, with a keyframe every 10 pieces, gives the state of the game after every piece,
+     * and that delta frames are smaller than keyframes.
+     */
+    @Test
+    public void testRoundTrip() {
+        Tetris tetris = new Tetris(new Random(2));
+        FrameEncoder encoder = new FrameEncoder();
+        FrameDecoder decoder = new FrameDecoder();
+        ByteBuffer buffer = ByteBuffer.allocate(FrameEncoder.maxFrameSize(tetris.getBoardWidth(), tetris.getBoardHeight()));
+        Player player = new Player(new double[] {-0.51, 0.76, -0.36, -0.18});
+        int keyframeSize = 0, deltaSize = 0;
+        for (int placed = 0; placed < 200 && !tetris.isGameOver(); placed++) {
+            boolean keyframe = placed % 10 == 0;
+            buffer.clear();
+            assertTrue(encoder.encode(tetris, buffer, keyframe));
+            if (keyframe) keyframeSize = Math.max(keyframeSize, buffer.position());
+            else deltaSize = Math.max(deltaSize, buffer.position());
+            buffer.flip();
+            assertTrue(decoder.decode(buffer));
+            assertFalse(buffer.hasRemaining());
+            assertState(tetris, decoder);
+            player.placePiece(tetris);
+        }
+        assertTrue(deltaSize < keyframeSize);
+    }
+
+    /**
+     * Tests that no frame is written when nothing changed, and that delta frames are ignored until the first keyframe.
+     */
+    @Test
+    public void testNoChangeAndSync() {
+        Tetris tetris = new Tetris(new Random(2));
+        FrameEncoder encoder = new FrameEncoder();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        assertTrue(encoder.encode(tetris, buffer, false));
+        int keyframeEnd = buffer.position();
+        assertFalse(encoder.encode(tetris, buffer, false));
+        assertEquals(keyframeEnd, buffer.position());
+        tetris.moveLeft();
+        assertTrue(encoder.encode(tetris, buffer, false));
+
+        buffer.flip().position(keyframeEnd);
+        FrameDecoder late = new FrameDecoder();
+        assertFalse(late.decode(buffer));
+        assertFalse(late.isSynced());
+
+        buffer.position(0);
+        FrameDecoder decoder = new FrameDecoder();
+        assertTrue(decoder.decode(buffer));
+        assertTrue(decoder.decode(buffer));
+        assertState(tetris, decoder);
+    }
+
+    /**
+     * Asserts that the state rebuilt by the decoder is the state of the game.
+     * @param tetris the game
+     * @param decoder the decoder
+     */
+    private static void assertState(Tetris tetris, FrameDecoder decoder) {
+        assertEquals(tetris.getScore(), decoder.getScore());
+        assertEquals(tetris.getGameSpeed(), decoder.getLevel());
+        assertEquals(tetris.getPieceX(), decoder.getPieceX());
+        assertEquals(tetris.getPieceY(), decoder.getPieceY());
+        assertEquals(tetris.getPiece().getMinos(), decoder.getPiece().getMinos());
+        for (int y = 0; y < tetris.getBoardHeight(); y++) {
+            assertEquals(tetris.getBoard().getLine(y), decoder.getLine(y));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the GameEventBus class and the events published by the Tetris class.
+ */
+public class GameEventBusTest {
+    /**
+     * Tests that the events of a whole game add up to its final state, and that topping out is the last event.
+     */
+    @Test
+    public void testEventsMatchGame() {
+        Tetris tetris = new Tetris(new Random(2));
+        GameEventBus bus = new GameEventBus(16);
+        tetris.setEventBus(bus);
+        int[] counts = new int[Tetris.Event.values().length];
+        int[] lines = new int[1], score = new int[1], level = {1};
+        List<Tetris.Event> order = new ArrayList<>();
+        bus.subscribe((event, value) -> {
+            counts[event.ordinal()]++;
+            order.add(event);
+            switch (event) {
+            case LINES_CLEARED -> lines[0] += value;
+            case SCORE_CHANGED -> score[0] = value;
+            case LEVEL_UP -> level[0] = value;
+            default -> { }
+            }
+        });
+
+        Player player = new Player(new double[] {-0.51, 0.76, -0.36, -0.18});
+        int placed = 0;
+        while (!tetris.isGameOver() && placed < 300) {
+            player.placePiece(tetris);
+            placed++;
+            bus.dispatch();
+        }
+        assertEquals(tetris.getTotalLines(), lines[0]);
+        assertEquals(tetris.getScore(), score[0]);
+        assertEquals(tetris.getGameSpeed(), level[0]);
+        assertEquals(placed, counts[Tetris.Event.PIECE_LOCKED.ordinal()]);
+        if (tetris.isGameOver()) {
+            assertEquals(1, counts[Tetris.Event.TOP_OUT.ordinal()]);
+            assertEquals(Tetris.Event.TOP_OUT, order.get(order.size() - 1));
+        }
+    }
+
+    /**
+     * Tests that events are only delivered on dispatch, and that the oldest events are overwritten when the buffer is full.
+     */
+    @Test
+    public void testDispatchAndOverflow() {
+        GameEventBus bus = new GameEventBus(4);
+        List<Integer> values = new ArrayList<>();
+        bus.subscribe((event, value) -> values.add(value));
+        for (int i = 0; i < 6; i++) {
+            bus.publish(Tetris.Event.SCORE_CHANGED, i);
+        }
+        assertTrue(values.isEmpty());
+        assertEquals(4, bus.dispatch());
+        assertEquals(List.of(2, 3, 4, 5), values);
+        assertEquals(0, bus.dispatch());
+    }
+}
@@ -0,0 +1,144 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the InputQueue and InputController classes.
+ */
+public class InputControllerTest {
+    /**
+     * Tests that a tap moves the piece once, no matter how many ticks pass after it.
+     */
+    @Test
+    public void testTapMovesOnce() {
+        Tetris tetris = new Tetris(new Random(2));
+        InputQueue queue = new InputQueue(16);
+        InputController controller = new InputController(queue, 10, 2);
+        int x = tetris.getPieceX();
+
+        queue.offer(Tetris.Action.LEFT, true, 0);
+        queue.offer(Tetris.Action.LEFT, false, 5);
+        int applied = controller.tick(tetris);
+        assertEquals(1 << Tetris.Action.LEFT.ordinal(), applied);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, controller.tick(tetris));
+        }
+        assertEquals(x - 1, tetris.getPieceX());
+    }
+
+    /**
+     * Tests that holding the soft drop button moves the piece down once every tick, without waiting for DAS.
+     */
+    @Test
+    public void testSoftDropRepeatsEveryTick() {
+        Tetris tetris = new Tetris(new Random(2));
+        InputQueue queue = new InputQueue(16);
+        InputController controller = new InputController(queue, 10, 2);
+        int y = tetris.getPieceY();
+
+        queue.offer(Tetris.Action.SOFT_DROP, true, 0);
+        assertEquals(1 << Tetris.Action.SOFT_DROP.ordinal(), controller.tick(tetris));
+        for (int i = 0; i < 4; i++) {
+            controller.tick(tetris);
+        }
+        assertEquals(y - 5, tetris.getPieceY());
+        assertEquals(5, tetris.getScore());
+
+        queue.offer(Tetris.Action.SOFT_DROP, false, 100);
+        controller.tick(tetris);
+        controller.tick(tetris);
+        assertEquals(y - 5, tetris.getPieceY());
+    }
+
+    /**
+     * Tests that holding a button repeats the move every ARR ticks once DAS ticks have passed.
+     */
+    @Test
+    public void testAutoRepeat() {
+        Tetris tetris = new Tetris(new Random(2));
+        InputQueue queue = new InputQueue(16);
+        InputController controller = new InputController(queue, 3, 2);
+        int x = tetris.getPieceX();
+
+        queue.offer(Tetris.Action.RIGHT, true, 0);
+        controller.tick(tetris);
+        assertEquals(x + 1, tetris.getPieceX());
+        controller.tick(tetris);
+        controller.tick(tetris);
+        assertEquals(x + 1, tetris.getPieceX());
+        controller.tick(tetris);
+        assertEquals(x + 2, tetris.getPieceX());
+        controller.tick(tetris);
+        assertEquals(x + 2, tetris.getPieceX());
+        controller.tick(tetris);
+        assertEquals(x + 3, tetris.getPieceX());
+
+        queue.offer(Tetris.Action.RIGHT, false, 100);
+        for (int i = 0; i < 10; i++) {
+            controller.tick(tetris);
+        }
+        assertEquals(x + 3, tetris.getPieceX());
+    }
+
+    /**
+     * Tests that an ARR of 0 moves the piece all the way to the wall in the tick the DAS is reached.
+     */
+    @Test
+    public void testInstantRepeatReachesWall() {
+        Tetris tetris = new Tetris(new Random(2));
+        InputQueue queue = new InputQueue(16);
+        InputController controller = new InputController(queue, 1, 0);
+
+        queue.offer(Tetris.Action.LEFT, true, 0);
+        controller.tick(tetris);
+        controller.tick(tetris);
+        int x = tetris.getPieceX();
+        tetris.moveLeft();
+        assertEquals(x, tetris.getPieceX());
+    }
+
+    /**
+     * Tests that a button released and pressed again within the same tick is still held, and is not tapped again.
+     */
+    @Test
+    public void testRepeatedPressIsNotTap() {
+        Tetris tetris = new Tetris(new Random(2));
+        InputQueue queue = new InputQueue(16);
+        InputController controller = new InputController(queue, 10, 2);
+        int x = tetris.getPieceX();
+
+        queue.offer(Tetris.Action.LEFT, true, 0);
+        controller.tick(tetris);
+        queue.offer(Tetris.Action.LEFT, false, 30);
+        queue.offer(Tetris.Action.LEFT, true, 31);
+        assertEquals(0, controller.tick(tetris));
+        assertEquals(x - 1, tetris.getPieceX());
+    }
+
+    /**
+     * Tests that the queue keeps the order of the events, and rejects events when it is full.
+     */
+    @Test
+    public void testQueueOrderAndCapacity() {
+        InputQueue queue = new InputQueue(4);
+        assertTrue(queue.offer(Tetris.Action.DROP, true, 1));
+        assertTrue(queue.offer(Tetris.Action.LEFT, false, 2));
+        assertTrue(queue.offer(Tetris.Action.RIGHT, true, 3));
+        assertTrue(queue.offer(Tetris.Action.DOWN, true, 4));
+        assertFalse(queue.offer(Tetris.Action.DOWN, false, 5));
+
+        assertTrue(queue.poll());
+        assertEquals(Tetris.Action.DROP.ordinal(), queue.getPolledButton());
+        assertTrue(queue.isPolledPressed());
+        assertEquals(1, queue.getPolledTime());
+        assertTrue(queue.poll());
+        assertEquals(Tetris.Action.LEFT.ordinal(), queue.getPolledButton());
+        assertFalse(queue.isPolledPressed());
+        assertTrue(queue.poll());
+        assertTrue(queue.poll());
+        assertFalse(queue.poll());
+    }
+}
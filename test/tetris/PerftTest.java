@@ -0,0 +1,79 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.awt.Point;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class contains tests for the Perft class.
+ * The known counts are the correctness oracle for changes to the rules of the game,
+ * if any of them changes, the placement of pieces works differently than before.
+ */
+public class PerftTest {
+    /**
+     * Tests the known counts for the seed used by TetrisTest, where the piece order starts with L, J, S.
+     * An L or J piece has 4 orientations that fit in 8, 9, 8 and 9 columns, so 34 placements each,
+     * while an S piece has 2 distinct orientations that fit in 8 and 9 columns, so 17 placements.
+     */
+    @Test
+    public void testKnownCounts() {
+        assertEquals(34, new Perft(2, 1).count());
+        assertEquals(34*34, new Perft(2, 2).count());
+        assertEquals(34*34*17, new Perft(2, 3).count());
+    }
+
+    /**
+     * Tests that the parallel count gives the same results as the single-threaded count.
+     */
+    @Test
+    public void testParallelMatchesSingleThreaded() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int depth = 1; depth <= 3; depth++) {
+            Perft perft = new Perft(9, depth);
+            assertEquals(perft.count(), perft.countParallel(pool));
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Tests the counts on a board of height 8 that is filled up to row 6, except for a well in the rightmost column.
+     * An I piece has 7 horizontal placements on the empty top row, its vertical placements outside the well would reach
+     * into the hidden lines and end the game, and the vertical placement in the well clears the 4 bottom lines, so 8 placements.
+     * An O piece placed after the horizontal I pieces would always reach into the hidden lines, while after the vertical I piece
+     * the stack is 4 lines lower, so all 9 of its placements fit. If lines were not cleared, there would be no placements of the O piece at all.
+     */
+    @Test
+    public void testLineClearCounts() {
+        Board board = new Board(10, 8);
+        Tetromino cell = new Tetromino(Tetromino.Shape.O, Set.of(new Point(0, 0)));
+        for (int y = 0; y < 7; y++) {
+            for (int x = 0; x < 9; x++) {
+                board.placePiece(cell, x, y);
+            }
+        }
+        assertEquals(8, new Perft(board, Tetromino.Shape.I).count());
+        assertEquals(9, new Perft(board, Tetromino.Shape.I, Tetromino.Shape.O).count());
+        assertEquals(7, board.getColumnHeight(0));
+        assertEquals(0, board.getColumnHeight(9));
+    }
+
+    /**
+     * Tests the counts on a board 64 cells wide and 200 tall, filled up to row 190, so the pieces land on a flat surface
+     * where the indices of the cells are above 12000. A T piece has 62 placements in each of its 2 flat orientations
+     * and 63 in each of its 2 upright ones, so 250 placements, and an I piece has 61 flat and 64 upright placements, so 125.
+     */
+    @Test
+    public void testLargeBoardCounts() {
+        Board board = new Board(64, 200);
+        Tetromino cell = new Tetromino(Tetromino.Shape.O, Set.of(new Point(0, 0)));
+        for (int y = 0; y < 191; y++) {
+            for (int x = 0; x < 64; x++) {
+                board.placePiece(cell, x, y);
+            }
+        }
+        assertEquals(250, new Perft(board, Tetromino.Shape.T).count());
+        assertEquals(125, new Perft(board, Tetromino.Shape.I).count());
+    }
+}
@@ -0,0 +1,80 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the Predictor class, against a game standing in for the server.
+ */
+public class PredictorTest {
+    /**
+     * Tests that the local game matches the game of the server once every input is confirmed,
+     * with the server applying the inputs late and adding steps of gravity that the client did not predict.
+     */
+    @Test
+    public void testConvergesToServer() {
+        Tetris server = new Tetris(5);
+        Predictor client = new Predictor(5);
+        Tetris.Action[] inputs = {Tetris.Action.LEFT, Tetris.Action.ROTATE_RIGHT, Tetris.Action.RIGHT, Tetris.Action.DROP};
+        Random r = new Random(3);
+        List<Integer> inFlight = new ArrayList<>();
+        List<Tetris.Action> inFlightActions = new ArrayList<>();
+        Tetris.Action[] applied = new Tetris.Action[64];
+        int acknowledged = -1;
+
+        for (int tick = 0; tick < 2000 && !server.isGameOver(); tick++) {
+            Tetris.Action input = inputs[r.nextInt(inputs.length)];
+            inFlight.add(client.apply(input));
+            inFlightActions.add(input);
+
+            int length = 0;
+            while (inFlight.size() > 6) {
+                Tetris.Action action = inFlightActions.remove(0);
+                acknowledged = inFlight.remove(0);
+                server.apply(action);
+                applied[length++] = action;
+            }
+            if (tick % 5 == 0) {
+                server.moveDown();
+                applied[length++] = Tetris.Action.DOWN;
+            }
+            client.confirm(applied, length, acknowledged);
+            assertEquals(inFlight.size(), client.getPendingCount());
+        }
+        client.confirm(applied, 0, Integer.MAX_VALUE);
+        while (!inFlight.isEmpty()) {
+            server.apply(inFlightActions.remove(0));
+            inFlight.remove(0);
+        }
+        Tetris local = client.getGame();
+        assertEquals(0, client.getPendingCount());
+        assertEquals(server.getScore(), local.getScore());
+        assertEquals(server.getPieceX(), local.getPieceX());
+        assertEquals(server.getPieceY(), local.getPieceY());
+        for (int y = 0; y < server.getBoardHeight(); y++) {
+            assertEquals(server.getBoard().getLine(y), local.getBoard().getLine(y));
+        }
+    }
+
+    /**
+     * Tests that a misprediction is corrected: a step of gravity the client did not predict moves its piece down,
+     * with the unconfirmed inputs applied again on top.
+     */
+    @Test
+    public void testCorrectsMisprediction() {
+        Predictor client = new Predictor(2);
+        Tetris local = client.getGame();
+        int startY = local.getPieceY(), startX = local.getPieceX();
+        client.apply(Tetris.Action.LEFT);
+        client.apply(Tetris.Action.LEFT);
+        client.confirm(new Tetris.Action[] {Tetris.Action.DOWN}, 1, -1);
+        assertEquals(startY - 1, local.getPieceY());
+        assertEquals(startX - 2, local.getPieceX());
+        assertEquals(2, client.getPendingCount());
+        assertEquals(3, client.getLastResimulated());
+    }
+}
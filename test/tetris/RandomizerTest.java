@@ -0,0 +1,91 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the Randomizer implementations.
+ */
+public class RandomizerTest {
+    /**
+     * Tests that a bag randomizer deals every shape the same number of times in every bag,
+     * and that the bag of 7 deals the same pieces for a seed as the shuffled list the game used before.
+     */
+    @Test
+    public void testBagsAreFair() {
+        Tetromino.Shape[] expected = {
+            Tetromino.Shape.L, Tetromino.Shape.J, Tetromino.Shape.S, Tetromino.Shape.Z, Tetromino.Shape.O, Tetromino.Shape.I, Tetromino.Shape.T,
+            Tetromino.Shape.J, Tetromino.Shape.O, Tetromino.Shape.Z, Tetromino.Shape.T, Tetromino.Shape.L, Tetromino.Shape.S, Tetromino.Shape.I
+        };
+        Randomizer seven = Randomizer.Type.BAG_7.create(new Random(2));
+        for (Tetromino.Shape shape : expected) {
+            assertEquals(shape, seven.next());
+        }
+
+        for (int copies = 1; copies <= 2; copies++) {
+            Randomizer bag = new BagRandomizer(new Random(copies), copies);
+            for (int round = 0; round < 50; round++) {
+                int[] counts = new int[Tetromino.Shape.values().length];
+                for (int i = 0; i < 7 * copies; i++) {
+                    counts[bag.next().ordinal()]++;
+                }
+                for (int count : counts) {
+                    assertEquals(copies, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the history randomizer never starts with an S, Z or O, and rarely repeats any of the last 4 shapes.
+     */
+    @Test
+    public void testHistoryAvoidsRecentShapes() {
+        int repeats = 0;
+        for (int seed = 0; seed < 100; seed++) {
+            Randomizer history = Randomizer.Type.HISTORY.create(new Random(seed));
+            Tetromino.Shape first = history.next();
+            assertNotEquals(Tetromino.Shape.S, first);
+            assertNotEquals(Tetromino.Shape.Z, first);
+            assertNotEquals(Tetromino.Shape.O, first);
+            Tetromino.Shape[] last = {first, null, null, null};
+            for (int i = 1; i < 100; i++) {
+                Tetromino.Shape shape = history.next();
+                for (Tetromino.Shape s : last) {
+                    if (s == shape) repeats++;
+                }
+                last[i % 4] = shape;
+            }
+        }
+        assertTrue(repeats < 9900 / 20, "too many repeats: " + repeats);
+    }
+
+    /**
+     * Tests that a copy of every kind of randomizer deals the same pieces as the original,
+     * that set() rewinds a randomizer to a copy, and that randomizers without a GameRandom can not be copied.
+     */
+    @Test
+    public void testCopyAndSet() {
+        for (Randomizer.Type type : Randomizer.Type.values()) {
+            Randomizer original = type.create(new GameRandom(5));
+            for (int i = 0; i < 10; i++) original.next();
+            Randomizer copy = original.copy();
+            Tetromino.Shape[] dealt = new Tetromino.Shape[30];
+            for (int i = 0; i < dealt.length; i++) {
+                dealt[i] = original.next();
+                assertEquals(dealt[i], copy.next(), type.name());
+            }
+            Randomizer rewound = type.create(new GameRandom(5));
+            for (int i = 0; i < 10; i++) rewound.next();
+            Randomizer snapshot = rewound.copy();
+            for (int i = 0; i < 20; i++) rewound.next();
+            rewound.set(snapshot);
+            for (Tetromino.Shape shape : dealt) {
+                assertEquals(shape, rewound.next(), type.name());
+            }
+            assertThrows(IllegalStateException.class, () -> type.create(new Random(5)).copy());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the Replay class and the recording of replays by the Tetris class.
+ */
+public class ReplayTest {
+    /**
+     * Tests that every applied action is recorded, and that simulating the replay results in the same game.
+     */
+    @Test
+    public void testSimulationMatchesGame() {
+        Tetris tetris = new Tetris(42);
+        while (!tetris.isGameOver()) {
+            tetris.moveLeft();
+            tetris.rotateRight();
+            tetris.moveDown();
+            tetris.drop();
+        }
+        Tetris simulated = tetris.getReplay().simulate();
+        assertTrue(simulated.isGameOver());
+        assertEquals(tetris.getScore(), simulated.getScore());
+        assertEquals(tetris.getTotalLines(), simulated.getTotalLines());
+    }
+
+    /**
+     * Tests that the replay of a game with another randomizer is simulated with the same randomizer.
+     */
+    @Test
+    public void testSimulationKeepsRandomizer() {
+        for (Randomizer.Type type : Randomizer.Type.values()) {
+            Tetris tetris = new Tetris(42, Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT, type);
+            while (!tetris.isGameOver()) {
+                tetris.moveRight();
+                tetris.drop();
+            }
+            assertEquals(type, tetris.getReplay().getType());
+            Tetris simulated = tetris.getReplay().simulate();
+            assertTrue(simulated.isGameOver(), type.name());
+            assertEquals(tetris.getScore(), simulated.getScore(), type.name());
+        }
+    }
+
+    /**
+     * Tests that actions after the game is over are neither applied nor recorded.
+     */
+    @Test
+    public void testNoRecordingAfterGameOver() {
+        Tetris tetris = new Tetris(7);
+        while (tetris.moveDown()) { }
+        int length = tetris.getReplay().length();
+        tetris.drop();
+        tetris.moveLeft();
+        assertFalse(tetris.moveDown());
+        assertEquals(length, tetris.getReplay().length());
+    }
+
+    /**
+     * Tests that games with a given Random object do not record a replay, as they can not be replayed.
+     */
+    @Test
+    public void testNoReplayWithoutSeed() {
+        assertNull(new Tetris(new java.util.Random(2)).getReplay());
+    }
+}
@@ -3,7 +3,10 @@ package tetris;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.awt.Point;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * This class contains tests for the Tetris class.
@@ -174,4 +177,347 @@ public class TetrisTest {
         assertEquals(9, tetris.getLinesToNextLevel());
         assertEquals(1, tetris.getGameSpeed());
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that the cached landing position always matches where the piece would land by moving down one cell at a time,
+     * including when pieces are moved sideways under overhangs after falling partway.
+     */
+    @Test
+    public void testLandingPosition() {
+        Random r = new Random(8);
+        for (int i = 0; i < 200 && !tetris.isGameOver(); i++) {
+            for (int j = r.nextInt(4); j > 0; j--) tetris.rotateRight();
+            for (int j = r.nextInt(6); j > 0; j--) tetris.moveDown();
+            for (int j = r.nextInt(5); j > 0; j--) {
+                if (r.nextBoolean()) tetris.moveLeft();
+                else tetris.moveRight();
+            }
+            if (tetris.isGameOver()) break;
+            int landing = tetris.getLandingY();
+            assertTrue(landing <= tetris.getPieceY());
+            assertTrue(tetris.getBoard().collides(tetris.getPiece(), tetris.getPieceX(), landing-1));
+            for (int y = tetris.getPieceY(); y >= landing; y--) {
+                assertFalse(tetris.getBoard().collides(tetris.getPiece(), tetris.getPieceX(), y));
+            }
+            tetris.drop();
+        }
+    }
+
+    /**
+     * Tests that a GameRandom gives the same numbers as a Random with the same seed, so seeded games keep their pieces.
+     */
+    @Test
+    public void testGameRandomMatchesRandom() {
+        Random expected = new Random(2);
+        GameRandom actual = new GameRandom(2);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected.nextInt(7), actual.nextInt(7));
+        }
+        assertEquals(expected.nextLong(), actual.nextLong());
+    }
+
+    /**
+     * Tests that restoring a saved state and playing the same pieces again gives the same game,
+     * and that the actions after the saved state are removed from the replay.
+     */
+    @Test
+    public void testSaveAndRestore() {
+        Tetris game = new Tetris(2);
+        Player player = new Player(new double[] {-0.51, 0.76, -0.36, -0.18});
+        for (int i = 0; i < 20; i++) {
+            player.placePiece(game);
+        }
+        GameState state = new GameState();
+        game.saveState(state);
+        int replayLength = game.getReplay().length();
+        for (int i = 0; i < 50 && !game.isGameOver(); i++) {
+            player.placePiece(game);
+        }
+        int score = game.getScore(), lines = game.getTotalLines();
+        long[] board = new long[game.getBoardHeight()];
+        for (int y = 0; y < board.length; y++) {
+            board[y] = game.getBoard().getLine(y);
+        }
+
+        game.restoreState(state);
+        assertEquals(replayLength, game.getReplay().length());
+        for (int i = 0; i < 50 && !game.isGameOver(); i++) {
+            player.placePiece(game);
+        }
+        assertEquals(score, game.getScore());
+        assertEquals(lines, game.getTotalLines());
+        for (int y = 0; y < board.length; y++) {
+            assertEquals(board[y], game.getBoard().getLine(y));
+        }
+        assertThrows(IllegalStateException.class, () -> tetris.saveState(new GameState()));
+    }
+
+    /**
+     * Tests that the spawning position and the delay of falling follow the size of the board,
+     * and that a replay of a game on a custom board simulates the same game.
+     */
+    @Test
+    public void testCustomBoardSize() {
+        Tetris wide = new Tetris(2, 40, 60);
+        assertEquals(40, wide.getBoardWidth());
+        assertEquals(60, wide.getBoardHeight());
+        assertEquals(19, wide.getPieceX());
+        assertEquals(Math.round(10000.0 / 60), wide.getDelayInMillis());
+        Player player = new Player(new double[] {-0.51, 0.76, -0.36, -0.18});
+        for (int i = 0; i < 100 && !wide.isGameOver(); i++) {
+            player.placePiece(wide);
+        }
+        Tetris simulated = wide.getReplay().simulate();
+        assertEquals(40, simulated.getBoardWidth());
+        assertEquals(wide.getScore(), simulated.getScore());
+        for (int y = 0; y < wide.getBoardHeight(); y++) {
+            assertEquals(wide.getBoard().getLine(y), simulated.getBoard().getLine(y));
+        }
+    }
+
+    /**
+     * Tests that the preview queue holds the pieces after the current one in the order they fall,
+     * and that it moves along as pieces lock.
+     */
+    @Test
+    public void testPreviewQueue() {
+        Tetromino.Shape[] order = {
+            Tetromino.Shape.L, Tetromino.Shape.J, Tetromino.Shape.S, Tetromino.Shape.Z, Tetromino.Shape.O, Tetromino.Shape.I, Tetromino.Shape.T,
+            Tetromino.Shape.J, Tetromino.Shape.O, Tetromino.Shape.Z, Tetromino.Shape.T
+        };
+        for (int placed = 0; placed + Tetris.PREVIEW_SIZE < order.length; placed++) {
+            assertEquals(order[placed], tetris.getPiece().getShape());
+            assertSame(tetris.getNextPiece(), tetris.getPreview(0));
+            for (int i = 0; i < Tetris.PREVIEW_SIZE; i++) {
+                assertEquals(order[placed + 1 + i].ordinal(), tetris.getPreviewShape(i));
+            }
+            tetris.drop();
+        }
+        assertThrows(IllegalArgumentException.class, () -> tetris.getPreview(Tetris.PREVIEW_SIZE));
+    }
+
+    /**
+     * Tests that the computer player searching the preview queue plays a deterministic game, and that its lookahead is bounded by the queue.
+     */
+    @Test
+    public void testPlayerLookahead() {
+        int[] scores = new int[2];
+        for (int run = 0; run < 2; run++) {
+            Tetris game = new Tetris(3);
+            Player player = new Player(new double[] {-0.51, 0.76, -0.36, -0.18});
+            player.setLookahead(1);
+            for (int i = 0; i < 60; i++) {
+                player.placePiece(game);
+            }
+            assertFalse(game.isGameOver());
+            scores[run] = game.getScore();
+        }
+        assertTrue(scores[0] > 0);
+        assertEquals(scores[0], scores[1]);
+        assertThrows(IllegalArgumentException.class, () -> new Player(new double[4]).setLookahead(Tetris.PREVIEW_SIZE + 1));
+    }
+
+    /**
+     * Tests that holding swaps the current piece with the hold slot once per piece, taking the next piece when the slot is empty,
+     * and that holding is recorded in the replay.
+     */
+    @Test
+    public void testHold() {
+        Tetris game = new Tetris(2);
+        assertEquals(Tetromino.Shape.L, game.getPiece().getShape());
+        assertEquals(-1, game.getHeldShape());
+        game.rotateRight();
+        game.hold();
+        assertEquals(Tetromino.Shape.J, game.getPiece().getShape());
+        assertEquals(Tetromino.Shape.L.ordinal(), game.getHeldShape());
+        assertEquals(0, game.getHeldPiece().getRotation());
+        assertEquals(Tetromino.Shape.S, game.getNextPiece().getShape());
+        assertFalse(game.canHold());
+
+        game.hold();
+        assertEquals(Tetromino.Shape.J, game.getPiece().getShape());
+        game.drop();
+        assertEquals(Tetromino.Shape.S, game.getPiece().getShape());
+        assertTrue(game.canHold());
+        game.apply(Tetris.Action.HOLD);
+        assertEquals(Tetromino.Shape.L, game.getPiece().getShape());
+        assertEquals(game.getBoardHeight(), game.getPieceY());
+        assertEquals(Tetromino.Shape.S.ordinal(), game.getHeldShape());
+        assertEquals(Tetromino.Shape.Z, game.getNextPiece().getShape());
+
+        Tetris simulated = game.getReplay().simulate();
+        assertEquals(Tetromino.Shape.L, simulated.getPiece().getShape());
+        assertEquals(Tetromino.Shape.S.ordinal(), simulated.getHeldShape());
+        assertEquals(game.getBoard().getLine(0), simulated.getBoard().getLine(0));
+    }
+
+    /**
+     * Tests that the computer player considering the hold slot plays a deterministic game that it can replay.
+     */
+    @Test
+    public void testPlayerHold() {
+        Tetris game = new Tetris(5);
+        Player player = new Player(new double[] {-0.51, 0.76, -0.36, -0.18});
+        player.setHold(true);
+        boolean held = false;
+        for (int i = 0; i < 80 && !game.isGameOver(); i++) {
+            player.placePiece(game);
+            held |= game.getHeldShape() >= 0;
+        }
+        assertTrue(held);
+        assertFalse(game.isGameOver());
+        Tetris simulated = game.getReplay().simulate();
+        assertEquals(game.getScore(), simulated.getScore());
+        assertEquals(game.getHeldShape(), simulated.getHeldShape());
+    }
+
+    /**
+     * Tests that a rotation blocked by the wall is kicked away from it, as in the Super Rotation System,
+     * and that rotating a piece around a full circle in open space puts it back where it started.
+     */
+    @Test
+    public void testWallKicks() {
+        // the L piece stands against the left wall, where rotating back to its spawn orientation needs a kick to the right
+        tetris.rotateRight();
+        for (int i = 0; i < 6; i++) tetris.moveLeft();
+        assertEquals(0, tetris.getPieceX());
+        tetris.rotateLeft();
+        assertEquals(0, tetris.getPiece().getRotation());
+        assertEquals(1, tetris.getPieceX());
+
+        for (Tetromino.Shape shape : Tetromino.Shape.values()) {
+            for (int from = 0; from < 4; from++) {
+                int[] right = Tetromino.getKicks(shape, from, (from + 1) % 4), back = Tetromino.getKicks(shape, (from + 1) % 4, from);
+                for (int i = 0; i < right.length; i++) {
+                    assertEquals(-right[i], back[i]);
+                }
+            }
+        }
+        assertArrayEquals(new int[] {0,0, -1,0, -1,1, 0,-2, -1,-2}, Tetromino.getKicks(Tetromino.Shape.T, 0, 1));
+
+        tetris.drop();
+        tetris.drop();
+        tetris.drop();
+        tetris.drop();
+        tetris.drop();
+        assertEquals(Tetromino.Shape.I, tetris.getPiece().getShape());
+        int x = tetris.getPieceX(), y = tetris.getPieceY();
+        for (int i = 0; i < 4; i++) tetris.rotateRight();
+        assertEquals(x, tetris.getPieceX());
+        assertEquals(y, tetris.getPieceY());
+        tetris.rotateRight();
+        assertEquals(x + 1, tetris.getPieceX());
+    }
+
+    /**
+     * Tests that an upward kick can not push a piece above the top of the hidden lines of a short board.
+     * The stack is filled up to below the spawn row, apart from the cells of the current piece, so the I piece spawns one line higher
+     * and its last kick to the right orientation, 2 lines up, would take it out of the board.
+     */
+    @Test
+    public void testKickAgainstCeiling() {
+        Tetris game = new Tetris(new Random(2), 10, 12);
+        for (int i = 0; i < 4; i++) game.drop();
+        Board board = game.getBoard();
+        Tetromino cell = new Tetromino(Tetromino.Shape.O, Set.of(new Point(0, 0)));
+        Set<Point> kept = new HashSet<>();
+        for (Point mino : game.getPiece().getMinos()) kept.add(new Point(game.getPieceX() + mino.x, game.getPieceY() + mino.y));
+        for (int y = 4; y <= game.getBoardHeight(); y++) {
+            for (int x = 0; x < game.getBoardWidth(); x++) {
+                if (!kept.contains(new Point(x, y)) && !board.isFilled(x, y)) board.placePiece(cell, x, y);
+            }
+        }
+        game.hold();
+        assertEquals(Tetromino.Shape.I, game.getPiece().getShape());
+        assertEquals(game.getBoardHeight() + 1, game.getPieceY());
+
+        game.rotateRight();
+        assertEquals(0, game.getPiece().getRotation());
+        assertEquals(game.getBoardHeight() + 1, game.getPieceY());
+        game.drop();
+        for (int x = 0; x < game.getBoardWidth(); x++) {
+            assertTrue(board.getColumnHeight(x) <= game.getBoardHeight() + 4);
+        }
+    }
+
+    /**
+     * Tests that gravity moves the piece down by the time of the ticks, that soft dropping scores a point per cell without locking,
+     * and that a piece resting on the stack locks only after the lock delay.
+     */
+    @Test
+    public void testGravityAndLockDelay() {
+        int y = tetris.getPieceY(), delay = tetris.getDelayInMillis();
+        for (int ticks = 1; ticks <= 100; ticks++) {
+            tetris.tick();
+            assertEquals(y - ticks * Tetris.TICK_MILLIS / delay, tetris.getPieceY());
+        }
+
+        int score = tetris.getScore(), cells = tetris.getPieceY() - tetris.getLandingY();
+        while (tetris.getPieceY() > tetris.getLandingY()) tetris.softDrop();
+        tetris.softDrop();
+        assertEquals(score + cells, tetris.getScore());
+        assertEquals(Tetromino.Shape.L, tetris.getPiece().getShape());
+
+        for (int i = 0; i < Tetris.DEFAULT_LOCK_DELAY; i++) {
+            assertTrue(tetris.tick());
+            assertEquals(Tetromino.Shape.L, tetris.getPiece().getShape());
+        }
+        tetris.tick();
+        assertEquals(Tetromino.Shape.J, tetris.getPiece().getShape());
+        assertTrue(tetris.getBoard().getColumnHeight(tetris.getBoardWidth()/2) > 0);
+    }
+
+    /**
+     * Tests that moving a resting piece restarts its lock delay only up to the reset limit,
+     * and that the lock delay can only be set before the game starts.
+     */
+    @Test
+    public void testLockDelayResets() {
+        Tetris game = new Tetris(2);
+        game.setLockDelay(5, 2);
+        while (game.getPieceY() > game.getLandingY()) game.softDrop();
+        int ticks = 0;
+        for (int move = 0; move < 3; move++) {
+            for (int i = 0; i < 3; i++, ticks++) game.tick();
+            if (move % 2 == 0) game.moveLeft();
+            else game.moveRight();
+        }
+        while (game.getPiece().getShape() == Tetromino.Shape.L) {
+            game.tick();
+            ticks++;
+        }
+        // two moves restart the delay after 3 ticks each, the third does not, so the piece locks after 3 + 3 + 6 ticks
+        assertEquals(12, ticks);
+
+        Tetris simulated = game.getReplay().simulate();
+        assertEquals(Tetromino.Shape.J, simulated.getPiece().getShape());
+        for (int y = 0; y < 2; y++) {
+            assertEquals(game.getBoard().getLine(y), simulated.getBoard().getLine(y));
+        }
+        assertThrows(IllegalStateException.class, () -> game.setLockDelay(10, 10));
+        assertThrows(IllegalArgumentException.class, () -> new Tetris(2).setLockDelay(-1, 0));
+    }
+
+    /**
+     * Tests that a game played in real time, with ticks, soft drops and moves, is replayed into the same game.
+     */
+    @Test
+    public void testTickedReplay() {
+        Tetris game = new Tetris(9);
+        game.setLockDelay(8, 4);
+        Random r = new Random(4);
+        Tetris.Action[] inputs = {Tetris.Action.LEFT, Tetris.Action.RIGHT, Tetris.Action.ROTATE_RIGHT, Tetris.Action.SOFT_DROP, Tetris.Action.HOLD};
+        for (int i = 0; i < 5000 && !game.isGameOver(); i++) {
+            if (r.nextInt(3) == 0) game.apply(inputs[r.nextInt(inputs.length)]);
+            game.tick();
+        }
+        Tetris simulated = game.getReplay().simulate();
+        assertEquals(game.getScore(), simulated.getScore());
+        assertEquals(game.getTotalLines(), simulated.getTotalLines());
+        assertEquals(game.getPieceX(), simulated.getPieceX());
+        assertEquals(game.getPieceY(), simulated.getPieceY());
+        for (int y = 0; y < game.getBoardHeight(); y++) {
+            assertEquals(game.getBoard().getLine(y), simulated.getBoard().getLine(y));
+        }
+    }
+}
@@ -136,4 +136,20 @@ public class TetrominoTest {
         assertEquals(t.getColor(), rotated.getColor());
         assertEquals(t.getMinos(), rotated.getMinos());
     }
-}
\ No newline at end of file
+
+    /**
+     * Rotating a piece with the minos of its shape returns the shared piece of the new orientation,
+     * so that rotating does not allocate, while a piece with other minos is still rotated mino by mino.
+     */
+    @Test
+    public void testRotationsAreShared() {
+        Tetromino t = new Tetromino(Tetromino.Shape.J);
+        assertSame(t.rotatedRight(), t.rotatedRight());
+        assertSame(t.rotatedLeft(), t.rotatedRight().rotatedRight().rotatedRight());
+        assertSame(Tetromino.spawned(Tetromino.Shape.J), t.rotatedRight().rotatedLeft());
+        assertEquals(1, t.rotatedRight().getRotation());
+
+        Tetromino custom = new Tetromino(Tetromino.Shape.J, Set.of(new Point(0, 0), new Point(1, 0)));
+        assertEquals(Set.of(new Point(0, 0), new Point(0, -1)), custom.rotatedRight().getMinos());
+    }
+}
@@ -0,0 +1,83 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains tests for the Versus class and the garbage lines exchanged by the Tetris games in it.
+ */
+public class VersusTest {
+    /**
+     * Tests that garbage sent to a player waits until their next piece locks, and is then added at the bottom of their board.
+     */
+    @Test
+    public void testGarbageAppliedOnLock() {
+        Tetris first = new Tetris(new Random(2)), second = new Tetris(new Random(2));
+        Versus versus = new Versus(7, first, second);
+        GameEventBus bus = new GameEventBus(16);
+        second.setEventBus(bus);
+        int[] received = new int[1];
+        bus.subscribe((event, value) -> {
+            if (event == Tetris.Event.GARBAGE_RECEIVED) received[0] += value;
+        });
+
+        versus.send(0, 3);
+        assertEquals(3, versus.getIncoming(1));
+        assertEquals(0, versus.getIncoming(0));
+        assertEquals(0, second.getBoard().getColumnHeight(0));
+
+        second.drop();
+        bus.dispatch();
+        assertEquals(3, received[0]);
+        assertEquals(0, versus.getIncoming(1));
+        int holes = 0;
+        for (int x = 0; x < second.getBoardWidth(); x++) {
+            if (!second.getBoard().isFilled(x, 0)) holes++;
+        }
+        assertEquals(1, holes);
+    }
+
+    /**
+     * Tests that cleared lines first cancel the waiting garbage, and that players whose game is over receive no more garbage.
+     */
+    @Test
+    public void testCancelAndLeave() {
+        Tetris a = new Tetris(new Random(2)), b = new Tetris(new Random(2)), c = new Tetris(new Random(2));
+        Versus versus = new Versus(7, a, b, c);
+        versus.send(2, 3);
+        assertEquals(3, versus.getIncoming(0));
+        versus.linesCleared(0, 4);
+        assertEquals(0, versus.getIncoming(0));
+        assertEquals(1, versus.getIncoming(1));
+
+        versus.leave(1);
+        versus.linesCleared(0, 3);
+        assertEquals(0, versus.getIncoming(1));
+        assertEquals(2, versus.getIncoming(2));
+    }
+
+    /**
+     * Tests a battle between two computer players, where the line clears of each should reach the other as garbage.
+     */
+    @Test
+    public void testComputerBattle() {
+        Tetris first = new Tetris(new Random(2)), second = new Tetris(new Random(3));
+        new Versus(7, first, second);
+        GameEventBus bus = new GameEventBus(64);
+        first.setEventBus(bus);
+        second.setEventBus(bus);
+        int[] received = new int[1];
+        bus.subscribe((event, value) -> {
+            if (event == Tetris.Event.GARBAGE_RECEIVED) received[0] += value;
+        });
+        Player player = new Player(new double[] {-0.51, 0.76, -0.36, -0.18});
+        for (int i = 0; i < 500 && !first.isGameOver() && !second.isGameOver(); i++) {
+            player.placePiece(first);
+            player.placePiece(second);
+            bus.dispatch();
+        }
+        assertTrue(received[0] > 0);
+    }
+}
@@ -0,0 +1,74 @@
+package tetris;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+
+/**
+ * This class contains tests for the WeightTuner and Player classes.
+ * The games are kept short, so the tests run quickly.
+ */
+public class WeightTunerTest {
+    /**
+     * Weights that are known to play reasonably well.
+     */
+    private static final double[] WEIGHTS = {-0.51, 0.76, -0.36, -0.18};
+
+    /**
+     * Tests that the same weights and seed always result in the same score, and that the player clears lines.
+     */
+    @Test
+    public void testPlayerIsReproducible() {
+        int score = Player.playGame(WEIGHTS, 4, 60);
+        assertEquals(score, Player.playGame(WEIGHTS, 4, 60));
+        assertTrue(score > 0);
+    }
+
+    /**
+     * Tests that the fitness is the same when computed twice, and that it is the average score of the seeded games.
+     */
+    @Test
+    public void testFitnessIsReproducible() {
+        WeightTuner tuner = new WeightTuner(1, 4, 2, 2, 2, 40, WEIGHTS, 0.2);
+        double fitness = tuner.fitness(WEIGHTS, 3);
+        assertEquals(fitness, tuner.fitness(WEIGHTS, 3));
+        assertEquals((Player.playGame(WEIGHTS, 1, 40) + Player.playGame(WEIGHTS, 2, 40) + Player.playGame(WEIGHTS, 3, 40)) / 3.0, fitness);
+        tuner.shutdown();
+    }
+
+    /**
+     * Tests that the best fitness after a generation is the average score of the best weights over every game of the generation.
+     */
+    @Test
+    public void testBestFitnessIsAverageScore() {
+        WeightTuner tuner = new WeightTuner(1, 4, 2, 2, 3, 30, WEIGHTS, 0.3);
+        tuner.runGeneration();
+        assertEquals(tuner.fitness(tuner.getBest(), 2*3), tuner.getBestFitness(), 1e-9);
+        tuner.shutdown();
+    }
+
+    /**
+     * Tests that a search continued from a checkpoint gives the same results as an uninterrupted search.
+     */
+    @Test
+    public void testCheckpointResume(@TempDir File tempDir) {
+        String checkpoint = new File(tempDir, "tuner.json").getPath();
+        WeightTuner uninterrupted = new WeightTuner(1, 6, 2, 2, 2, 30, WEIGHTS, 0.3);
+        uninterrupted.runGeneration();
+        uninterrupted.runGeneration();
+
+        WeightTuner first = new WeightTuner(1, 6, 2, 2, 2, 30, WEIGHTS, 0.3);
+        first.runGeneration();
+        first.saveCheckpoint(checkpoint);
+        first.shutdown();
+        WeightTuner resumed = WeightTuner.loadCheckpoint(checkpoint);
+        assertEquals(1, resumed.getGeneration());
+        resumed.runGeneration();
+
+        assertArrayEquals(uninterrupted.getBest(), resumed.getBest());
+        assertEquals(uninterrupted.getBestFitness(), resumed.getBestFitness());
+        uninterrupted.shutdown();
+        resumed.shutdown();
+    }
+}